@@ -15,6 +15,7 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.olympusnsp.library.dto.BookSaving;
+import ru.olympusnsp.library.dto.BookSummary;
 import ru.olympusnsp.library.exeption.SearchStringTooSmall;
 import ru.olympusnsp.library.exeption.UserIdInRequestAndUserDetailDifferentException;
 import ru.olympusnsp.library.model.Author;
@@ -44,6 +45,8 @@ class BookControllerMockMvcTest {
 
     private Book sampleBook;
 
+    private BookSummary sampleSummary;
+
     private List<Author> authors;
     @BeforeEach
     void setUp() {
@@ -60,12 +63,16 @@ class BookControllerMockMvcTest {
         authors.add(Author.builder().id(5).fullname("Author").build());
         authors.add(Author.builder().id(6).fullname("Author2").build());
         sampleBook.setAuthors(authors);
+
+        // Списки каталога возвращают BookSummary: авторы - именами
+        sampleSummary = new BookSummary(2, "Test Book", (short) 2025, "Test Book Description", 1,
+                List.of("Author", "Author2"));
     }
 
     @Test
     @WithMockUser
     void testGetAllBooks() throws Exception {
-        Page<Book> page = new PageImpl<>(List.of(sampleBook));
+        Page<BookSummary> page = new PageImpl<>(List.of(sampleSummary));
         Mockito.when(bookService.findAll(any(Pageable.class))).thenReturn(page);
 
         mockMvc.perform(get("/book")
@@ -74,8 +81,9 @@ class BookControllerMockMvcTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.content[0].title").value("Test Book"))
                 .andExpect(jsonPath("$.content[0].id").value(2))
-                .andExpect(jsonPath("$.content[0].authors[0].id").value(5))
-                .andExpect(jsonPath("$.content[0].authors[0].fullname").value("Author"));
+                .andExpect(jsonPath("$.content[0].available").value(1))
+                .andExpect(jsonPath("$.content[0].authors[0]").value("Author"))
+                .andExpect(jsonPath("$.content[0].authors[1]").value("Author2"));
     }
 
     @Test
@@ -114,7 +122,7 @@ class BookControllerMockMvcTest {
     @Test
     @WithMockUser
     void testFindByTitle_Valid() throws Exception {
-        Page<Book> page = new PageImpl<>(List.of(sampleBook));
+        Page<BookSummary> page = new PageImpl<>(List.of(sampleSummary));
         Mockito.when(bookService.findAllByTitleContains(eq("Test"), any(Pageable.class))).thenReturn(page);
 
         mockMvc.perform(get("/book/search")
@@ -16,6 +16,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import ru.olympusnsp.library.dto.OrderBookChangeRequest;
 import ru.olympusnsp.library.dto.OrderBookStatusDTO;
 import ru.olympusnsp.library.dto.OrderCreate;
+import ru.olympusnsp.library.dto.OrderCreated;
 import ru.olympusnsp.library.exeption.NotFoundEntity;
 import ru.olympusnsp.library.exeption.UserIdInRequestAndUserDetailDifferentException;
 import ru.olympusnsp.library.model.Book;
@@ -37,6 +38,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf; // Если CSRF включен
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user; // Альтернативный способ задать пользователя
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -110,16 +112,15 @@ class OrderControllerMockMvcTest {
 
 
     @Test
-    @WithMockUser(username = testUsername) // Имитирует аутентифицированного пользователя
     @DisplayName("POST /order - Успешное создание заказа")
     void newOrder_WhenValidRequestAndUserMatch_ShouldReturnCreatedOrder() throws Exception {
 
-        given(userService.getByUsername(testUsername)).willReturn(testUser);
-        given(orderService.createNewOrder(any(OrderCreate.class))).willReturn(expectedOrder);
+        given(orderService.createNewOrder(any(OrderCreate.class))).willReturn(OrderCreated.of(expectedOrder));
 
         ResultActions resultActions = mockMvc.perform(post("/order")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(orderCreateRequest))
+                .with(user(testUser)) // Принципал - модель User, как после JwtAuthenticationFilter
                 .with(csrf())); // Добавляем CSRF токен, если он используется
 
         // Assert
@@ -128,15 +129,14 @@ class OrderControllerMockMvcTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("id", is(expectedOrder.getId().intValue()))) // Проверяем поля в JSON ответе.andExpect(jsonPath("$.user.id", is(testUserId)));
                 .andExpect(jsonPath("orderBooks[0].status",is("CREATED")))
-                .andExpect(jsonPath("orderBooks[0].book.id",is(sampleBook.getId()))); // Если user сериализуется
+                .andExpect(jsonPath("orderBooks[0].bookId",is(sampleBook.getId()))); // Если user сериализуется
 
         // Verify
-        verify(userService).getByUsername(testUsername);
         verify(orderService).createNewOrder(any(OrderCreate.class)); // Проверяем, что сервисы были вызваны
+        verifyNoInteractions(userService); // Пользователь берется из аутентификации, без чтения из базы
     }
 
     @Test
-    @WithMockUser(username = testUsername)
     @ExceptionHandler(UserIdInRequestAndUserDetailDifferentException.class)
     @DisplayName("POST /order - Ошибка: ID пользователя в запросе не совпадает с аутентифицированным")
     void newOrder_WhenUserIdMismatch_ShouldThrowExceptionAndReturnBadRequest() throws Exception {
@@ -144,11 +144,10 @@ class OrderControllerMockMvcTest {
         mismatchRequest.setUser_id(testUserId + 1); // Неправильный ID
         mismatchRequest.setBook_ids(List.of(3));
 
-        given(userService.getByUsername(testUsername)).willReturn(testUser);
-
         ResultActions resultActions = mockMvc.perform(post("/order")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(mismatchRequest))
+                .with(user(testUser))
                 .with(csrf()));
 
         // Assert
@@ -158,7 +157,7 @@ class OrderControllerMockMvcTest {
                 ;
 
         // Verify
-        verify(userService).getByUsername(testUsername);
+        verifyNoInteractions(userService);
         verify(orderService, never()).createNewOrder(any(OrderCreate.class)); // Убедимся, что метод создания заказа не вызывался
     }
 
@@ -174,7 +173,6 @@ class OrderControllerMockMvcTest {
     }
 
     @Test
-    @WithMockUser(username = testUsername)
     @DisplayName("POST /order - Ошибка валидации DTO")
     void newOrder_WhenInvalidDto_ShouldReturnBadRequest() throws Exception {
         OrderCreate invalidRequest = new OrderCreate();
@@ -182,13 +180,14 @@ class OrderControllerMockMvcTest {
         ResultActions resultActions = mockMvc.perform(post("/order")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(invalidRequest))
+                .with(user(testUser))
                 .with(csrf()));
 
 
         resultActions.andExpect(status().isBadRequest());
 
         // Verify
-        verify(userService, never()).getByUsername(any());
+        verifyNoInteractions(userService);
         verify(orderService, never()).createNewOrder(any(OrderCreate.class));
     }
 
@@ -208,7 +207,7 @@ class OrderControllerMockMvcTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.id", is(testOrderId.intValue())))
                 .andExpect(jsonPath("orderBooks[0].status",is("CREATED")))
-                .andExpect(jsonPath("orderBooks[0].book.id",is(sampleBook.getId()))); // Если user сериализуется
+                .andExpect(jsonPath("orderBooks[0].bookId",is(sampleBook.getId()))); // Если user сериализуется
 
 
         // Verify
@@ -0,0 +1,73 @@
+package ru.olympusnsp.library.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.olympusnsp.library.dto.BookSummary;
+import ru.olympusnsp.library.model.Author;
+import ru.olympusnsp.library.model.Book;
+import ru.olympusnsp.library.model.Genre;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация страницы книг в JSON: сущности и BookSummary (ответ GET /book)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BookPageSerializationBenchmark {
+
+    @Param({"20", "100"})
+    public int pageSize;
+
+    private ObjectMapper objectMapper;
+    private Page<Book> page;
+    private Page<BookSummary> summaries;
+
+    @Setup
+    public void setUp() {
+        // Настройки как у ObjectMapper приложения (application.properties)
+        objectMapper = Jackson2ObjectMapperBuilder.json().failOnEmptyBeans(false).build();
+        var author = new Author();
+        author.setId(1);
+        author.setFullname("Лев Николаевич Толстой");
+        var genre = new Genre();
+        genre.setId(1);
+        genre.setText("Роман");
+        var books = new ArrayList<Book>(pageSize);
+        for (int id = 1; id <= pageSize; id++) {
+            var book = new Book();
+            book.setId(id);
+            book.setTitle("Война и мир, том " + id);
+            book.setYear((short) 1869);
+            book.setDescription("Роман-эпопея, описывающий русское общество в эпоху войн против Наполеона");
+            book.setCount(10);
+            book.setAvailable(7);
+            book.setReserve(1);
+            book.setVersion(1L);
+            book.setAuthors(List.of(author));
+            book.setGenres(List.of(genre));
+            books.add(book);
+        }
+        page = new PageImpl<>(books, PageRequest.of(0, pageSize), 10_000);
+        summaries = page.map(book -> new BookSummary(book.getId(), book.getTitle(), book.getYear(),
+                book.getDescription(), book.getAvailable(), List.of(author.getFullname())));
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] serializeSummaryPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(summaries);
+    }
+}
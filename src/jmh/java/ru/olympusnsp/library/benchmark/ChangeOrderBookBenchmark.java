@@ -0,0 +1,49 @@
+package ru.olympusnsp.library.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.olympusnsp.library.dto.OrderBookChangeRequest;
+import ru.olympusnsp.library.model.OrderBook;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OrderServiceImpl.changeOrderBook - переход статуса одной заказанной книги
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ChangeOrderBookBenchmark {
+
+    /**
+     * Переход статуса, старый:новый
+     */
+    @Param({"CREATED:PREPARED", "PREPARED:RENTED", "RENTED:RETURNED", "RENTED:LOSSUSER", "CREATED:CANCELLED"})
+    public String transition;
+
+    private OrderFixture fixture;
+    private OrderBook.OrderBookStatus from;
+    private OrderBookChangeRequest change;
+
+    @Setup
+    public void setUp() {
+        fixture = new OrderFixture();
+        var statuses = transition.split(":");
+        from = OrderBook.OrderBookStatus.valueOf(statuses[0]);
+        change = new OrderBookChangeRequest(fixture.orderBook.getId(), OrderBook.OrderBookStatus.valueOf(statuses[1]));
+    }
+
+    @Benchmark
+    public OrderBook changeOrderBook() {
+        // Состояние возвращается к исходному, чтобы каждый вызов выполнял один и тот же переход
+        var orderBook = fixture.orderBook;
+        orderBook.setStatus(from);
+        orderBook.setDateReturnUpto(null);
+        fixture.user.setBookRented(1);
+        fixture.user.setViolations(0);
+        var book = orderBook.getBook();
+        book.setAvailable(OrderFixture.STOCK);
+        book.setReserve(1);
+        book.setCount(OrderFixture.STOCK);
+        return fixture.orderService.changeOrderBook(change);
+    }
+}
@@ -0,0 +1,41 @@
+package ru.olympusnsp.library.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.olympusnsp.library.dto.OrderCreate;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OrderServiceImpl.createNewOrder с разным количеством книг в заказе
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CreateOrderBenchmark {
+
+    @Param({"1", "3", "10"})
+    public int booksInOrder;
+
+    private OrderFixture fixture;
+    private OrderCreate orderCreate;
+
+    @Setup
+    public void setUp() {
+        fixture = new OrderFixture();
+        var bookIds = new ArrayList<Integer>();
+        for (int i = 0; i < booksInOrder; i++) {
+            bookIds.add(1 + i % OrderFixture.BOOKS);
+        }
+        orderCreate = new OrderCreate(fixture.user.getId(), bookIds);
+    }
+
+    @Benchmark
+    public Object createNewOrder() {
+        fixture.user.setBookRented(0);
+        for (Integer bookId : orderCreate.getBook_ids()) {
+            fixture.books.get(bookId).setAvailable(OrderFixture.STOCK);
+        }
+        return fixture.orderService.createNewOrder(orderCreate);
+    }
+}
@@ -0,0 +1,40 @@
+package ru.olympusnsp.library.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Реализации интерфейсов репозиториев и сервисов в памяти для бенчмарков.
+ * Реализуются только методы, которые вызывает измеряемый код, остальные бросают UnsupportedOperationException,
+ * поэтому новые методы интерфейсов не требуют правки бенчмарков
+ */
+final class Fakes {
+
+    private Fakes() {
+    }
+
+    /**
+     * @param type    интерфейс
+     * @param methods реализация по имени метода, на вход - аргументы вызова
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T of(Class<T> type, Map<String, Function<Object[], Object>> methods) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "toString":
+                    return "Fake " + type.getSimpleName();
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    var implementation = methods.get(method.getName());
+                    if (implementation == null) {
+                        throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+                    }
+                    return implementation.apply(args);
+            }
+        });
+    }
+}
@@ -0,0 +1,60 @@
+package ru.olympusnsp.library.benchmark;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import ru.olympusnsp.library.model.Role;
+import ru.olympusnsp.library.model.User;
+import ru.olympusnsp.library.service.JwtServiceImpl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JwtServiceImpl: выпуск токена и проверка токена с кешем проверенных токенов и без него
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JwtServiceBenchmark {
+
+    private static final String SIGNING_KEY = "53A73E5F1C4E0A2D3B5F2D784E6A1B423D6F247D1F6E5C3A596D635A75327855";
+
+    private JwtServiceImpl cachingService;
+    private JwtServiceImpl verifyingService;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        cachingService = new JwtServiceImpl(SIGNING_KEY, 10_000, new SimpleMeterRegistry());
+        // Кеш нулевого размера - каждый вызов проверяет подпись
+        verifyingService = new JwtServiceImpl(SIGNING_KEY, 0, new SimpleMeterRegistry());
+        user = new User();
+        user.setId(1);
+        user.setUsername("reader");
+        user.setEmail("reader@example.com");
+        user.setRole(Role.ROLE_USER);
+        token = cachingService.generateToken(user);
+        cachingService.extractValidClaims(token);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return cachingService.generateToken(user);
+    }
+
+    @Benchmark
+    public Claims validateCached() {
+        return cachingService.extractValidClaims(token);
+    }
+
+    @Benchmark
+    public Claims validateUncached() {
+        return verifyingService.extractValidClaims(token);
+    }
+
+    @Benchmark
+    public boolean isTokenValid() {
+        return cachingService.isTokenValid(token, user);
+    }
+}
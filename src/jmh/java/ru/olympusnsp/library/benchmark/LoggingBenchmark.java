@@ -0,0 +1,104 @@
+package ru.olympusnsp.library.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.FileAppender;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import ru.olympusnsp.library.dto.OrderCreate;
+import ru.olympusnsp.library.model.OrderBook;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость журналирования одного запроса (вход, просмотр книги, создание заказа, выдача книги):
+ * before - прежние вызовы (шесть строк INFO при входе, включая пароль, заказ целиком через toString),
+ * after - текущие вызовы. Оба варианта на одном уровне журнала (level), запись в файл синхронная, как в приложении
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LoggingBenchmark {
+
+    @Param({"DEBUG", "INFO"})
+    private String level;
+
+    private LoggerContext context;
+    private Path file;
+    private Logger authLogger;
+    private Logger orderLogger;
+    private Logger bookLogger;
+    private OrderCreate orderCreate;
+    private final String username = "reader";
+    private final String password = "secret-password";
+    private final Integer bookId = 7;
+    private final Long orderBookId = 42L;
+    private final LocalDate returnUpTo = LocalDate.of(2026, 11, 1);
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("logging-benchmark", ".log");
+        context = new LoggerContext();
+
+        var encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p --- [%t] %-40.40logger{39} : %m%n");
+        encoder.start();
+
+        var fileAppender = new FileAppender<ILoggingEvent>();
+        fileAppender.setContext(context);
+        fileAppender.setFile(file.toString());
+        fileAppender.setEncoder(encoder);
+        fileAppender.start();
+
+        var rootLogger = context.getLogger(Logger.ROOT_LOGGER_NAME);
+        rootLogger.setLevel(Level.toLevel(level));
+        rootLogger.addAppender(fileAppender);
+
+        authLogger = context.getLogger("ru.olympusnsp.library.service.AuthenticationServiceImpl");
+        orderLogger = context.getLogger("ru.olympusnsp.library.service.OrderServiceImpl");
+        bookLogger = context.getLogger("ru.olympusnsp.library.controller.BookController");
+        orderCreate = new OrderCreate(1, List.of(1, 2, 3));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.stop();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void before() {
+        authLogger.info("Authentication000");
+        authLogger.info(username);
+        authLogger.info(password);
+        authLogger.info("Authentication111");
+        authLogger.info("AUthentification222");
+        authLogger.info("AUthentification333");
+        bookLogger.info("Get book with id");
+        orderLogger.info("Create new order {}", orderCreate);
+        orderLogger.debug("Изменение состояния OrderBook с id {} с {} на {}", orderBookId,
+                OrderBook.OrderBookStatus.PREPARED, OrderBook.OrderBookStatus.RENTED);
+        orderLogger.debug("Выдача заказа для подготовленных (зарезервированных книг)");
+        orderLogger.debug("Выдача книги id {} до {}", bookId, returnUpTo);
+    }
+
+    @Benchmark
+    public void after() {
+        authLogger.debug("Пользователь {} вошел", username);
+        bookLogger.debug("Get book with id {}", bookId);
+        orderLogger.debug("Создание заказа: пользователь {}, книги {}", orderCreate.getUser_id(), orderCreate.getBook_ids());
+        if (orderLogger.isDebugEnabled()) {
+            orderLogger.debug("Изменение состояния OrderBook с id {} с {} на {}", orderBookId,
+                    OrderBook.OrderBookStatus.PREPARED, OrderBook.OrderBookStatus.RENTED);
+        }
+        orderLogger.debug("Выдача книги по OrderBook id {} до {}", orderBookId, returnUpTo);
+    }
+}
@@ -0,0 +1,136 @@
+package ru.olympusnsp.library.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.olympusnsp.library.model.*;
+import ru.olympusnsp.library.repository.OrderBookRepository;
+import ru.olympusnsp.library.repository.OrderRepository;
+import ru.olympusnsp.library.service.BookService;
+import ru.olympusnsp.library.service.OrderServiceImpl;
+import ru.olympusnsp.library.service.UserService;
+
+import java.util.*;
+
+/**
+ * OrderServiceImpl без базы: репозитории и сервисы - в памяти, с одним пользователем,
+ * одной заказанной книгой (id = 1) и каталогом из BOOKS книг
+ */
+class OrderFixture {
+
+    static final int BOOKS = 10;
+    static final int STOCK = 1_000;
+
+    final User user;
+    final Map<Integer, Book> books = new HashMap<>();
+    final OrderBook orderBook;
+    final OrderServiceImpl orderService;
+    private Order lastOrder;
+
+    OrderFixture() {
+        user = new User();
+        user.setId(1);
+        user.setUsername("reader");
+        user.setBookRented(0);
+        user.setViolations(0);
+        user.setStatusBlock(false);
+        user.setRole(Role.ROLE_USER);
+
+        for (int id = 1; id <= BOOKS; id++) {
+            var book = new Book();
+            book.setId(id);
+            book.setTitle("Book " + id);
+            book.setCount(STOCK);
+            book.setAvailable(STOCK);
+            book.setReserve(0);
+            books.put(id, book);
+        }
+
+        var order = new Order();
+        order.setId(1L);
+        order.setUser(user);
+        orderBook = new OrderBook();
+        orderBook.setId(1L);
+        orderBook.setOrder(order);
+        orderBook.setBook(books.get(1));
+
+        orderService = new OrderServiceImpl();
+        ReflectionTestUtils.setField(orderService, "orderRepository", orderRepository());
+        ReflectionTestUtils.setField(orderService, "orderBookRepository", orderBookRepository());
+        ReflectionTestUtils.setField(orderService, "userService", userService());
+        ReflectionTestUtils.setField(orderService, "bookService", bookService());
+        ReflectionTestUtils.setField(orderService, "maxBooksInOrder", Integer.MAX_VALUE);
+        ReflectionTestUtils.setField(orderService, "maxRentalBooks", Integer.MAX_VALUE);
+        ReflectionTestUtils.setField(orderService, "daysRentalBooks", 14);
+        ReflectionTestUtils.setField(orderService, "meterRegistry", new SimpleMeterRegistry());
+    }
+
+    private OrderRepository orderRepository() {
+        // Хранится только последний заказ, чтобы память не росла за время замера
+        return Fakes.of(OrderRepository.class, Map.of(
+                "save", args -> {
+                    var order = (Order) args[0];
+                    if (order.getId() == null) {
+                        order.setId(lastOrder == null ? 1L : lastOrder.getId() + 1);
+                    }
+                    lastOrder = order;
+                    return order;
+                }));
+    }
+
+    private OrderBookRepository orderBookRepository() {
+        return Fakes.of(OrderBookRepository.class, Map.of(
+                "findById", args -> Optional.of(orderBook).filter(ob -> ob.getId().equals(args[0])),
+                "save", args -> args[0]));
+    }
+
+    private UserService userService() {
+        return Fakes.of(UserService.class, Map.of(
+                "findById", args -> user,
+                "save", args -> args[0],
+                "addViolation", args -> {
+                    // Блокировка в фикстуре не моделируется: нарушение никогда не блокирует пользователя
+                    user.setViolations(user.getViolations() + 1);
+                    return false;
+                },
+                "addBookRented", args -> {
+                    user.setBookRented(user.getBookRented() + (int) args[1]);
+                    return null;
+                },
+                "addBookRentedUpTo", args -> {
+                    long rented = (long) user.getBookRented() + (int) args[1];
+                    if (rented > (int) args[2]) {
+                        return false;
+                    }
+                    user.setBookRented((int) rented);
+                    return true;
+                }));
+    }
+
+    private BookService bookService() {
+        return Fakes.of(BookService.class, Map.of(
+                "findAllByIdIn", args -> {
+                    var found = new HashMap<Integer, Book>();
+                    for (Object id : (Collection<?>) args[0]) {
+                        found.put((Integer) id, books.get(id));
+                    }
+                    return found;
+                },
+                "decrementAvailable", args -> {
+                    var book = books.get(args[0]);
+                    int amount = (int) args[1];
+                    if (book.getAvailable() < amount) {
+                        return false;
+                    }
+                    book.setAvailable(book.getAvailable() - amount);
+                    return true;
+                },
+                "applyStockDelta", args -> {
+                    var book = books.get(args[0]);
+                    book.setAvailable(book.getAvailable() + (int) args[1]);
+                    book.setReserve(book.getReserve() + (int) args[2]);
+                    book.setCount(book.getCount() + (int) args[3]);
+                    return null;
+                },
+                "refreshStock", args -> null));
+    }
+}
@@ -0,0 +1,67 @@
+package ru.olympusnsp.library.configuration;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.NoOpCache;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * Локальный кэш справочников (жанры, авторы) на Caffeine, с ограничением по времени жизни и размеру.
+ * Кэш каждой сущности включается настройкой setting.cache.[сущность].enabled,
+ * выключенный кэш заменяется NoOpCache и запросы идут в базу.
+ * Статистика (попадания, промахи, вытеснения) публикуется actuator в метриках cache.gets и cache.evictions
+ */
+@Configuration
+@EnableCaching
+public class CacheConfiguration {
+
+    public static final String GENRE = "genre";
+    public static final String GENRES = "genres";
+    public static final String AUTHOR = "author";
+
+    @Value("${setting.cache.genre.enabled}")
+    private boolean genreEnabled;
+    @Value("${setting.cache.genre.ttl}")
+    private String genreTtl;
+    @Value("${setting.cache.genre.max-size}")
+    private long genreMaxSize;
+
+    @Value("${setting.cache.author.enabled}")
+    private boolean authorEnabled;
+    @Value("${setting.cache.author.ttl}")
+    private String authorTtl;
+    @Value("${setting.cache.author.max-size}")
+    private long authorMaxSize;
+
+    @Bean
+    public CacheManager cacheManager() {
+        var cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(List.of(
+                cache(GENRE, genreEnabled, genreTtl, genreMaxSize),
+                // Список всех жанров - одна запись
+                cache(GENRES, genreEnabled, genreTtl, 1),
+                cache(AUTHOR, authorEnabled, authorTtl, authorMaxSize)
+        ));
+        return cacheManager;
+    }
+
+    private static Cache cache(String name, boolean enabled, String ttl, long maxSize) {
+        if (!enabled) {
+            return new NoOpCache(name);
+        }
+        return new CaffeineCache(name, Caffeine.newBuilder()
+                .expireAfterWrite(DurationStyle.detectAndParse(ttl))
+                .maximumSize(maxSize)
+                .recordStats()
+                .build());
+    }
+}
@@ -5,8 +5,11 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContext;
@@ -15,6 +18,9 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
+import ru.olympusnsp.library.model.Role;
+import ru.olympusnsp.library.model.User;
+import ru.olympusnsp.library.service.BlockedUserRegistry;
 import ru.olympusnsp.library.service.JwtService;
 import ru.olympusnsp.library.service.UserService;
 
@@ -26,8 +32,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     public static final String BEARER_PREFIX = "Bearer ";
     public static final String HEADER_NAME = "Authorization";
 
-    private JwtService jwtService;
-    private  UserService userService;
+    private final JwtService jwtService;
+    private final UserService userService;
+    private final BlockedUserRegistry blockedUserRegistry;
+
+    /**
+     * true - пользователь собирается из данных проверенного токена без чтения user_,
+     * блокировка проверяется по BlockedUserRegistry
+     */
+    @Value("${setting.jwt.stateless-principal}")
+    private boolean statelessPrincipal;
 
     @Override
     protected void doFilterInternal(
@@ -43,17 +57,28 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             return;
         }
 
-        // Обрезаем префикс и получаем имя пользователя из токена
+        // Обрезаем префикс, проверяем токен (подпись проверяется один раз на токен) и получаем имя пользователя
         var jwt = authHeader.substring(BEARER_PREFIX.length());
-        var username = jwtService.extractUserName(jwt);
+        Claims claims;
+        try {
+            claims = jwtService.extractValidClaims(jwt);
+        } catch (JwtException | IllegalArgumentException e) {
+            // Невалидный или просроченный токен - запрос продолжается без аутентификации
+            filterChain.doFilter(request, response);
+            return;
+        }
 
+        var username = claims.getSubject();
         if (StringUtils.isNotEmpty(username) && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userService
-                    .userDetailsService()
-                    .loadUserByUsername(username);
+            UserDetails userDetails = principalFromClaims(claims);
+            if (userDetails == null) {
+                userDetails = userService
+                        .userDetailsService()
+                        .loadUserByUsername(username);
+            }
 
-            // Если токен валиден, то аутентифицируем пользователя
-            if (jwtService.isTokenValid(jwt, userDetails)) {
+            // Пользователь найден по имени из проверенного токена и не заблокирован, аутентифицируем его
+            if (userDetails != null && userDetails.isAccountNonLocked()) {
                 SecurityContext context = SecurityContextHolder.createEmptyContext();
 
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
@@ -69,4 +94,27 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    /**
+     * Пользователь из данных токена (id, email, role), без обращения к базе
+     *
+     * @return пользователь или null, если режим выключен или в токене нет нужных данных
+     */
+    private User principalFromClaims(Claims claims) {
+        if (!statelessPrincipal) {
+            return null;
+        }
+        var id = claims.get("id", Integer.class);
+        var role = claims.get("role", String.class);
+        if (id == null || role == null) {
+            return null;
+        }
+        var user = new User();
+        user.setId(id);
+        user.setUsername(claims.getSubject());
+        user.setEmail(claims.get("email", String.class));
+        user.setRole(Role.valueOf(role));
+        user.setStatusBlock(blockedUserRegistry.isBlocked(id));
+        return user;
+    }
+}
@@ -0,0 +1,104 @@
+package ru.olympusnsp.library.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Map;
+
+/**
+ * Хеширование паролей.
+ * Новые пароли хешируются алгоритмом setting.password.encoder (bcrypt или argon2) с настраиваемой стоимостью,
+ * хеши другим алгоритмом или с другой стоимостью (в том числе старые хеши BCrypt без префикса {bcrypt})
+ * принимаются и перехешируются при успешном входе.
+ * Хеширование при входе и регистрации выполняется в отдельном ограниченном пуле, а не в потоках Tomcat
+ */
+@Configuration
+public class PasswordEncoderConfiguration {
+
+    public static final String BCRYPT = "bcrypt";
+    public static final String ARGON2 = "argon2";
+
+    @Value("${setting.password.encoder}")
+    private String encoderId;
+
+    @Value("${setting.password.bcrypt.strength}")
+    private int bcryptStrength;
+
+    @Value("${setting.password.argon2.salt-length}")
+    private int argon2SaltLength;
+    @Value("${setting.password.argon2.hash-length}")
+    private int argon2HashLength;
+    @Value("${setting.password.argon2.parallelism}")
+    private int argon2Parallelism;
+    @Value("${setting.password.argon2.memory-kb}")
+    private int argon2MemoryKb;
+    @Value("${setting.password.argon2.iterations}")
+    private int argon2Iterations;
+
+    @Value("${setting.password.executor.threads}")
+    private int executorThreads;
+    @Value("${setting.password.executor.queue-capacity}")
+    private int executorQueueCapacity;
+
+    Logger logger = LoggerFactory.getLogger(PasswordEncoderConfiguration.class);
+
+    @Bean
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry) {
+        Map<String, PasswordEncoder> encoders = Map.of(
+                BCRYPT, new BCryptPasswordEncoder(bcryptStrength),
+                ARGON2, new Argon2PasswordEncoder(argon2SaltLength, argon2HashLength, argon2Parallelism,
+                        argon2MemoryKb, argon2Iterations));
+        if (!encoders.containsKey(encoderId)) {
+            throw new IllegalStateException("Unknown setting.password.encoder: " + encoderId);
+        }
+        var delegating = new DelegatingPasswordEncoder(encoderId, encoders);
+        // Хеши, сохраненные до появления префикса {id}, - это BCrypt
+        delegating.setDefaultPasswordEncoderForMatches(encoders.get(BCRYPT));
+        return new TimedPasswordEncoder(delegating, meterRegistry);
+    }
+
+    /**
+     * Пул хеширования паролей. При заполненной очереди задача отклоняется (TaskRejectedException, ответ 503),
+     * а не ждет, занимая поток Tomcat.
+     * Не кандидат по умолчанию: внедряется только по имени и не отключает applicationTaskExecutor Spring Boot
+     * (@ConditionalOnMissingBean(Executor.class)), которым пользуются @Async и асинхронные запросы MVC
+     */
+    @Bean(defaultCandidate = false)
+    public ThreadPoolTaskExecutor passwordHashExecutor() {
+        var executor = new ThreadPoolTaskExecutor();
+        int threads = executorThreads > 0 ? executorThreads : Runtime.getRuntime().availableProcessors();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(executorQueueCapacity);
+        executor.setThreadNamePrefix("password-hash-");
+        return executor;
+    }
+
+    /**
+     * Прогрев кодировщика при старте: первый вызов не попадает на пользователя, время хеша видно в журнале
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp(ApplicationReadyEvent event) {
+        var encoder = event.getApplicationContext().getBean(PasswordEncoder.class);
+        var executor = event.getApplicationContext().getBean("passwordHashExecutor", ThreadPoolTaskExecutor.class);
+        executor.execute(() -> {
+            long started = System.nanoTime();
+            var hash = encoder.encode("warm-up");
+            encoder.matches("warm-up", hash);
+            logger.info("Password encoder {} warmed up, encode + matches took {} ms",
+                    encoderId, (System.nanoTime() - started) / 1_000_000);
+        });
+    }
+}
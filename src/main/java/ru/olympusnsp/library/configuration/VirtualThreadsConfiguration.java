@@ -0,0 +1,22 @@
+package ru.olympusnsp.library.configuration;
+
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Профиль virtual - обработка запросов в виртуальных потоках.
+ * На Java ниже 21 Spring Boot молча игнорирует spring.threads.virtual.enabled, а пул соединений
+ * из application-virtual.properties рассчитан на виртуальные потоки, поэтому запуск прерывается
+ */
+@Configuration
+@Profile("virtual")
+public class VirtualThreadsConfiguration {
+
+    public VirtualThreadsConfiguration() {
+        if (!JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE)) {
+            throw new IllegalStateException("Profile 'virtual' requires Java 21+, running on "
+                    + System.getProperty("java.version") + ". Build with: mvn -Pjava21 package");
+        }
+    }
+}
@@ -13,6 +13,8 @@ import ru.olympusnsp.library.dto.SignInRequest;
 import ru.olympusnsp.library.dto.SignUpRequest;
 import ru.olympusnsp.library.service.AuthenticationService;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/auth")
 @Tag(name = "Аутентификация")
@@ -25,13 +27,13 @@ public class AuthController {
 
     @Operation(summary = "Регистрация пользователя")
     @PostMapping("/sign-up")
-    public JwtAuthenticationResponse signUp(@RequestBody @Valid SignUpRequest request) {
+    public CompletableFuture<JwtAuthenticationResponse> signUp(@RequestBody @Valid SignUpRequest request) {
         return authenticationService.signUp(request);
     }
 
     @Operation(summary = "Авторизация пользователя")
     @PostMapping("/sign-in")
-    public JwtAuthenticationResponse signIn(@RequestBody @Valid SignInRequest request) {
+    public CompletableFuture<JwtAuthenticationResponse> signIn(@RequestBody @Valid SignInRequest request) {
         return authenticationService.signIn(request);
     }
 }
@@ -6,17 +6,25 @@ import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.query.Param;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import ru.olympusnsp.library.dto.BookCursorPage;
+import ru.olympusnsp.library.dto.BookImportReport;
 import ru.olympusnsp.library.dto.BookSaving;
+import ru.olympusnsp.library.dto.BookSearchHit;
+import ru.olympusnsp.library.dto.BookSummary;
 import ru.olympusnsp.library.dto.BooksReturn;
 import ru.olympusnsp.library.exeption.SearchStringTooSmall;
+import ru.olympusnsp.library.importer.BookImportFormat;
 import ru.olympusnsp.library.model.Book;
+import ru.olympusnsp.library.service.BookImportService;
 import ru.olympusnsp.library.service.BookService;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,48 +33,105 @@ import java.util.Optional;
 @RequestMapping("/book")
 public class BookController {
 
-    BookController(BookService bookService) {
+    BookController(BookService bookService, BookImportService bookImportService) {
         this.bookService = bookService;
+        this.bookImportService = bookImportService;
     }
     private final BookService bookService;
+    private final BookImportService bookImportService;
+
+    /**
+     * Минимальная длина строки поиска: индекс триграмм работает начиная с 3 символов
+     */
+    @Value("${setting.book.search.min-length}")
+    private Integer minSearchLength;
 
     Logger logger = LoggerFactory.getLogger(BookController.class);
 
 
     @GetMapping("")
     @Operation(summary = "Постраничная выдача всех книг")
-    public Page<Book> all(Pageable page){
+    public Page<BookSummary> all(Pageable page){
         return bookService.findAll(page);
     }
 
+    @GetMapping("/cursor")
+    @Operation(summary = "Курсорная выдача всех книг, без подсчета количества")
+    public BookCursorPage allAfter(@RequestParam(required = false) String cursor,
+                                   @RequestParam(required = false) Integer size){
+        return bookService.findAllAfter(cursor, size);
+    }
+
     @PostMapping("")
     @Operation(summary = "Сохранение книги")
     public Book save(@RequestBody @Valid BookSaving book){
-        logger.info("Save Book: {}", book);
+        logger.info("Save Book: {}", book.getTitle());
         return bookService.save(book);
     }
 
+    @PostMapping("/import")
+    @Operation(summary = "Массовый импорт книг из CSV или NDJSON (format=csv|ndjson), тело запроса читается потоком")
+    public BookImportReport importBooks(@RequestParam String format, InputStream body){
+        logger.info("Import books, format {}", format);
+        return bookImportService.importBooks(body, BookImportFormat.of(format));
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Получение книги по идентификатору")
     public Book findById(@PathVariable Integer id){
-        logger.info("Get book with id");
+        logger.debug("Get book with id {}", id);
         return bookService.findById(id);
     }
+    @PutMapping("/{id}/stock-slots")
+    @Operation(summary = "Раскладка доступных экземпляров популярной книги по ячейкам (slots <= 1 - без ячеек)")
+    public void setStockSlots(@PathVariable Integer id, @RequestParam int slots){
+        logger.info("Stock slots of book {}: {}", id, slots);
+        bookService.setStockSlots(id, slots);
+    }
+
     @GetMapping("/search")
-    @Operation(summary = "Получение страницы книг по совпадению с названием")
-    public Page<Book> findByTitle(@Param("title") String title, Pageable page){
-        if (title.length()<4){
-            logger.warn("Search string too small");
-            throw new SearchStringTooSmall("Title String too small");
-        }
+    @Operation(summary = "Получение страницы книг по совпадению с названием, по убыванию похожести")
+    public Page<BookSummary> findByTitle(@Param("title") String title, Pageable page){
+        checkTitle(title);
         return bookService.findAllByTitleContains(title, page);
     }
 
+    @GetMapping("/search/cursor")
+    @Operation(summary = "Курсорная выдача книг по совпадению с названием")
+    public BookCursorPage findByTitleAfter(@RequestParam String title,
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestParam(required = false) Integer size){
+        checkTitle(title);
+        return bookService.findAllByTitleContainsAfter(title, cursor, size);
+    }
+
+    @GetMapping("/find")
+    @Operation(summary = "Поиск книг по названию, описанию и авторам, по убыванию релевантности")
+    public List<BookSearchHit> find(@RequestParam String query, @RequestParam(required = false) Integer limit){
+        checkTitle(query);
+        return bookService.search(query, limit);
+    }
+
     @GetMapping("/genre/{id}")
     @Operation(summary = "Получение страницы книг по совпадению с жанром")
-    public Page<Book> findByGenre(@PathVariable Integer id, Pageable page){
+    public Page<BookSummary> findByGenre(@PathVariable Integer id, Pageable page){
         return bookService.findAllWithGenreId(id,page);
     }
 
+    @GetMapping("/genre/{id}/cursor")
+    @Operation(summary = "Курсорная выдача книг с жанром")
+    public BookCursorPage findByGenreAfter(@PathVariable Integer id,
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestParam(required = false) Integer size){
+        return bookService.findAllWithGenreIdAfter(id, cursor, size);
+    }
+
+    private void checkTitle(String title){
+        if (title.length()<minSearchLength){
+            logger.warn("Search string too small");
+            throw new SearchStringTooSmall("Title String too small");
+        }
+    }
+
 
 }
@@ -1,6 +1,8 @@
 package ru.olympusnsp.library.controller;
 
 import io.swagger.v3.oas.annotations.Hidden;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -30,6 +32,24 @@ public class ErrorGlobalController {
         return new ErrorItem(entity.getMessage(), HttpStatus.NOT_ACCEPTABLE.value());
     }
 
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(InvalidCursorException.class)
+    public ErrorItem handleException(InvalidCursorException entity) {
+        return new ErrorItem(entity.getMessage(), HttpStatus.BAD_REQUEST.value());
+    }
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(BookImportException.class)
+    public ErrorItem handleException(BookImportException entity) {
+        return new ErrorItem(entity.getMessage(), HttpStatus.BAD_REQUEST.value());
+    }
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(StockSlotsDisabledException.class)
+    public ErrorItem handleException(StockSlotsDisabledException entity) {
+        return new ErrorItem(entity.getMessage(), HttpStatus.BAD_REQUEST.value());
+    }
+
     @ResponseStatus(HttpStatus.FORBIDDEN)
     @ExceptionHandler(BookCountExcessException.class)
     public ErrorItem handleException(BookCountExcessException entity) {
@@ -60,5 +80,15 @@ public class ErrorGlobalController {
         return new ErrorItem(entity.getMessage(), HttpStatus.BAD_REQUEST.value());
     }
 
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    public ErrorItem handleException(ConcurrencyFailureException entity) {
+        return new ErrorItem("Данные изменены параллельным запросом, повторите операцию", HttpStatus.CONFLICT.value());
+    }
 
-}
\ No newline at end of file
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler(TaskRejectedException.class)
+    public ErrorItem handleException(TaskRejectedException entity) {
+        return new ErrorItem("Сервис перегружен, повторите запрос позже", HttpStatus.SERVICE_UNAVAILABLE.value());
+    }
+}
@@ -5,11 +5,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 import ru.olympusnsp.library.dto.OrderBookChangeRequest;
+import ru.olympusnsp.library.dto.OrderBookChangeResult;
 import ru.olympusnsp.library.dto.OrderBookStatusDTO;
 import ru.olympusnsp.library.dto.OrderCreate;
+import ru.olympusnsp.library.dto.OrderCreated;
 import ru.olympusnsp.library.exeption.UserIdInRequestAndUserDetailDifferentException;
 import ru.olympusnsp.library.model.Order;
 import ru.olympusnsp.library.model.OrderBook;
@@ -18,6 +19,8 @@ import ru.olympusnsp.library.service.OrderService;
 import ru.olympusnsp.library.service.UserService;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/order")
 @Tag(name="Заказы")
@@ -32,8 +35,8 @@ public class OrderController {
     Logger logger = LoggerFactory.getLogger(OrderController.class);
 
     @PostMapping("")
-    Order newOrder(@RequestBody @Valid OrderCreate orderCreate, @AuthenticationPrincipal UserDetails userDetails){
-        User user = userService.getByUsername(userDetails.getUsername());
+    OrderCreated newOrder(@RequestBody @Valid OrderCreate orderCreate, @AuthenticationPrincipal User user){
+        // Пользователь берется из аутентификации, без повторного чтения из базы
         if (!orderCreate.getUser_id().equals(user.getId()))
         {
             throw new UserIdInRequestAndUserDetailDifferentException("Пользователь в запросе не совпадает с аутентифицированным");
@@ -55,4 +58,10 @@ public class OrderController {
 
     }
 
+    //@PreAuthorize("hasRole('MANAGER')")
+    @PutMapping(value = "/orderbook/batch")
+    List<OrderBookChangeResult> changeOrders(@RequestBody List<@Valid OrderBookChangeRequest> changes) {
+        return orderService.changeOrderBooks(changes);
+    }
+
 }
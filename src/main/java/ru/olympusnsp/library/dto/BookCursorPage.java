@@ -0,0 +1,27 @@
+package ru.olympusnsp.library.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Порция книг при курсорной (keyset) выдаче, без подсчета общего количества
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookCursorPage {
+
+    List<BookSummary> content;
+
+    /**
+     * Токен продолжения для следующего запроса, null - книг больше нет
+     */
+    String next;
+
+    boolean hasNext;
+
+    int size;
+}
@@ -0,0 +1,18 @@
+package ru.olympusnsp.library.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Ошибка импорта строки файла
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookImportError {
+
+    long line;
+
+    String message;
+}
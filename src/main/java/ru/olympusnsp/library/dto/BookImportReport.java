@@ -0,0 +1,62 @@
+package ru.olympusnsp.library.dto;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ход и результат импорта книг. Хранится не больше maxErrors ошибок, остальные только считаются
+ */
+@Getter
+@NoArgsConstructor
+public class BookImportReport {
+
+    long read;
+
+    long imported;
+
+    long failed;
+
+    long authorsCreated;
+
+    long genresCreated;
+
+    long elapsedMs;
+
+    List<BookImportError> errors = new ArrayList<>();
+
+    boolean errorsTruncated;
+
+    @Getter(AccessLevel.NONE)
+    private int maxErrors;
+
+    public BookImportReport(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    public void addRead() {
+        read++;
+    }
+
+    public void addImported(int books, int authors, int genres) {
+        imported += books;
+        authorsCreated += authors;
+        genresCreated += genres;
+    }
+
+    public void addError(long line, String message) {
+        failed++;
+        if (errors.size() < maxErrors) {
+            errors.add(new BookImportError(line, message));
+        } else {
+            errorsTruncated = true;
+        }
+    }
+
+    public void setElapsedMs(long elapsedMs) {
+        this.elapsedMs = elapsedMs;
+    }
+}
@@ -0,0 +1,27 @@
+package ru.olympusnsp.library.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Книга в результатах поиска по каталогу
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookSearchHit {
+
+    Integer id;
+
+    String title;
+
+    List<String> authors;
+
+    /**
+     * Релевантность, 0 - поиск без индекса в памяти
+     */
+    double score;
+}
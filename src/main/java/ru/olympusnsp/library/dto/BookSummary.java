@@ -0,0 +1,28 @@
+package ru.olympusnsp.library.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Книга в списках каталога, авторы - списком имен
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookSummary {
+
+    Integer id;
+
+    String title;
+
+    Short year;
+
+    String description;
+
+    Integer available;
+
+    List<String> authors;
+}
@@ -1,5 +1,6 @@
 package ru.olympusnsp.library.dto;
 
+import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -12,6 +13,8 @@ import ru.olympusnsp.library.model.OrderBook;
 @NoArgsConstructor
 public class OrderBookChangeRequest {
 
+    @NotNull
     Long orderBookId;
+    @NotNull
     OrderBook.OrderBookStatus status;
 }
@@ -0,0 +1,27 @@
+package ru.olympusnsp.library.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.olympusnsp.library.model.OrderBook;
+
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderBookChangeResult {
+
+    Long orderBookId;
+    OrderBook.OrderBookStatus status;
+    boolean success;
+    String error;
+
+    public static OrderBookChangeResult success(OrderBook orderBook) {
+        return new OrderBookChangeResult(orderBook.getId(), orderBook.getStatus(), true, null);
+    }
+
+    public static OrderBookChangeResult failure(Long orderBookId, OrderBook.OrderBookStatus status, String error) {
+        return new OrderBookChangeResult(orderBookId, status, false, error);
+    }
+}
@@ -0,0 +1,36 @@
+package ru.olympusnsp.library.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import ru.olympusnsp.library.model.Order;
+import ru.olympusnsp.library.model.OrderBook;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Созданный заказ, строится из сохраняемых сущностей без повторного чтения из базы
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderCreated {
+
+    Long id;
+
+    Integer userId;
+
+    LocalDate createdData;
+
+    List<OrderedBook> orderBooks;
+
+    public static OrderCreated of(Order order) {
+        var orderBooks = new ArrayList<OrderedBook>(order.getOrderBooks().size());
+        for (OrderBook orderBook : order.getOrderBooks()) {
+            orderBooks.add(OrderedBook.of(orderBook));
+        }
+        return new OrderCreated(order.getId(), order.getUser().getId(), order.getCreatedData(), orderBooks);
+    }
+}
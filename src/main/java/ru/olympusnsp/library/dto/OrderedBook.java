@@ -0,0 +1,28 @@
+package ru.olympusnsp.library.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import ru.olympusnsp.library.model.OrderBook;
+
+/**
+ * Заказанная книга в созданном заказе
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderedBook {
+
+    Long id;
+
+    OrderBook.OrderBookStatus status;
+
+    Integer bookId;
+
+    String title;
+
+    public static OrderedBook of(OrderBook orderBook) {
+        var book = orderBook.getBook();
+        return new OrderedBook(orderBook.getId(), orderBook.getStatus(), book.getId(), book.getTitle());
+    }
+}
@@ -0,0 +1,7 @@
+package ru.olympusnsp.library.exeption;
+
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
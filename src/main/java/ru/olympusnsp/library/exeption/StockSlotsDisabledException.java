@@ -0,0 +1,7 @@
+package ru.olympusnsp.library.exeption;
+
+public class StockSlotsDisabledException extends RuntimeException {
+    public StockSlotsDisabledException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,41 @@
+package ru.olympusnsp.library.importer;
+
+import ru.olympusnsp.library.exeption.BookImportException;
+
+import java.util.Locale;
+
+/**
+ * Формат файла импорта книг
+ */
+public enum BookImportFormat {
+    /**
+     * CSV с заголовком title,year,description,count,authors,genres, авторы и жанры через ";"
+     */
+    CSV,
+    /**
+     * Одна книга - один JSON объект в строке
+     */
+    NDJSON;
+
+    public static BookImportFormat of(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BookImportException("Неизвестный формат импорта: " + name);
+        }
+    }
+
+    /**
+     * Формат по расширению файла: .csv или .ndjson/.jsonl
+     */
+    public static BookImportFormat ofFileName(String fileName) {
+        var name = fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return CSV;
+        }
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+            return NDJSON;
+        }
+        throw new BookImportException("Не удалось определить формат импорта по имени файла " + fileName);
+    }
+}
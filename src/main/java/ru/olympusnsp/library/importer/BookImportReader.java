@@ -0,0 +1,25 @@
+package ru.olympusnsp.library.importer;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Потоковое чтение файла импорта: в памяти только текущая запись
+ */
+public interface BookImportReader extends Closeable {
+
+    /**
+     * Следующая запись файла
+     *
+     * @return запись (с заполненным error, если ее не удалось разобрать) или null в конце файла
+     */
+    BookImportRecord next() throws IOException;
+
+    static BookImportReader open(InputStream input, BookImportFormat format) throws IOException {
+        var reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        return switch (format) {
+            case CSV -> new CsvBookImportReader(reader);
+            case NDJSON -> new NdjsonBookImportReader(reader);
+        };
+    }
+}
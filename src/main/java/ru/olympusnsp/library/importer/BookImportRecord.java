@@ -0,0 +1,44 @@
+package ru.olympusnsp.library.importer;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Строка файла импорта. Если строку не удалось разобрать, заполнено только error
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BookImportRecord {
+
+    /**
+     * Номер строки файла, с которой начинается запись
+     */
+    @JsonIgnore
+    private long line;
+
+    private String title;
+    private Short year;
+    private String description;
+    private Integer count;
+    private List<String> authors;
+    private List<String> genres;
+
+    @JsonIgnore
+    private String error;
+
+    static BookImportRecord failed(long line, String error) {
+        var record = new BookImportRecord();
+        record.setLine(line);
+        record.setError(error);
+        return record;
+    }
+}
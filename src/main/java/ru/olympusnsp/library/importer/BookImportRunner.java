@@ -0,0 +1,89 @@
+package ru.olympusnsp.library.importer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+import ru.olympusnsp.library.service.BookImportService;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Импорт книг из файла при запуске приложения, после импорта приложение завершается
+ * (код возврата 1, если были ошибки в строках):
+ * java -jar Library.jar --spring.main.web-application-type=none --setting.import.file=books.csv
+ * Формат определяется по расширению (.csv, .ndjson, .jsonl) или задается setting.import.format
+ */
+@Component
+@ConditionalOnProperty(name = "setting.import.file")
+public class BookImportRunner implements ApplicationRunner {
+
+    private final BookImportService bookImportService;
+    private final ConfigurableApplicationContext context;
+
+    @Value("${setting.import.file}")
+    private String file;
+
+    @Value("${setting.import.format:}")
+    private String format;
+
+    Logger logger = LoggerFactory.getLogger(BookImportRunner.class);
+
+    public BookImportRunner(BookImportService bookImportService, ConfigurableApplicationContext context) {
+        this.bookImportService = bookImportService;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        var path = Path.of(file);
+        var importFormat = format.isBlank() ? BookImportFormat.ofFileName(path.getFileName().toString()) : BookImportFormat.of(format);
+        long size = Files.size(path);
+        logger.info("Импорт книг из {} ({}, {} байт)", path, importFormat, size);
+        try (var input = new CountingInputStream(Files.newInputStream(path))) {
+            var report = bookImportService.importBooks(input, importFormat,
+                    progress -> logger.info("Импорт книг: {}% файла", size == 0 ? 100 : input.count * 100 / size));
+            for (var error : report.getErrors()) {
+                logger.warn("Строка {}: {}", error.getLine(), error.getMessage());
+            }
+            int exitCode = report.getFailed() == 0 ? 0 : 1;
+            System.exit(SpringApplication.exit(context, () -> exitCode));
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream input) {
+            super(input);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package ru.olympusnsp.library.importer;
+
+import ru.olympusnsp.library.exeption.BookImportException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * CSV (RFC 4180): первая строка - заголовок, колонки сопоставляются по имени.
+ * Обязательные колонки title, year, description, count, authors, необязательная - genres.
+ * Значения в кавычках могут содержать запятые, переводы строк и удвоенные кавычки.
+ * Несколько авторов и жанров в одной ячейке разделяются ";"
+ */
+class CsvBookImportReader implements BookImportReader {
+
+    static final String LIST_SEPARATOR = ";";
+
+    private static final List<String> REQUIRED = List.of("title", "year", "description", "count", "authors");
+
+    private final BufferedReader reader;
+    private final Map<String, Integer> columns = new HashMap<>();
+    private final StringBuilder field = new StringBuilder();
+    private long lineNumber = 1;
+    private boolean finished;
+
+    CsvBookImportReader(BufferedReader reader) throws IOException {
+        this.reader = reader;
+        var header = readFields();
+        if (header == null) {
+            throw new BookImportException("Пустой файл импорта");
+        }
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String column : REQUIRED) {
+            if (!columns.containsKey(column)) {
+                throw new BookImportException("В заголовке CSV нет колонки " + column);
+            }
+        }
+    }
+
+    @Override
+    public BookImportRecord next() throws IOException {
+        List<String> fields;
+        long line;
+        do {
+            line = lineNumber;
+            try {
+                fields = readFields();
+            } catch (UnterminatedQuoteException e) {
+                return BookImportRecord.failed(line, "Незакрытая кавычка");
+            }
+            if (fields == null) {
+                return null;
+            }
+        } while (fields.size() == 1 && fields.get(0).isBlank());
+        if (fields.size() != columns.size()) {
+            return BookImportRecord.failed(line, "Ожидалось колонок: " + columns.size() + ", получено: " + fields.size());
+        }
+        var record = new BookImportRecord();
+        record.setLine(line);
+        try {
+            record.setTitle(value(fields, "title"));
+            record.setDescription(value(fields, "description"));
+            var year = value(fields, "year");
+            record.setYear(year == null ? null : Short.valueOf(year));
+            var count = value(fields, "count");
+            record.setCount(count == null ? null : Integer.valueOf(count));
+        } catch (NumberFormatException e) {
+            return BookImportRecord.failed(line, "Некорректное число: " + e.getMessage());
+        }
+        record.setAuthors(list(value(fields, "authors")));
+        record.setGenres(list(value(fields, "genres")));
+        return record;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private String value(List<String> fields, String column) {
+        var index = columns.get(column);
+        if (index == null) {
+            return null;
+        }
+        var value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static List<String> list(String value) {
+        if (value == null) {
+            return List.of();
+        }
+        var items = new ArrayList<String>();
+        for (String item : value.split(LIST_SEPARATOR)) {
+            if (!item.isBlank()) {
+                items.add(item.trim());
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Поля одной записи CSV, запись может занимать несколько строк файла
+     *
+     * @return поля или null в конце файла
+     */
+    private List<String> readFields() throws IOException {
+        if (finished) {
+            return null;
+        }
+        var fields = new ArrayList<String>();
+        field.setLength(0);
+        boolean quoted = false;
+        boolean empty = true;
+        while (true) {
+            int c = reader.read();
+            if (c == -1) {
+                finished = true;
+                if (quoted) {
+                    throw new UnterminatedQuoteException();
+                }
+                if (empty && fields.isEmpty()) {
+                    return null;
+                }
+                fields.add(field.toString());
+                return fields;
+            }
+            empty = false;
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        field.append('"');
+                    } else {
+                        reader.reset();
+                        quoted = false;
+                    }
+                } else {
+                    if (c == '\n') {
+                        lineNumber++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r') {
+                // CRLF: перевод строки обрабатывается по \n
+            } else if (c == '\n') {
+                lineNumber++;
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+        }
+    }
+
+    private static class UnterminatedQuoteException extends IOException {
+    }
+}
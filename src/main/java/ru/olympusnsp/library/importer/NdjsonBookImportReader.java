@@ -0,0 +1,48 @@
+package ru.olympusnsp.library.importer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * NDJSON: каждая непустая строка - объект {"title","year","description","count","authors":[],"genres":[]}.
+ * Строка разбирается отдельно, ошибка в ней не прерывает чтение остальных
+ */
+class NdjsonBookImportReader implements BookImportReader {
+
+    private static final ObjectReader RECORD_READER = JsonMapper.builder().build().readerFor(BookImportRecord.class);
+
+    private final BufferedReader reader;
+    private long lineNumber;
+
+    NdjsonBookImportReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public BookImportRecord next() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+        } while (line.isBlank());
+        try {
+            BookImportRecord record = RECORD_READER.readValue(line);
+            record.setLine(lineNumber);
+            return record;
+        } catch (JsonProcessingException e) {
+            return BookImportRecord.failed(lineNumber, "Некорректный JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
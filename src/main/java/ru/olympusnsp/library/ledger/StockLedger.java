@@ -0,0 +1,363 @@
+package ru.olympusnsp.library.ledger;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.olympusnsp.library.model.StockLedgerCheckpoint;
+import ru.olympusnsp.library.repository.BookRepository;
+import ru.olympusnsp.library.repository.StockLedgerCheckpointRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Счетчики доступных и зарезервированных экземпляров в памяти, с отложенной записью в таблицу book.
+ * Заказ и резерв списывают экземпляры CAS на атомарном счетчике книги, без блокировки строки book,
+ * изменение добавляется в журнал StockWal и в накопленные изменения. Перед фиксацией транзакции журнал
+ * записывается на диск (один fsync на все записи, накопленные к этому моменту), при откате изменение отменяется.
+ * Освобожденные экземпляры (возврат, отмена) зачисляются только после фиксации транзакции, поэтому
+ * в памяти, журнале и book доступных экземпляров никогда не больше, чем по зафиксированным данным.
+ * По расписанию setting.stock.ledger.flush-ms накопленные изменения записываются в book одним UPDATE на книгу,
+ * в той же транзакции сохраняется номер последней записанной записи журнала (StockLedgerCheckpoint).
+ * При запуске записи журнала после этого номера применяются к book, так восстанавливаются изменения,
+ * не записанные до сбоя.
+ * Счетчик книги загружается из базы при первом обращении и дальше считается верным: предполагается один
+ * экземпляр приложения, изменения book.available в обход BookService в памяти не видны.
+ * Включается настройкой setting.stock.ledger.enabled=true
+ */
+@Service
+@ConditionalOnProperty(name = "setting.stock.ledger.enabled", havingValue = "true")
+public class StockLedger {
+
+    /**
+     * Счетчики книги в памяти
+     */
+    public record Stock(int available, int reserve) {
+    }
+
+    private static final class Counter {
+        final AtomicInteger available;
+        final AtomicInteger reserve;
+
+        Counter(int available, int reserve) {
+            this.available = new AtomicInteger(available);
+            this.reserve = new AtomicInteger(reserve);
+        }
+    }
+
+    private final BookRepository bookRepository;
+    private final StockLedgerCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Path directory;
+    private final boolean fsync;
+
+    private final Map<Integer, Counter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Изменения, еще не записанные в book: книга -> {available, reserve}. Изменяется вместе с журналом под this,
+     * чтобы сброс забирал изменения ровно до конца закрываемого сегмента
+     */
+    private Map<Integer, int[]> pending = new HashMap<>();
+
+    /**
+     * Сбросы выполняются по очереди, иначе более ранний номер мог бы перезаписать более поздний
+     */
+    private final Object flushLock = new Object();
+
+    private StockWal wal;
+
+    Logger logger = LoggerFactory.getLogger(StockLedger.class);
+
+    public StockLedger(BookRepository bookRepository, StockLedgerCheckpointRepository checkpointRepository,
+                       TransactionTemplate transactionTemplate,
+                       @Value("${setting.stock.ledger.dir}") String directory,
+                       @Value("${setting.stock.ledger.fsync}") boolean fsync) {
+        this.bookRepository = bookRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.directory = Path.of(directory);
+        this.fsync = fsync;
+    }
+
+    /**
+     * Восстановление после сбоя: записи журнала после сохраненного номера применяются к book,
+     * старые сегменты удаляются, начинается новый
+     */
+    @PostConstruct
+    public void recover() {
+        long checkpoint = checkpointRepository.findById(StockLedgerCheckpoint.ID)
+                .map(StockLedgerCheckpoint::getSeq)
+                .orElse(0L);
+        long lastSeq = checkpoint;
+        var replay = new HashMap<Integer, int[]>();
+        try {
+            for (StockWal.Entry entry : StockWal.read(directory)) {
+                lastSeq = Math.max(lastSeq, entry.seq());
+                if (entry.seq() > checkpoint) {
+                    merge(replay, entry.bookId(), entry.available(), entry.reserve());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (lastSeq > checkpoint) {
+            write(replay, lastSeq);
+            logger.info("Stock ledger replayed records {}..{} for {} books", checkpoint + 1, lastSeq, replay.size());
+        }
+        wal = new StockWal(directory, fsync, lastSeq);
+        wal.deleteClosedSegments(lastSeq);
+    }
+
+    /**
+     * Списание доступных экземпляров
+     *
+     * @return true, если экземпляров хватило, false - не хватило или книги нет
+     */
+    public boolean take(Integer bookId, int amount) {
+        return take(bookId, amount, 0);
+    }
+
+    /**
+     * Перевод одного доступного экземпляра в резерв
+     *
+     * @return true, если доступный экземпляр был
+     */
+    public boolean reserve(Integer bookId) {
+        return take(bookId, 1, 1);
+    }
+
+    /**
+     * Изменение счетчиков без проверки остатка (возврат, отмена, выдача зарезервированной книги).
+     * Освобожденные экземпляры (available > 0) в транзакции учитываются только после ее фиксации:
+     * иначе параллельный заказ мог бы забрать экземпляр, возврат которого потом откатится
+     */
+    public void apply(Integer bookId, int available, int reserve) {
+        if (available > 0 && TransactionSynchronizationManager.isSynchronizationActive()) {
+            if (counter(bookId) != null) {
+                merge(releases(), bookId, available, reserve);
+            }
+            return;
+        }
+        var counter = counter(bookId);
+        if (counter == null) {
+            return;
+        }
+        counter.available.addAndGet(available);
+        counter.reserve.addAndGet(reserve);
+        record(bookId, available, reserve);
+    }
+
+    /**
+     * Счетчики книги, вместе с еще не зафиксированными возвратами текущей транзакции.
+     * null - счетчик еще не загружен и book в базе актуальна
+     */
+    public Stock stock(Integer bookId) {
+        var counter = counters.get(bookId);
+        if (counter == null) {
+            return null;
+        }
+        int available = counter.available.get();
+        int reserve = counter.reserve.get();
+        @SuppressWarnings("unchecked")
+        var releases = (Map<Integer, int[]>) TransactionSynchronizationManager.getResource(this);
+        if (releases != null && releases.containsKey(bookId)) {
+            available += releases.get(bookId)[0];
+            reserve += releases.get(bookId)[1];
+        }
+        return new Stock(available, reserve);
+    }
+
+    /**
+     * Доступные экземпляры загруженных книг, без обращения к базе
+     */
+    public Map<Integer, Integer> available(Collection<Integer> bookIds) {
+        var available = new HashMap<Integer, Integer>();
+        for (Integer bookId : bookIds) {
+            var counter = counters.get(bookId);
+            if (counter != null) {
+                available.put(bookId, counter.available.get());
+            }
+        }
+        return available;
+    }
+
+    /**
+     * Удаление счетчика удаленной книги
+     */
+    public void forget(Integer bookId) {
+        counters.remove(bookId);
+        synchronized (this) {
+            pending.remove(bookId);
+        }
+    }
+
+    /**
+     * Запись накопленных изменений в book. Если запись не удалась, изменения возвращаются в накопленные
+     * и записываются при следующем сбросе, журнал при этом не удаляется
+     */
+    @Scheduled(initialDelayString = "${setting.stock.ledger.flush-ms}",
+            fixedDelayString = "${setting.stock.ledger.flush-ms}")
+    public void flush() {
+        synchronized (flushLock) {
+            Map<Integer, int[]> batch;
+            long seq;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new HashMap<>();
+                seq = wal.rotate();
+            }
+            try {
+                write(batch, seq);
+            } catch (RuntimeException e) {
+                logger.warn("Stock ledger flush failed, {} books will be retried", batch.size(), e);
+                synchronized (this) {
+                    batch.forEach((bookId, delta) -> merge(pending, bookId, delta[0], delta[1]));
+                }
+                return;
+            }
+            wal.deleteClosedSegments(seq);
+            logger.debug("Stock ledger flushed {} books up to record {}", batch.size(), seq);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+        wal.close();
+    }
+
+    private boolean take(Integer bookId, int amount, int reserve) {
+        var counter = counter(bookId);
+        if (counter == null) {
+            return false;
+        }
+        int current;
+        do {
+            current = counter.available.get();
+            if (current < amount) {
+                return false;
+            }
+        } while (!counter.available.compareAndSet(current, current - amount));
+        counter.reserve.addAndGet(reserve);
+        record(bookId, -amount, reserve);
+        return true;
+    }
+
+    /**
+     * Возвраты текущей транзакции, зачисляются после ее фиксации
+     */
+    private Map<Integer, int[]> releases() {
+        @SuppressWarnings("unchecked")
+        var releases = (Map<Integer, int[]>) TransactionSynchronizationManager.getResource(this);
+        if (releases != null) {
+            return releases;
+        }
+        var bound = new HashMap<Integer, int[]>();
+        TransactionSynchronizationManager.bindResource(this, bound);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                bound.forEach((bookId, delta) -> credit(bookId, delta[0], delta[1]));
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(StockLedger.this);
+            }
+        });
+        return bound;
+    }
+
+    /**
+     * Зачисление освобожденных экземпляров зафиксированной транзакции, журнал сразу пишется на диск
+     */
+    private void credit(Integer bookId, int available, int reserve) {
+        var counter = counter(bookId);
+        if (counter == null) {
+            return;
+        }
+        counter.available.addAndGet(available);
+        counter.reserve.addAndGet(reserve);
+        wal.sync(append(bookId, available, reserve));
+    }
+
+    private Counter counter(Integer bookId) {
+        var counter = counters.get(bookId);
+        if (counter != null) {
+            return counter;
+        }
+        return counters.computeIfAbsent(bookId, id -> bookRepository.findStockById(id)
+                .map(stock -> new Counter(stock.getAvailable(), stock.getReserve()))
+                .orElse(null));
+    }
+
+    /**
+     * Запись изменения в журнал. В транзакции журнал записывается на диск перед фиксацией,
+     * при откате изменение отменяется обратной записью
+     */
+    private void record(Integer bookId, int available, int reserve) {
+        long seq = append(bookId, available, reserve);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            wal.sync(seq);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                wal.sync(seq);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    var counter = counters.get(bookId);
+                    if (counter != null) {
+                        counter.available.addAndGet(-available);
+                        counter.reserve.addAndGet(-reserve);
+                    }
+                    append(bookId, -available, -reserve);
+                }
+            }
+        });
+    }
+
+    private synchronized long append(Integer bookId, int available, int reserve) {
+        long seq = wal.append(bookId, available, reserve);
+        merge(pending, bookId, available, reserve);
+        return seq;
+    }
+
+    private void write(Map<Integer, int[]> batch, long seq) {
+        transactionTemplate.executeWithoutResult(status -> {
+            batch.forEach((bookId, delta) -> {
+                if (delta[0] != 0 || delta[1] != 0) {
+                    bookRepository.applyStockDelta(bookId, delta[0], delta[1], 0);
+                }
+            });
+            checkpointRepository.save(new StockLedgerCheckpoint(StockLedgerCheckpoint.ID, seq));
+        });
+    }
+
+    private static void merge(Map<Integer, int[]> deltas, Integer bookId, int available, int reserve) {
+        var delta = deltas.computeIfAbsent(bookId, id -> new int[2]);
+        delta[0] += available;
+        delta[1] += reserve;
+    }
+}
@@ -0,0 +1,234 @@
+package ru.olympusnsp.library.ledger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал предзаписи изменений счетчиков книг (write-ahead log).
+ * Запись фиксированной длины: номер, книга, изменение available, изменение reserve и CRC32.
+ * Записи копятся в буфере памяти и пишутся в файл при sync (групповая фиксация: один fsync на все накопленные записи).
+ * Журнал делится на сегменты stock-[первый номер].wal: при сбросе в базу начинается новый сегмент,
+ * сегменты, полностью записанные в базу, удаляются. Оборванная запись в конце сегмента при чтении пропускается
+ */
+public class StockWal implements Closeable {
+
+    static final int RECORD_SIZE = Long.BYTES + 3 * Integer.BYTES + Integer.BYTES;
+    private static final String PREFIX = "stock-";
+    private static final String SUFFIX = ".wal";
+
+    /**
+     * Запись журнала
+     */
+    public record Entry(long seq, int bookId, int available, int reserve) {
+    }
+
+    private final Path directory;
+    private final boolean fsync;
+    private final CRC32 crc = new CRC32();
+    private final ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 1024);
+    private FileChannel channel;
+    private long currentFirstSeq;
+    private final List<Path> closedSegments = new ArrayList<>();
+    private long lastSeq;
+    private long writtenSeq;
+    private long syncedSeq;
+
+    /**
+     * @param directory каталог сегментов
+     * @param fsync     true - sync дожидается записи на диск (force), false - только передает записи ОС
+     * @param lastSeq   номер последней записи, новые записи нумеруются с lastSeq + 1
+     */
+    public StockWal(Path directory, boolean fsync, long lastSeq) {
+        this.directory = directory;
+        this.fsync = fsync;
+        this.lastSeq = lastSeq;
+        this.writtenSeq = lastSeq;
+        this.syncedSeq = lastSeq;
+        try {
+            Files.createDirectories(directory);
+            var existing = segments(directory);
+            openSegment();
+            for (Path segment : existing) {
+                if (firstSeq(segment) != currentFirstSeq) {
+                    closedSegments.add(segment);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Чтение всех записей сегментов каталога по возрастанию номера
+     */
+    public static List<Entry> read(Path directory) throws IOException {
+        var entries = new ArrayList<Entry>();
+        if (!Files.isDirectory(directory)) {
+            return entries;
+        }
+        var crc = new CRC32();
+        for (Path segment : segments(directory)) {
+            var bytes = ByteBuffer.wrap(Files.readAllBytes(segment));
+            while (bytes.remaining() >= RECORD_SIZE) {
+                int start = bytes.position();
+                long seq = bytes.getLong();
+                int bookId = bytes.getInt();
+                int available = bytes.getInt();
+                int reserve = bytes.getInt();
+                int checksum = bytes.getInt();
+                crc.reset();
+                crc.update(bytes.array(), start, RECORD_SIZE - Integer.BYTES);
+                if ((int) crc.getValue() != checksum) {
+                    // Запись оборвана при сбое, дальше в сегменте ничего не зафиксировано
+                    break;
+                }
+                entries.add(new Entry(seq, bookId, available, reserve));
+            }
+        }
+        entries.sort((a, b) -> Long.compare(a.seq(), b.seq()));
+        return entries;
+    }
+
+    /**
+     * Добавление записи в буфер, без обращения к диску
+     *
+     * @return номер записи
+     */
+    public synchronized long append(int bookId, int available, int reserve) {
+        if (buffer.remaining() < RECORD_SIZE) {
+            writeBuffer();
+        }
+        long seq = ++lastSeq;
+        int start = buffer.position();
+        buffer.putLong(seq).putInt(bookId).putInt(available).putInt(reserve);
+        crc.reset();
+        crc.update(buffer.array(), start, RECORD_SIZE - Integer.BYTES);
+        buffer.putInt((int) crc.getValue());
+        return seq;
+    }
+
+    /**
+     * Запись в файл всех записей до seq включительно (и накопленных после нее)
+     */
+    public synchronized void sync(long seq) {
+        if (seq <= syncedSeq) {
+            return;
+        }
+        writeBuffer();
+        force();
+    }
+
+    /**
+     * Номер последней добавленной записи
+     */
+    public synchronized long lastSeq() {
+        return lastSeq;
+    }
+
+    /**
+     * Начало нового сегмента, текущий записывается на диск и закрывается
+     *
+     * @return номер последней записи закрытого сегмента
+     */
+    public synchronized long rotate() {
+        writeBuffer();
+        force();
+        try {
+            channel.close();
+            openSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return lastSeq;
+    }
+
+    /**
+     * Удаление закрытых сегментов, все записи которых сброшены в базу (номер не больше upToSeq)
+     */
+    public synchronized void deleteClosedSegments(long upToSeq) {
+        var iterator = closedSegments.iterator();
+        while (iterator.hasNext()) {
+            var segment = iterator.next();
+            if (firstSeq(segment) > upToSeq) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(segment);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            iterator.remove();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            writeBuffer();
+            force();
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Сегмент с тем же первым номером может остаться пустым или оборванным от прошлого запуска, он перезаписывается
+     */
+    private void openSegment() throws IOException {
+        if (channel != null) {
+            closedSegments.add(directory.resolve(PREFIX + currentFirstSeq + SUFFIX));
+        }
+        currentFirstSeq = lastSeq + 1;
+        channel = FileChannel.open(directory.resolve(PREFIX + currentFirstSeq + SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private void writeBuffer() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            buffer.clear();
+        }
+        writtenSeq = lastSeq;
+    }
+
+    private void force() {
+        if (fsync) {
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        syncedSeq = writtenSeq;
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(PREFIX)
+                            && path.getFileName().toString().endsWith(SUFFIX))
+                    .sorted((a, b) -> Long.compare(firstSeq(a), firstSeq(b)))
+                    .toList();
+        }
+    }
+
+    private static long firstSeq(Path segment) {
+        var name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
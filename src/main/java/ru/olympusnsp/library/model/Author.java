@@ -17,7 +17,8 @@ import java.util.List;
 @AllArgsConstructor
 public class Author {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "author_id_gen")
+    @SequenceGenerator(name = "author_id_gen", sequenceName = "author_id_seq", allocationSize = 50)
     @Column(name = "id", nullable = false)
     private Integer id;
 
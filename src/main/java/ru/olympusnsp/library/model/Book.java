@@ -5,6 +5,7 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
 
 import java.util.List;
 
@@ -12,12 +13,25 @@ import java.util.List;
 @Setter
 @Entity
 @Table(name = "book")
+@NamedEntityGraph(name = Book.WITH_AUTHORS, attributeNodes = @NamedAttributeNode("authors"))
+// Ленивые ссылки на книги (OrderBook.book) и коллекции книг загружаются пачками, а не по одной книге
+@BatchSize(size = Book.FETCH_BATCH_SIZE)
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class Book {
+
+    /**
+     * Граф загрузки книги с авторами. Жанры в граф не входят: одновременная выборка двух списков (bag)
+     * запрещена Hibernate, жанры догружаются пачкой
+     */
+    public static final String WITH_AUTHORS = "Book.withAuthors";
+
+    public static final int FETCH_BATCH_SIZE = 100;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_id_gen")
+    @SequenceGenerator(name = "book_id_gen", sequenceName = "book_id_seq", allocationSize = 50)
     @Column(name = "id", nullable = false)
     private Integer id;
 
@@ -46,11 +60,16 @@ public class Book {
     @Column(name = "reserve", nullable = false)
     private Integer reserve;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     @ManyToMany
     @JoinTable(name = "author_book",
             schema = "public",
             joinColumns = @JoinColumn(name = "book_id"),
             inverseJoinColumns = @JoinColumn(name = "author_id"))
+    @BatchSize(size = FETCH_BATCH_SIZE)
     private List<Author> authors;
 
     @ManyToMany
@@ -58,6 +77,7 @@ public class Book {
             schema = "public",
             joinColumns = @JoinColumn(name = "book_id"),
             inverseJoinColumns = @JoinColumn(name = "genre_id"))
+    @BatchSize(size = FETCH_BATCH_SIZE)
     private List<Genre> genres;
 
     @ManyToMany
@@ -65,6 +85,7 @@ public class Book {
             schema = "public",
             joinColumns = @JoinColumn(name = "book_id"),
             inverseJoinColumns = @JoinColumn(name = "user_id"))
+    @BatchSize(size = FETCH_BATCH_SIZE)
     @JsonIgnore
     private List<User> rentedUser;
 }
\ No newline at end of file
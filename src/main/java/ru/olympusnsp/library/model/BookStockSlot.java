@@ -0,0 +1,42 @@
+package ru.olympusnsp.library.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * Ячейка доступных экземпляров популярной книги.
+ * Доступные экземпляры книги делятся на несколько ячеек, параллельные заказы списывают из разных строк
+ * и не ждут блокировки одной строки book. Доступно всего = book.available + сумма ячеек
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "book_stock_slot")
+@IdClass(BookStockSlot.Key.class)
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookStockSlot {
+
+    @Id
+    @Column(name = "book_id", nullable = false)
+    private Integer bookId;
+
+    @Id
+    @Column(name = "slot", nullable = false)
+    private Integer slot;
+
+    @Column(name = "available", nullable = false)
+    private Integer available;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private Integer bookId;
+        private Integer slot;
+    }
+}
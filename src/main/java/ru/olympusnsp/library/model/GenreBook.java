@@ -11,7 +11,8 @@ import org.hibernate.annotations.ColumnDefault;
 @Table(name = "genre_book")
 public class GenreBook {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "genre_book_id_gen")
+    @SequenceGenerator(name = "genre_book_id_gen", sequenceName = "genre_book_id_seq", allocationSize = 50)
     @ColumnDefault("nextval('genre_book_id_seq')")
     @Column(name = "id", nullable = false)
     private Long id;
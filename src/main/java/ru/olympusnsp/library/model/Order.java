@@ -19,7 +19,8 @@ import java.util.Set;
 @Builder
 public class Order {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order__id_gen")
+    @SequenceGenerator(name = "order__id_gen", sequenceName = "order__id_seq", allocationSize = 50)
     @Column(name = "id", nullable = false)
     private Long id;
 
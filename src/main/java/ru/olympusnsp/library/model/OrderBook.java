@@ -19,7 +19,10 @@ import java.time.LocalDate;
 @AllArgsConstructor
 public class OrderBook {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Идентификаторы из последовательности пачками по 50 (pooled), вставки уходят пакетами JDBC.
+    // С IDENTITY Hibernate выполняет каждую вставку сразу, чтобы получить id, и пакетная вставка отключается
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_book_id_gen")
+    @SequenceGenerator(name = "order_book_id_gen", sequenceName = "order_book_id_seq", allocationSize = 50)
     @Column(name = "id", nullable = false)
     private Long id;
 
@@ -47,6 +50,10 @@ public class OrderBook {
     @JoinColumn(name = "book_id", nullable = false)
     private Book book;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     public enum OrderBookStatus{
         CREATED, PREPARED, RENTED, RETURNED, LOSSLIBRARY, LOSSUSER, CANCELLED
     }
@@ -0,0 +1,26 @@
+package ru.olympusnsp.library.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Номер последней записи журнала StockLedger, изменения которой записаны в таблицу book.
+ * Единственная строка, обновляется в одной транзакции с изменениями счетчиков
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "stock_ledger_checkpoint")
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockLedgerCheckpoint {
+
+    public static final Integer ID = 1;
+
+    @Id
+    @Column(name = "id", nullable = false)
+    private Integer id;
+
+    @Column(name = "seq", nullable = false)
+    private Long seq;
+}
@@ -9,6 +9,7 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -58,6 +59,18 @@ public class User implements UserDetails {
     @Enumerated(EnumType.STRING)
     private Role role;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    /**
+     * Время последнего изменения statusBlock, по нему BlockedUserRegistry забирает из базы только изменения
+     */
+    @NotNull
+    @Column(name = "block_changed_at", nullable = false)
+    @Builder.Default
+    private LocalDateTime blockChangedAt = LocalDateTime.now();
+
     @Override
     public boolean isAccountNonExpired() {
         return true;
@@ -7,10 +7,13 @@ import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
 import ru.olympusnsp.library.model.Author;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface AuthorRepository extends PagingAndSortingRepository<Author, Integer>, CrudRepository<Author,Integer> {
     Optional<Author> findByFullname(String fullname);
+    List<Author> findAllByFullnameIn(Collection<String> fullnames);
     Page<Author> findAllByFullnameStartsWith(String fullname, Pageable pageable);
 }
@@ -0,0 +1,12 @@
+package ru.olympusnsp.library.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Состояние блокировки пользователя и время его изменения
+ */
+public interface BlockChange {
+    Integer getId();
+    Boolean getStatusBlock();
+    LocalDateTime getBlockChangedAt();
+}
@@ -0,0 +1,9 @@
+package ru.olympusnsp.library.repository;
+
+/**
+ * Проекция: автор книги
+ */
+public interface BookAuthorName {
+    Integer getBookId();
+    String getFullname();
+}
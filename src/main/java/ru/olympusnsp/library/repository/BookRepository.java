@@ -2,6 +2,9 @@ package ru.olympusnsp.library.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.PagingAndSortingRepository;
@@ -9,16 +12,155 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.olympusnsp.library.model.Book;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface BookRepository extends PagingAndSortingRepository<Book, Integer>, CrudRepository<Book, Integer> {
     Page<Book> findAllByTitleContaining(String title, Pageable pageable);
+
+    /**
+     * Суммы счетчиков каталога, доступные экземпляры - вместе с ячейками популярных книг
+     */
+    @Query("select coalesce(sum(b.available), 0) + (select coalesce(sum(s.available), 0) from BookStockSlot s) as available, " +
+            "coalesce(sum(b.reserve), 0) as reserve, coalesce(sum(b.count), 0) as count from Book b")
+    BookStockTotals sumStock();
+
+    /**
+     * Книга с авторами одним запросом, жанры - вторым
+     */
+    @Override
+    @EntityGraph(Book.WITH_AUTHORS)
+    Optional<Book> findById(Integer id);
+
+    /**
+     * Доступные экземпляры с блокировкой строки книги, для перераспределения по ячейкам.
+     * Читается столбец, а не сущность: сущность в контексте транзакции может быть загружена раньше и устареть
+     *
+     * @return доступные экземпляры, null - книги нет
+     */
+    @Query(value = "SELECT b.available FROM book b WHERE b.id = :id FOR UPDATE", nativeQuery = true)
+    Integer findAvailableForUpdate(@Param("id") Integer id);
+
+    /**
+     * Счетчики одной книги, без загрузки сущности
+     */
+    @Query("select b.available as available, b.reserve as reserve, b.count as count from Book b where b.id = :id")
+    Optional<BookStock> findStockById(@Param("id") Integer id);
+
+    /**
+     * Страница каталога, только столбцы книги
+     */
+    Page<BookRow> findRowsBy(Pageable pageable);
+
+    /**
+     * Авторы нескольких книг одним запросом
+     */
     @Query("""
-    SELECT b 
+    SELECT b.id AS bookId, a.fullname AS fullname
+    FROM Book b
+    JOIN b.authors a
+    WHERE b.id IN :ids
+    ORDER BY a.id
+""")
+    List<BookAuthorName> findAuthorNames(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Поиск по части названия без учета регистра, по убыванию похожести (pg_trgm).
+     * ILIKE и similarity обслуживаются GIN индексом idx_book_title_trgm, без полного просмотра таблицы
+     *
+     * @param pattern шаблон ILIKE, спецсимволы строки поиска экранированы
+     * @param title строка поиска
+     */
+    @Query(value = """
+    SELECT b.id AS id, b.title AS title, b.year AS year, b.description AS description, b.available AS available
+    FROM book b
+    WHERE b.title ILIKE :pattern
+    ORDER BY similarity(b.title, :title) DESC, b.id
+""",
+            countQuery = "SELECT count(*) FROM book b WHERE b.title ILIKE :pattern",
+            nativeQuery = true)
+    Page<BookRow> searchByTitle(@Param("pattern") String pattern, @Param("title") String title, Pageable pageable);
+    @Query(value = """
+    SELECT b.id AS id, b.title AS title, b.year AS year, b.description AS description, b.available AS available
     FROM Book b
     JOIN GenreBook gb ON gb.book.id = b.id
     WHERE gb.genre.id = :genreId
+""",
+            countQuery = "SELECT count(b) FROM Book b JOIN GenreBook gb ON gb.book.id = b.id WHERE gb.genre.id = :genreId")
+    Page<BookRow> findBooksByGenreId(@Param("genreId") Integer genreId,Pageable pageable);
+
+    /**
+     * Курсорная выдача книг: WHERE id > :lastId ORDER BY id LIMIT n, без COUNT и OFFSET.
+     * Без графа загрузки: выборка коллекции вместе с LIMIT отрезала бы страницу в памяти,
+     * авторы и жанры порции догружаются пачками (@BatchSize)
+     */
+    Slice<Book> findByIdGreaterThanOrderByIdAsc(Integer lastId, Pageable pageable);
+
+    /**
+     * Курсорная выдача книг, только столбцы книги
+     */
+    Slice<BookRow> findRowsByIdGreaterThanOrderByIdAsc(Integer lastId, Pageable pageable);
+
+    /**
+     * Курсорная выдача книг по совпадению с названием без учета регистра, как в searchByTitle.
+     * ILIKE обслуживается GIN индексом idx_book_title_trgm
+     *
+     * @param pattern шаблон ILIKE, спецсимволы строки поиска экранированы
+     * @param lastId идентификатор последней выданной книги
+     */
+    @Query(value = """
+    SELECT b.id AS id, b.title AS title, b.year AS year, b.description AS description, b.available AS available
+    FROM book b
+    WHERE b.title ILIKE :pattern AND b.id > :lastId
+    ORDER BY b.id
+""",
+            nativeQuery = true)
+    Slice<BookRow> searchByTitleAfter(@Param("pattern") String pattern, @Param("lastId") Integer lastId, Pageable pageable);
+
+    /**
+     * Курсорная выдача книг с заданным жанром
+     */
+    @Query("""
+    SELECT b.id AS id, b.title AS title, b.year AS year, b.description AS description, b.available AS available
+    FROM Book b
+    JOIN GenreBook gb ON gb.book.id = b.id
+    WHERE gb.genre.id = :genreId AND b.id > :lastId
+    ORDER BY b.id
 """)
-    Page<Book> findBooksByGenreId(@Param("genreId") Integer genreId,Pageable pageable);
+    Slice<BookRow> findBooksByGenreIdAfter(@Param("genreId") Integer genreId, @Param("lastId") Integer lastId, Pageable pageable);
+
+    /**
+     * Загрузка книг с авторами одним запросом
+     */
+    @EntityGraph(Book.WITH_AUTHORS)
+    @Query("SELECT b FROM Book b WHERE b.id IN :ids ORDER BY b.id")
+    List<Book> findAllByIdIn(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Атомарное списание доступных экземпляров, только если их хватает.
+     * Версия увеличивается, чтобы параллельная запись загруженной сущности получила конфликт, а не затерла счетчик
+     *
+     * @return количество измененных строк, 0 - книги недостаточно
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Book b SET b.available = b.available - :amount, b.version = b.version + 1 WHERE b.id = :id AND b.available >= :amount")
+    int decrementAvailable(@Param("id") Integer id, @Param("amount") int amount);
+
+    /**
+     * Атомарный перевод одного доступного экземпляра в резерв
+     *
+     * @return количество измененных строк, 0 - доступных экземпляров нет
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Book b SET b.available = b.available - 1, b.reserve = b.reserve + 1, b.version = b.version + 1 WHERE b.id = :id AND b.available > 0")
+    int reserveAvailable(@Param("id") Integer id);
+
+    /**
+     * Изменение счетчиков книги на заданные величины одним UPDATE, без чтения книги
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Book b SET b.available = b.available + :available, b.reserve = b.reserve + :reserve, b.count = b.count + :count, b.version = b.version + 1 WHERE b.id = :id")
+    int applyStockDelta(@Param("id") Integer id, @Param("available") int available, @Param("reserve") int reserve, @Param("count") int count);
 }
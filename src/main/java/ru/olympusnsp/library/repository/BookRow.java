@@ -0,0 +1,12 @@
+package ru.olympusnsp.library.repository;
+
+/**
+ * Проекция книги для списков каталога: только столбцы таблицы book, без сущности и ленивых коллекций
+ */
+public interface BookRow {
+    Integer getId();
+    String getTitle();
+    Short getYear();
+    String getDescription();
+    Integer getAvailable();
+}
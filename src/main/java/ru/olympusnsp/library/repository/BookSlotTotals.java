@@ -0,0 +1,10 @@
+package ru.olympusnsp.library.repository;
+
+/**
+ * Количество ячеек и сумма доступных экземпляров в ячейках книги
+ */
+public interface BookSlotTotals {
+    Integer getBookId();
+    Long getSlots();
+    Long getAvailable();
+}
@@ -0,0 +1,10 @@
+package ru.olympusnsp.library.repository;
+
+/**
+ * Счетчики экземпляров одной книги
+ */
+public interface BookStock {
+    Integer getAvailable();
+    Integer getReserve();
+    Integer getCount();
+}
@@ -0,0 +1,52 @@
+package ru.olympusnsp.library.repository;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.olympusnsp.library.model.BookStockSlot;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface BookStockSlotRepository extends CrudRepository<BookStockSlot, BookStockSlot.Key> {
+
+    /**
+     * Атомарное списание из одной ячейки, только если в ней хватает экземпляров
+     *
+     * @return количество измененных строк, 0 - в ячейке недостаточно экземпляров
+     */
+    @Modifying
+    @Query("UPDATE BookStockSlot s SET s.available = s.available - :amount WHERE s.bookId = :bookId AND s.slot = :slot AND s.available >= :amount")
+    int take(@Param("bookId") Integer bookId, @Param("slot") int slot, @Param("amount") int amount);
+
+    /**
+     * Возврат экземпляров в ячейку
+     */
+    @Modifying
+    @Query("UPDATE BookStockSlot s SET s.available = s.available + :amount WHERE s.bookId = :bookId AND s.slot = :slot")
+    int put(@Param("bookId") Integer bookId, @Param("slot") int slot, @Param("amount") int amount);
+
+    /**
+     * Ячейки книги с блокировкой строк, по возрастанию номера - параллельные перераспределения не попадают в deadlock
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM BookStockSlot s WHERE s.bookId = :bookId ORDER BY s.slot")
+    List<BookStockSlot> findAllForUpdate(@Param("bookId") Integer bookId);
+
+    @Query("SELECT s.bookId AS bookId, count(s) AS slots, coalesce(sum(s.available), 0) AS available " +
+            "FROM BookStockSlot s WHERE s.bookId IN :ids GROUP BY s.bookId")
+    List<BookSlotTotals> sumByBookIdIn(@Param("ids") Collection<Integer> ids);
+
+    @Query("SELECT s.bookId AS bookId, count(s) AS slots, coalesce(sum(s.available), 0) AS available " +
+            "FROM BookStockSlot s GROUP BY s.bookId")
+    List<BookSlotTotals> sumByBook();
+
+    @Modifying
+    @Query("DELETE FROM BookStockSlot s WHERE s.bookId = :bookId")
+    int deleteAllByBookId(@Param("bookId") Integer bookId);
+}
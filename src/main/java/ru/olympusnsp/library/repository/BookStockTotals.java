@@ -0,0 +1,10 @@
+package ru.olympusnsp.library.repository;
+
+/**
+ * Суммарные счетчики экземпляров по всему каталогу
+ */
+public interface BookStockTotals {
+    Long getAvailable();
+    Long getReserve();
+    Long getCount();
+}
@@ -4,9 +4,11 @@ import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 import ru.olympusnsp.library.model.Genre;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface GenreRepository extends CrudRepository<Genre, Integer> {
     List<Genre> findAll();
+    List<Genre> findAllByTextIn(Collection<String> texts);
 }
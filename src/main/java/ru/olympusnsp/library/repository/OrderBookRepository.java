@@ -1,10 +1,26 @@
 package ru.olympusnsp.library.repository;
 
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import ru.olympusnsp.library.model.Author;
 import ru.olympusnsp.library.model.OrderBook;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface OrderBookRepository extends PagingAndSortingRepository<OrderBook, Long>, CrudRepository<OrderBook,Long> {
 
+    /**
+     * Загрузка заказанных книг вместе с заказом одним запросом.
+     * Книга и пользователь остаются ленивыми ссылками, для set-based изменений нужны только их id
+     */
+    @Query("""
+    SELECT ob
+    FROM OrderBook ob
+    JOIN FETCH ob.order
+    WHERE ob.id IN :ids
+""")
+    List<OrderBook> findAllWithOrderByIdIn(@Param("ids") Collection<Long> ids);
 }
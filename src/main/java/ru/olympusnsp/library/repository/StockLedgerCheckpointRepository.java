@@ -0,0 +1,9 @@
+package ru.olympusnsp.library.repository;
+
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+import ru.olympusnsp.library.model.StockLedgerCheckpoint;
+
+@Repository
+public interface StockLedgerCheckpointRepository extends CrudRepository<StockLedgerCheckpoint, Integer> {
+}
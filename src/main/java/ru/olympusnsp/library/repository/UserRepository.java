@@ -1,13 +1,75 @@
 package ru.olympusnsp.library.repository;
 
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.olympusnsp.library.model.User;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends CrudRepository<User, Integer> {
     User findByUsername(String username);
     Optional<User> findById(Integer id);
+
+    /**
+     * Заблокированные пользователи
+     */
+    @Query("SELECT u.id AS id, u.statusBlock AS statusBlock, u.blockChangedAt AS blockChangedAt FROM User u WHERE u.statusBlock = true")
+    List<BlockChange> findBlocked();
+
+    /**
+     * Пользователи, у которых блокировка менялась позже since (индекс idx_user_block_changed_at)
+     */
+    @Query("SELECT u.id AS id, u.statusBlock AS statusBlock, u.blockChangedAt AS blockChangedAt FROM User u " +
+            "WHERE u.blockChangedAt > :since")
+    List<BlockChange> findBlockChangedSince(@Param("since") LocalDateTime since);
+
+    /**
+     * Время последнего изменения блокировки среди всех пользователей
+     */
+    @Query("SELECT max(u.blockChangedAt) FROM User u")
+    LocalDateTime findLastBlockChange();
+
+    /**
+     * Изменение количества выданных пользователю книг одним UPDATE, без чтения пользователя
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE User u SET u.bookRented = u.bookRented + :delta, u.version = u.version + 1 WHERE u.id = :id")
+    int addBookRented(@Param("id") Integer id, @Param("delta") int delta);
+
+    /**
+     * Выдача книг одним условным UPDATE: счетчик увеличивается, только если не превысит предел.
+     * Проверка и изменение идут в одном операторе, параллельные заказы одного пользователя не обходят лимит
+     *
+     * @return 1 - счетчик увеличен, 0 - лимит превышен или пользователь не найден
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE User u SET u.bookRented = u.bookRented + :delta, u.version = u.version + 1 " +
+            "WHERE u.id = :id AND u.bookRented + :delta <= :max")
+    int addBookRentedUpTo(@Param("id") Integer id, @Param("delta") int delta, @Param("max") int max);
+
+    /**
+     * Нарушение и блокировка одним UPDATE, без чтения пользователя: количество нарушений всегда увеличивается,
+     * пользователь блокируется, если нарушений стало не меньше maxViolations
+     *
+     * @return количество измененных строк, 0 - пользователь не найден
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE User u SET u.violations = u.violations + 1, " +
+            "u.statusBlock = CASE WHEN u.violations + 1 >= :maxViolations THEN true ELSE u.statusBlock END, " +
+            "u.blockChangedAt = CASE WHEN u.statusBlock = false AND u.violations + 1 >= :maxViolations " +
+            "THEN CURRENT_TIMESTAMP ELSE u.blockChangedAt END, " +
+            "u.version = u.version + 1 WHERE u.id = :id")
+    int addViolation(@Param("id") Integer id, @Param("maxViolations") int maxViolations);
+
+    /**
+     * Состояние блокировки пользователя
+     */
+    @Query("SELECT u.statusBlock FROM User u WHERE u.id = :id")
+    Boolean findStatusBlockById(@Param("id") Integer id);
 }
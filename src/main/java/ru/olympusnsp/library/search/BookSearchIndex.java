@@ -0,0 +1,332 @@
+package ru.olympusnsp.library.search;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.olympusnsp.library.model.Author;
+import ru.olympusnsp.library.model.Book;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Поиск по каталогу в памяти процесса, без обращения к базе.
+ * Название, описание и авторы книги разбиваются на термины, для каждого термина хранится сжатый список книг (PostingList).
+ * Ранжирование - BM25, последний термин запроса ищется и как префикс, для терминов без точного совпадения
+ * допускаются опечатки (расстояние Дамерау-Левенштейна 1, для длинных слов 2).
+ * Включается настройкой setting.search.index.enabled=true
+ */
+@Component
+@ConditionalOnProperty(name = "setting.search.index.enabled", havingValue = "true")
+public class BookSearchIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // Вес вхождения термина в зависимости от поля
+    private static final int TITLE_BOOST = 3;
+    private static final int AUTHOR_BOOST = 2;
+    private static final int DESCRIPTION_BOOST = 1;
+
+    private static final double PREFIX_WEIGHT = 0.8;
+    private static final double ONE_TYPO_WEIGHT = 0.6;
+    private static final double TWO_TYPOS_WEIGHT = 0.4;
+    private static final int MAX_PREFIX_EXPANSIONS = 50;
+    private static final int MIN_TYPO_LENGTH = 4;
+    private static final int TWO_TYPOS_LENGTH = 8;
+
+    /**
+     * Индексируемые поля книги
+     */
+    public record Document(Integer id, String title, String description, List<String> authors) {
+
+        public static Document of(Book book) {
+            var authors = new ArrayList<String>();
+            if (book.getAuthors() != null) {
+                for (Author author : book.getAuthors()) {
+                    authors.add(author.getFullname());
+                }
+            }
+            return new Document(book.getId(), book.getTitle(), book.getDescription(), authors);
+        }
+    }
+
+    /**
+     * Результат поиска
+     */
+    public record Hit(Integer id, String title, List<String> authors, double score) {
+    }
+
+    private record Indexed(Document document, int length, Map<String, Integer> frequencies) {
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private TreeMap<String, PostingList> postings = new TreeMap<>();
+    private Map<Integer, Indexed> documents = new HashMap<>();
+    private long totalLength;
+
+    /**
+     * Полное перестроение индекса, списки вхождений сжимаются один раз.
+     * До окончания перестроения поиск работает по прежнему индексу
+     */
+    public void rebuild(Collection<Document> source) {
+        var sorted = new ArrayList<>(source);
+        sorted.sort(Comparator.comparing(Document::id));
+        var newDocuments = new HashMap<Integer, Indexed>();
+        var builders = new HashMap<String, int[][]>();
+        var sizes = new HashMap<String, Integer>();
+        long newTotalLength = 0;
+        for (Document document : sorted) {
+            var indexed = analyze(document);
+            newDocuments.put(document.id(), indexed);
+            newTotalLength += indexed.length();
+            for (var entry : indexed.frequencies().entrySet()) {
+                int size = sizes.getOrDefault(entry.getKey(), 0);
+                var arrays = builders.computeIfAbsent(entry.getKey(), k -> new int[2][4]);
+                if (size == arrays[0].length) {
+                    arrays[0] = Arrays.copyOf(arrays[0], size * 2);
+                    arrays[1] = Arrays.copyOf(arrays[1], size * 2);
+                }
+                arrays[0][size] = document.id();
+                arrays[1][size] = entry.getValue();
+                sizes.put(entry.getKey(), size + 1);
+            }
+        }
+        var newPostings = new TreeMap<String, PostingList>();
+        builders.forEach((term, arrays) -> newPostings.put(term, PostingList.encode(arrays[0], arrays[1], sizes.get(term))));
+
+        lock.writeLock().lock();
+        try {
+            postings = newPostings;
+            documents = newDocuments;
+            totalLength = newTotalLength;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Добавление или замена книги в индексе
+     */
+    public void index(Document document) {
+        var indexed = analyze(document);
+        lock.writeLock().lock();
+        try {
+            var previous = documents.get(document.id());
+            if (previous != null && previous.document().equals(document)) {
+                return;
+            }
+            removeLocked(document.id());
+            documents.put(document.id(), indexed);
+            totalLength += indexed.length();
+            for (var entry : indexed.frequencies().entrySet()) {
+                var list = postings.getOrDefault(entry.getKey(), PostingList.EMPTY);
+                postings.put(entry.getKey(), list.with(document.id(), entry.getValue()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Удаление книги из индекса
+     */
+    public void remove(Integer id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Проверка, что книга проиндексирована с такими названием и описанием
+     */
+    public boolean isIndexed(Integer id, String title, String description) {
+        lock.readLock().lock();
+        try {
+            var indexed = documents.get(id);
+            return indexed != null
+                    && Objects.equals(indexed.document().title(), title)
+                    && Objects.equals(indexed.document().description(), description);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Количество книг в индексе
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Поиск книг, содержащих все термины запроса (с учетом префикса и опечаток)
+     *
+     * @param query строка запроса
+     * @param limit максимальное количество результатов
+     * @return книги по убыванию релевантности
+     */
+    public List<Hit> search(String query, int limit) {
+        var tokens = new ArrayList<>(new LinkedHashSet<>(Tokenizer.tokenize(query)));
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            if (documents.isEmpty()) {
+                return List.of();
+            }
+            double averageLength = (double) totalLength / documents.size();
+            Map<Integer, Double> scores = null;
+            for (int i = 0; i < tokens.size(); i++) {
+                var tokenScores = scoreToken(tokens.get(i), i == tokens.size() - 1, averageLength);
+                if (scores == null) {
+                    scores = tokenScores;
+                } else {
+                    scores.keySet().retainAll(tokenScores.keySet());
+                    scores.replaceAll((id, score) -> score + tokenScores.get(id));
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+            var ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort(Map.Entry.<Integer, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+            var hits = new ArrayList<Hit>(Math.min(limit, ranked.size()));
+            for (var entry : ranked.subList(0, Math.min(limit, ranked.size()))) {
+                var document = documents.get(entry.getKey()).document();
+                hits.add(new Hit(document.id(), document.title(), document.authors(), entry.getValue()));
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Оценка книг по одному термину запроса: лучшая из оценок точного совпадения, префикса и опечатки
+     */
+    private Map<Integer, Double> scoreToken(String token, boolean prefix, double averageLength) {
+        var scores = new HashMap<Integer, Double>();
+        for (var expansion : expand(token, prefix).entrySet()) {
+            var list = postings.get(expansion.getKey());
+            double idf = Math.log(1 + (documents.size() - list.size() + 0.5) / (list.size() + 0.5));
+            double weight = expansion.getValue() * idf;
+            list.forEach((docId, frequency) -> {
+                double norm = K1 * (1 - B + B * documents.get(docId).length() / averageLength);
+                double score = weight * frequency * (K1 + 1) / (frequency + norm);
+                scores.merge(docId, score, Math::max);
+            });
+        }
+        return scores;
+    }
+
+    /**
+     * Термины индекса, подходящие под термин запроса, с весом совпадения
+     */
+    private Map<String, Double> expand(String token, boolean prefix) {
+        var terms = new HashMap<String, Double>();
+        if (postings.containsKey(token)) {
+            terms.put(token, 1.0);
+        }
+        if (prefix) {
+            int added = 0;
+            for (String term : postings.subMap(token, false, token + Character.MAX_VALUE, false).keySet()) {
+                if (added++ == MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+                terms.putIfAbsent(term, PREFIX_WEIGHT);
+            }
+        }
+        if (terms.isEmpty() && token.length() >= MIN_TYPO_LENGTH) {
+            int maxEdits = token.length() >= TWO_TYPOS_LENGTH ? 2 : 1;
+            for (String term : postings.keySet()) {
+                if (Math.abs(term.length() - token.length()) > maxEdits) {
+                    continue;
+                }
+                int distance = distance(token, term, maxEdits);
+                if (distance <= maxEdits) {
+                    terms.put(term, distance == 1 ? ONE_TYPO_WEIGHT : TWO_TYPOS_WEIGHT);
+                }
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Расстояние Дамерау-Левенштейна (перестановка соседних символов - одна ошибка).
+     * Если расстояние больше max, возвращается max + 1 без полного подсчета
+     */
+    static int distance(String a, String b, int max) {
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    current[j] = Math.min(current[j], previous2[j - 2] + 1);
+                }
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = previous2;
+            previous2 = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    private void removeLocked(Integer id) {
+        var previous = documents.remove(id);
+        if (previous == null) {
+            return;
+        }
+        totalLength -= previous.length();
+        for (String term : previous.frequencies().keySet()) {
+            var list = postings.get(term).without(id);
+            if (list.size() == 0) {
+                postings.remove(term);
+            } else {
+                postings.put(term, list);
+            }
+        }
+    }
+
+    private static Indexed analyze(Document document) {
+        var frequencies = new HashMap<String, Integer>();
+        int length = 0;
+        length += addTokens(frequencies, document.title(), TITLE_BOOST);
+        length += addTokens(frequencies, document.description(), DESCRIPTION_BOOST);
+        if (document.authors() != null) {
+            for (String author : document.authors()) {
+                length += addTokens(frequencies, author, AUTHOR_BOOST);
+            }
+        }
+        return new Indexed(document, length, frequencies);
+    }
+
+    private static int addTokens(Map<String, Integer> frequencies, String text, int boost) {
+        var tokens = Tokenizer.tokenize(text);
+        for (String token : tokens) {
+            frequencies.merge(token, boost, Integer::sum);
+        }
+        return tokens.size() * boost;
+    }
+}
@@ -0,0 +1,55 @@
+package ru.olympusnsp.library.search;
+
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import ru.olympusnsp.library.model.Book;
+import ru.olympusnsp.library.repository.BookRepository;
+
+import java.util.ArrayList;
+
+/**
+ * Полное построение поискового индекса при старте приложения.
+ * Каталог читается порциями по возрастанию id, без OFFSET
+ */
+@Component
+@ConditionalOnProperty(name = "setting.search.index.enabled", havingValue = "true")
+public class BookSearchIndexLoader {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final BookSearchIndex searchIndex;
+    private final BookRepository bookRepository;
+
+    Logger logger = LoggerFactory.getLogger(BookSearchIndexLoader.class);
+
+    public BookSearchIndexLoader(BookSearchIndex searchIndex, BookRepository bookRepository) {
+        this.searchIndex = searchIndex;
+        this.bookRepository = bookRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void rebuild() {
+        long started = System.nanoTime();
+        var documents = new ArrayList<BookSearchIndex.Document>();
+        int lastId = 0;
+        while (true) {
+            var slice = bookRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.ofSize(BATCH_SIZE));
+            for (Book book : slice.getContent()) {
+                documents.add(BookSearchIndex.Document.of(book));
+                lastId = book.getId();
+            }
+            if (!slice.hasNext()) {
+                break;
+            }
+        }
+        searchIndex.rebuild(documents);
+        logger.info("Search index built: {} books in {} ms", documents.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+}
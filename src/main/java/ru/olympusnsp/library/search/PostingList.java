@@ -0,0 +1,140 @@
+package ru.olympusnsp.library.search;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Сжатый список вхождений термина: пары (идентификатор книги, частота) по возрастанию идентификатора.
+ * Идентификаторы хранятся разностями с предыдущим, разности и частоты - в формате varint,
+ * для плотных списков это 2-3 байта на книгу вместо 8.
+ * Список неизменяемый, изменение возвращает новый экземпляр
+ */
+final class PostingList {
+
+    static final PostingList EMPTY = new PostingList(new byte[0], 0);
+
+    private final byte[] data;
+    private final int size;
+
+    private PostingList(byte[] data, int size) {
+        this.data = data;
+        this.size = size;
+    }
+
+    /**
+     * Количество книг с термином
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Размер сжатых данных в байтах
+     */
+    int byteSize() {
+        return data.length;
+    }
+
+    /**
+     * Обход вхождений по возрастанию идентификатора
+     */
+    void forEach(PostingConsumer consumer) {
+        int position = 0;
+        int docId = 0;
+        for (int i = 0; i < size; i++) {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            docId += value;
+            int frequency = 0;
+            shift = 0;
+            do {
+                b = data[position++];
+                frequency |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            consumer.accept(docId, frequency);
+        }
+    }
+
+    /**
+     * Список с добавленной или замененной парой
+     */
+    PostingList with(int docId, int frequency) {
+        int[] docIds = new int[size + 1];
+        int[] frequencies = new int[size + 1];
+        int[] count = {0};
+        boolean[] inserted = {false};
+        forEach((id, tf) -> {
+            if (!inserted[0] && id >= docId) {
+                docIds[count[0]] = docId;
+                frequencies[count[0]++] = frequency;
+                inserted[0] = true;
+                if (id == docId) {
+                    return;
+                }
+            }
+            docIds[count[0]] = id;
+            frequencies[count[0]++] = tf;
+        });
+        if (!inserted[0]) {
+            docIds[count[0]] = docId;
+            frequencies[count[0]++] = frequency;
+        }
+        return encode(docIds, frequencies, count[0]);
+    }
+
+    /**
+     * Список без книги
+     */
+    PostingList without(int docId) {
+        int[] docIds = new int[size];
+        int[] frequencies = new int[size];
+        int[] count = {0};
+        forEach((id, tf) -> {
+            if (id != docId) {
+                docIds[count[0]] = id;
+                frequencies[count[0]++] = tf;
+            }
+        });
+        return count[0] == size ? this : encode(docIds, frequencies, count[0]);
+    }
+
+    /**
+     * Сжатие пар, идентификаторы должны быть упорядочены по возрастанию
+     */
+    static PostingList encode(int[] docIds, int[] frequencies, int count) {
+        if (count == 0) {
+            return EMPTY;
+        }
+        var out = new ByteArrayOutputStream(count * 3);
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            if (docIds[i] < previous || (i > 0 && docIds[i] == previous)) {
+                throw new IllegalArgumentException("Идентификаторы должны возрастать: " + Arrays.toString(docIds));
+            }
+            writeVarint(out, docIds[i] - previous);
+            writeVarint(out, frequencies[i]);
+            previous = docIds[i];
+        }
+        return new PostingList(out.toByteArray(), count);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    @FunctionalInterface
+    interface PostingConsumer {
+        void accept(int docId, int frequency);
+    }
+}
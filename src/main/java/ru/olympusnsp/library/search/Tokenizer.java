@@ -0,0 +1,36 @@
+package ru.olympusnsp.library.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Разбиение текста на термины: последовательности букв и цифр в нижнем регистре, ё приводится к е
+ */
+final class Tokenizer {
+
+    private Tokenizer() {
+    }
+
+    static List<String> tokenize(String text) {
+        var tokens = new ArrayList<String>();
+        if (text == null) {
+            return tokens;
+        }
+        var lower = text.toLowerCase(Locale.ROOT);
+        var current = new StringBuilder();
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                current.append(c == 'ё' ? 'е' : c);
+            } else if (!current.isEmpty()) {
+                tokens.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        if (!current.isEmpty()) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+}
@@ -4,8 +4,10 @@ import ru.olympusnsp.library.dto.JwtAuthenticationResponse;
 import ru.olympusnsp.library.dto.SignInRequest;
 import ru.olympusnsp.library.dto.SignUpRequest;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface AuthenticationService {
-    public JwtAuthenticationResponse signUp(SignUpRequest request);
-    public JwtAuthenticationResponse signIn(SignInRequest request);
+    public CompletableFuture<JwtAuthenticationResponse> signUp(SignUpRequest request);
+    public CompletableFuture<JwtAuthenticationResponse> signIn(SignInRequest request);
 }
 
@@ -4,7 +4,9 @@ import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import ru.olympusnsp.library.dto.JwtAuthenticationResponse;
@@ -14,6 +16,9 @@ import ru.olympusnsp.library.model.Role;
 import ru.olympusnsp.library.model.User;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 @Service
 public class AuthenticationServiceImpl implements AuthenticationService {
 
@@ -29,12 +34,35 @@ public class AuthenticationServiceImpl implements AuthenticationService {
     private AuthenticationManager authenticationManager;
 
     /**
-     * Регистрация пользователя
+     * Ограниченный пул хеширования паролей, см. PasswordEncoderConfiguration
+     */
+    @Autowired
+    @Qualifier("passwordHashExecutor")
+    private Executor passwordHashExecutor;
+
+    /**
+     * Регистрация пользователя, в пуле хеширования паролей
      *
      * @param request данные пользователя
      * @return токен
+     * @throws org.springframework.core.task.TaskRejectedException если пул перегружен
      */
-    public JwtAuthenticationResponse signUp(SignUpRequest request) {
+    public CompletableFuture<JwtAuthenticationResponse> signUp(SignUpRequest request) {
+        return CompletableFuture.supplyAsync(() -> register(request), passwordHashExecutor);
+    }
+
+    /**
+     * Аутентификация пользователя, в пуле хеширования паролей
+     *
+     * @param request данные пользователя
+     * @return токен
+     * @throws org.springframework.core.task.TaskRejectedException если пул перегружен
+     */
+    public CompletableFuture<JwtAuthenticationResponse> signIn(SignInRequest request) {
+        return CompletableFuture.supplyAsync(() -> authenticate(request), passwordHashExecutor);
+    }
+
+    private JwtAuthenticationResponse register(SignUpRequest request) {
 
         var user = new User();
         user.setUsername(request.getUsername());
@@ -51,27 +79,15 @@ public class AuthenticationServiceImpl implements AuthenticationService {
         return new JwtAuthenticationResponse(jwt);
     }
 
-    /**
-     * Аутентификация пользователя
-     *
-     * @param request данные пользователя
-     * @return токен
-     */
-    public JwtAuthenticationResponse signIn(SignInRequest request) {
-        logger.info("Authentication000");
-        logger.info(request.getUsername());
-        logger.info(request.getPassword());
-        authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(
+    private JwtAuthenticationResponse authenticate(SignInRequest request) {
+        var authentication = authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(
                 request.getUsername(),
                 request.getPassword()
         ));
-        logger.info("Authentication111");
-        var user = userService
-                .userDetailsService()
-                .loadUserByUsername(request.getUsername());
-        logger.info("AUthentification222");
+        // Пользователь уже загружен при проверке пароля
+        var user = (UserDetails) authentication.getPrincipal();
         var jwt = jwtService.generateToken(user);
-        logger.info("AUthentification333");
+        logger.debug("Пользователь {} вошел", user.getUsername());
         return new JwtAuthenticationResponse(jwt);
     }
 }
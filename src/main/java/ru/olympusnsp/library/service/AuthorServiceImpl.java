@@ -1,9 +1,13 @@
 package ru.olympusnsp.library.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import ru.olympusnsp.library.configuration.CacheConfiguration;
 import ru.olympusnsp.library.exeption.NotFoundEntity;
 import ru.olympusnsp.library.model.Author;
 import ru.olympusnsp.library.repository.AuthorRepository;
@@ -42,11 +46,12 @@ public class AuthorServiceImpl implements AuthorService {
     }
 
     /**
-     * Поиск автора по id
+     * Поиск автора по id, через кэш
      *
      * @param id имя
      * @return страница с найденными авторами
      */
+    @Cacheable(cacheNames = CacheConfiguration.AUTHOR, key = "#id")
     public Author findById(Integer id){
         return authorRepository.findById(id).orElseThrow(() -> new NotFoundEntity("Author with id " + id.toString() + " not found"));
     }
@@ -62,11 +67,12 @@ public class AuthorServiceImpl implements AuthorService {
     }
 
     /**
-     * Сохрание автора
+     * Сохрание автора, с обновлением кэша
      *
      * @param author автор
      * @return возврат автора
      */
+    @CachePut(cacheNames = CacheConfiguration.AUTHOR, key = "#result.id")
     public Author save(Author author){
        return authorRepository.save(author);
     }
@@ -77,6 +83,7 @@ public class AuthorServiceImpl implements AuthorService {
      * @param id идентификатор автора
      * @return возврат автора
      */
+    @CacheEvict(cacheNames = CacheConfiguration.AUTHOR, key = "#id")
     public void deleteById(Integer id) {
         if (!authorRepository.existsById(id)) {
             throw new NotFoundEntity("Author with id " + id + " not found");
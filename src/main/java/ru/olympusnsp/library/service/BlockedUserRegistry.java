@@ -0,0 +1,114 @@
+package ru.olympusnsp.library.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.olympusnsp.library.repository.BlockChange;
+import ru.olympusnsp.library.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Идентификаторы заблокированных пользователей в памяти, для аутентификации по токену без чтения user_.
+ * Блокировка в этом экземпляре приложения применяется сразу после фиксации транзакции,
+ * блокировки и снятия блокировок из других экземпляров и из базы подтягиваются периодической сверкой.
+ * Сверка читает только пользователей, у которых block_changed_at позже последнего прочитанного изменения
+ * (с запасом setting.jwt.blocked-users.overlap-ms на транзакции, зафиксированные позже своего времени изменения)
+ */
+@Service
+public class BlockedUserRegistry {
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final UserRepository userRepository;
+    private final Set<Integer> blocked = ConcurrentHashMap.newKeySet();
+    // Номер каждой блокировки в этом экземпляре: сверка не снимает блокировку, отмеченную после ее запроса к базе
+    private final AtomicLong changes = new AtomicLong();
+    private final Map<Integer, Long> changedLocally = new ConcurrentHashMap<>();
+    // Время последнего прочитанного изменения, null - блокировки еще не загружены
+    private LocalDateTime lastChange;
+
+    @Value("${setting.jwt.blocked-users.overlap-ms}")
+    private long overlapMs;
+
+    Logger logger = LoggerFactory.getLogger(BlockedUserRegistry.class);
+
+    public BlockedUserRegistry(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Заблокирован ли пользователь
+     */
+    public boolean isBlocked(Integer userId) {
+        return blocked.contains(userId);
+    }
+
+    /**
+     * Отметка блокировки, при активной транзакции - после ее фиксации
+     */
+    public void block(Integer userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            add(userId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                add(userId);
+            }
+        });
+    }
+
+    /**
+     * Сверка с базой: при первом вызове загружаются все блокировки, далее - только изменения
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${setting.jwt.blocked-users.refresh-ms}",
+            fixedDelayString = "${setting.jwt.blocked-users.refresh-ms}")
+    public synchronized void refresh() {
+        long since = changes.get();
+        List<BlockChange> rows;
+        if (lastChange == null) {
+            // Отметка берется до чтения блокировок: изменения между запросами прочитает следующая сверка
+            var last = userRepository.findLastBlockChange();
+            rows = userRepository.findBlocked();
+            lastChange = last != null ? last : EPOCH;
+        } else {
+            rows = userRepository.findBlockChangedSince(lastChange.minusNanos(overlapMs * 1_000_000));
+        }
+        boolean changed = false;
+        for (BlockChange row : rows) {
+            if (row.getBlockChangedAt().isAfter(lastChange)) {
+                lastChange = row.getBlockChangedAt();
+            }
+            Long local = changedLocally.get(row.getId());
+            if (local != null && local > since) {
+                // Запрос мог прочитать строку до фиксации блокировки, ее состояние прочитает следующая сверка
+                continue;
+            }
+            changed |= row.getStatusBlock() ? blocked.add(row.getId()) : blocked.remove(row.getId());
+        }
+        changedLocally.values().removeIf(local -> local <= since);
+        if (changed) {
+            logger.info("Blocked users refreshed: {}", blocked.size());
+        }
+    }
+
+    private void add(Integer userId) {
+        // Номер записывается до добавления: сверка, проверившая номер раньше, снимет отметку до ее добавления
+        changedLocally.put(userId, changes.incrementAndGet());
+        blocked.add(userId);
+    }
+}
@@ -0,0 +1,52 @@
+package ru.olympusnsp.library.service;
+
+import ru.olympusnsp.library.exeption.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Непрозрачный токен продолжения для курсорной выдачи книг.
+ * Внутри - идентификатор последней выданной книги, клиент передает токен без изменений
+ */
+public final class BookCursor {
+
+    private static final String PREFIX = "b1:";
+
+    private BookCursor() {
+    }
+
+    /**
+     * Токен по идентификатору последней выданной книги
+     */
+    public static String encode(Integer lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Идентификатор последней выданной книги по токену
+     *
+     * @param token токен, null или пустая строка - начало выдачи
+     * @return идентификатор, 0 для начала выдачи
+     * @throws InvalidCursorException если токен поврежден
+     */
+    public static Integer decode(String token) {
+        if (token == null || token.isBlank()) {
+            return 0;
+        }
+        try {
+            var value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            if (!value.startsWith(PREFIX)) {
+                throw new InvalidCursorException("Invalid cursor");
+            }
+            int lastId = Integer.parseInt(value.substring(PREFIX.length()));
+            if (lastId < 0) {
+                throw new InvalidCursorException("Invalid cursor");
+            }
+            return lastId;
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package ru.olympusnsp.library.service;
+
+import ru.olympusnsp.library.dto.BookImportReport;
+import ru.olympusnsp.library.importer.BookImportFormat;
+
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+public interface BookImportService {
+
+    BookImportReport importBooks(InputStream input, BookImportFormat format, Consumer<BookImportReport> progress);
+
+    default BookImportReport importBooks(InputStream input, BookImportFormat format) {
+        return importBooks(input, format, report -> {
+        });
+    }
+}
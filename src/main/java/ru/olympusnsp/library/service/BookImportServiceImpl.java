@@ -0,0 +1,296 @@
+package ru.olympusnsp.library.service;
+
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.olympusnsp.library.configuration.CacheConfiguration;
+import ru.olympusnsp.library.dto.BookImportReport;
+import ru.olympusnsp.library.exeption.BookImportException;
+import ru.olympusnsp.library.importer.BookImportFormat;
+import ru.olympusnsp.library.importer.BookImportReader;
+import ru.olympusnsp.library.importer.BookImportRecord;
+import ru.olympusnsp.library.model.Author;
+import ru.olympusnsp.library.model.Book;
+import ru.olympusnsp.library.model.Genre;
+import ru.olympusnsp.library.repository.AuthorRepository;
+import ru.olympusnsp.library.repository.BookRepository;
+import ru.olympusnsp.library.repository.GenreRepository;
+import ru.olympusnsp.library.search.BookSearchIndex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Массовый импорт книг из CSV или NDJSON.
+ * Файл читается потоком, книги записываются порциями по setting.import.batch-size, каждая порция - отдельная транзакция.
+ * Идентификаторы книг и авторов берутся из пачки последовательности, поэтому вставки книг, авторов и связей
+ * уходят пакетами JDBC. Авторы и жанры ищутся по имени один раз на порцию, найденные и созданные
+ * запоминаются до конца импорта. Если порция не записалась, ее строки записываются по одной,
+ * чтобы ошибка одной строки не отменяла остальные
+ */
+@Service
+public class BookImportServiceImpl implements BookImportService {
+
+    private final BookRepository bookRepository;
+    private final AuthorRepository authorRepository;
+    private final GenreRepository genreRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+
+    @Value("${setting.import.batch-size}")
+    private Integer batchSize;
+
+    @Value("${setting.import.max-errors}")
+    private Integer maxErrors;
+
+    /**
+     * Поисковый индекс в памяти, null - если выключен (setting.search.index.enabled)
+     */
+    @Autowired(required = false)
+    private BookSearchIndex searchIndex;
+
+    Logger logger = LoggerFactory.getLogger(BookImportServiceImpl.class);
+
+    public BookImportServiceImpl(BookRepository bookRepository, AuthorRepository authorRepository, GenreRepository genreRepository,
+                                 PlatformTransactionManager transactionManager, Validator validator) {
+        this.bookRepository = bookRepository;
+        this.authorRepository = authorRepository;
+        this.genreRepository = genreRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+    }
+
+    /**
+     * Идентификаторы авторов и жанров по имени, созданные и найденные в базе
+     */
+    private record Names(Map<String, Integer> authors, Map<String, Integer> genres) {
+    }
+
+    /**
+     * Импорт книг из потока
+     *
+     * @param input    содержимое файла, UTF-8
+     * @param format   формат файла
+     * @param progress вызывается после записи каждой порции
+     * @return итог импорта с ошибками по строкам
+     */
+    @Override
+    @CacheEvict(cacheNames = CacheConfiguration.GENRES, allEntries = true)
+    public BookImportReport importBooks(InputStream input, BookImportFormat format, Consumer<BookImportReport> progress) {
+        long started = System.nanoTime();
+        var report = new BookImportReport(maxErrors);
+        var known = new Names(new HashMap<>(), new HashMap<>());
+        var chunk = new ArrayList<BookImportRecord>(batchSize);
+        try (var reader = BookImportReader.open(input, format)) {
+            BookImportRecord record;
+            while ((record = reader.next()) != null) {
+                report.addRead();
+                var error = record.getError() != null ? record.getError() : validate(record);
+                if (error != null) {
+                    report.addError(record.getLine(), error);
+                    continue;
+                }
+                chunk.add(record);
+                if (chunk.size() == batchSize) {
+                    write(chunk, known, report);
+                    chunk.clear();
+                    progress(report, progress);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                write(chunk, known, report);
+                progress(report, progress);
+            }
+        } catch (IOException e) {
+            throw new BookImportException("Ошибка чтения файла импорта после строки " + report.getRead(), e);
+        }
+        report.setElapsedMs((System.nanoTime() - started) / 1_000_000);
+        logger.info("Импорт книг завершен за {} мс: прочитано {}, импортировано {}, ошибок {}, новых авторов {}, новых жанров {}",
+                report.getElapsedMs(), report.getRead(), report.getImported(), report.getFailed(),
+                report.getAuthorsCreated(), report.getGenresCreated());
+        return report;
+    }
+
+    private void progress(BookImportReport report, Consumer<BookImportReport> progress) {
+        logger.info("Импорт книг: прочитано {}, импортировано {}, ошибок {}", report.getRead(), report.getImported(), report.getFailed());
+        progress.accept(report);
+    }
+
+    /**
+     * Запись порции; при ошибке порция откатывается и строки записываются по одной
+     */
+    private void write(List<BookImportRecord> chunk, Names known, BookImportReport report) {
+        var resolved = new Names(new HashMap<>(), new HashMap<>());
+        var created = new Names(new HashMap<>(), new HashMap<>());
+        List<Book> books;
+        try {
+            books = transactionTemplate.execute(status -> persist(chunk, known, resolved, created));
+        } catch (RuntimeException e) {
+            if (chunk.size() == 1) {
+                var message = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+                logger.warn("Импорт книг: строка {} не записана: {}", chunk.get(0).getLine(), message);
+                report.addError(chunk.get(0).getLine(), message);
+                return;
+            }
+            logger.warn("Импорт книг: порция из {} строк не записана, запись по одной строке", chunk.size());
+            for (BookImportRecord record : chunk) {
+                write(List.of(record), known, report);
+            }
+            return;
+        }
+        // В общий справочник попадают только имена из зафиксированной транзакции
+        known.authors().putAll(resolved.authors());
+        known.genres().putAll(resolved.genres());
+        report.addImported(books.size(), created.authors().size(), created.genres().size());
+        if (searchIndex != null) {
+            for (int i = 0; i < books.size(); i++) {
+                var book = books.get(i);
+                searchIndex.index(new BookSearchIndex.Document(book.getId(), book.getTitle(), book.getDescription(),
+                        distinct(chunk.get(i).getAuthors())));
+            }
+        }
+    }
+
+    private List<Book> persist(List<BookImportRecord> chunk, Names known, Names resolved, Names created) {
+        resolveAuthors(chunk, known.authors(), resolved.authors(), created.authors());
+        resolveGenres(chunk, known.genres(), resolved.genres(), created.genres());
+        // Авторы и жанры порции загружаются двумя запросами, книги ссылаются на них по id
+        var authors = new HashMap<Integer, Author>();
+        for (Author author : authorRepository.findAllById(ids(chunk, BookImportRecord::getAuthors, known.authors(), resolved.authors()))) {
+            authors.put(author.getId(), author);
+        }
+        var genres = new HashMap<Integer, Genre>();
+        for (Genre genre : genreRepository.findAllById(ids(chunk, BookImportRecord::getGenres, known.genres(), resolved.genres()))) {
+            genres.put(genre.getId(), genre);
+        }
+        var books = new ArrayList<Book>(chunk.size());
+        for (BookImportRecord record : chunk) {
+            var book = toBook(record);
+            var bookAuthors = new ArrayList<Author>();
+            for (String name : distinct(record.getAuthors())) {
+                bookAuthors.add(authors.get(id(name, known.authors(), resolved.authors())));
+            }
+            book.setAuthors(bookAuthors);
+            var bookGenres = new ArrayList<Genre>();
+            for (String name : distinct(record.getGenres())) {
+                bookGenres.add(genres.get(id(name, known.genres(), resolved.genres())));
+            }
+            book.setGenres(bookGenres);
+            books.add(book);
+        }
+        var saved = new ArrayList<Book>(books.size());
+        bookRepository.saveAll(books).forEach(saved::add);
+        return saved;
+    }
+
+    private void resolveAuthors(List<BookImportRecord> chunk, Map<String, Integer> known,
+                                Map<String, Integer> resolved, Map<String, Integer> created) {
+        var missing = missing(chunk.stream().map(BookImportRecord::getAuthors), known);
+        if (missing.isEmpty()) {
+            return;
+        }
+        for (Author author : authorRepository.findAllByFullnameIn(missing)) {
+            resolved.putIfAbsent(author.getFullname(), author.getId());
+        }
+        var newAuthors = new ArrayList<Author>();
+        for (String name : missing) {
+            if (!resolved.containsKey(name)) {
+                newAuthors.add(Author.builder().fullname(name).build());
+            }
+        }
+        for (Author author : authorRepository.saveAll(newAuthors)) {
+            resolved.put(author.getFullname(), author.getId());
+            created.put(author.getFullname(), author.getId());
+        }
+    }
+
+    private void resolveGenres(List<BookImportRecord> chunk, Map<String, Integer> known,
+                               Map<String, Integer> resolved, Map<String, Integer> created) {
+        var missing = missing(chunk.stream().map(BookImportRecord::getGenres), known);
+        if (missing.isEmpty()) {
+            return;
+        }
+        for (Genre genre : genreRepository.findAllByTextIn(missing)) {
+            resolved.putIfAbsent(genre.getText(), genre.getId());
+        }
+        for (String name : missing) {
+            if (!resolved.containsKey(name)) {
+                var genre = genreRepository.save(Genre.builder().text(name).build());
+                resolved.put(name, genre.getId());
+                created.put(name, genre.getId());
+            }
+        }
+    }
+
+    private static Set<String> missing(Stream<List<String>> names, Map<String, Integer> known) {
+        return names.filter(Objects::nonNull)
+                .flatMap(List::stream)
+                .filter(name -> !known.containsKey(name))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private static Set<Integer> ids(List<BookImportRecord> chunk, Function<BookImportRecord, List<String>> names,
+                                    Map<String, Integer> known, Map<String, Integer> resolved) {
+        var ids = new HashSet<Integer>();
+        for (BookImportRecord record : chunk) {
+            for (String name : distinct(names.apply(record))) {
+                ids.add(id(name, known, resolved));
+            }
+        }
+        return ids;
+    }
+
+    private static Integer id(String name, Map<String, Integer> known, Map<String, Integer> resolved) {
+        var id = known.get(name);
+        return id != null ? id : resolved.get(name);
+    }
+
+    private static List<String> distinct(List<String> names) {
+        return names == null ? List.of() : new ArrayList<>(new LinkedHashSet<>(names));
+    }
+
+    /**
+     * Проверка строки по ограничениям сущности Book
+     *
+     * @return текст ошибки или null, если строка корректна
+     */
+    private String validate(BookImportRecord record) {
+        if (record.getAuthors() == null || record.getAuthors().isEmpty()) {
+            return "Не указаны авторы";
+        }
+        if (record.getCount() != null && record.getCount() < 0) {
+            return "count: не может быть меньше 0";
+        }
+        var violations = validator.validate(toBook(record));
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private static Book toBook(BookImportRecord record) {
+        var book = new Book();
+        book.setTitle(record.getTitle());
+        book.setYear(record.getYear());
+        book.setDescription(record.getDescription());
+        book.setCount(record.getCount());
+        book.setAvailable(record.getCount());
+        book.setReserve(0);
+        return book;
+    }
+}
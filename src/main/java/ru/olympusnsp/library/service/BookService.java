@@ -2,21 +2,35 @@ package ru.olympusnsp.library.service;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import ru.olympusnsp.library.dto.BookCursorPage;
 import ru.olympusnsp.library.dto.BookSaving;
+import ru.olympusnsp.library.dto.BookSearchHit;
+import ru.olympusnsp.library.dto.BookSummary;
 import ru.olympusnsp.library.dto.BooksReturn;
 import ru.olympusnsp.library.model.Book;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface BookService {
-    Page<Book> findAll(Pageable pageable);
-    Page<Book> findAllByTitleContains(String title, Pageable pageable);
+    Page<BookSummary> findAll(Pageable pageable);
+    Page<BookSummary> findAllByTitleContains(String title, Pageable pageable);
     Book findById(Integer id);
+    Map<Integer, Book> findAllByIdIn(Collection<Integer> ids);
     Book save(BookSaving book);
     Book save(Book book);
     Boolean reserveBookById(Integer id);
+    Boolean decrementAvailable(Integer id, int amount);
+    void applyStockDelta(Integer id, int available, int reserve, int count);
+    void refreshStock(Book book);
+    void setStockSlots(Integer id, int slots);
     void deleteById(Integer id);
     void returnBook(BooksReturn booksReturn);
-    Page<Book> findAllWithGenreId(Integer genreId,Pageable pagable);
+    Page<BookSummary> findAllWithGenreId(Integer genreId,Pageable pagable);
+    BookCursorPage findAllAfter(String cursor, Integer size);
+    BookCursorPage findAllByTitleContainsAfter(String title, String cursor, Integer size);
+    BookCursorPage findAllWithGenreIdAfter(Integer genreId, String cursor, Integer size);
+    List<BookSearchHit> search(String query, Integer limit);
 }
@@ -1,15 +1,32 @@
 package ru.olympusnsp.library.service;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.olympusnsp.library.dto.BookCursorPage;
 import ru.olympusnsp.library.dto.BookSaving;
+import ru.olympusnsp.library.dto.BookSearchHit;
+import ru.olympusnsp.library.dto.BookSummary;
 import ru.olympusnsp.library.dto.BooksReturn;
 import ru.olympusnsp.library.exeption.NotFoundEntity;
+import ru.olympusnsp.library.exeption.StockSlotsDisabledException;
+import ru.olympusnsp.library.ledger.StockLedger;
 import ru.olympusnsp.library.model.*;
+import ru.olympusnsp.library.repository.BookAuthorName;
 import ru.olympusnsp.library.repository.BookRepository;
+import ru.olympusnsp.library.repository.BookRow;
+import ru.olympusnsp.library.search.BookSearchIndex;
 
 import java.sql.Array;
 import java.time.LocalDate;
@@ -29,6 +46,34 @@ public class BookServiceImpl implements BookService {
     @Value("${setting.max-violations}")
     private Integer maxViolations;
 
+    @Value("${setting.book.cursor.default-size}")
+    private Integer defaultCursorSize;
+
+    @Value("${setting.book.cursor.max-size}")
+    private Integer maxCursorSize;
+
+    /**
+     * Поисковый индекс в памяти, null - если выключен (setting.search.index.enabled)
+     */
+    @Autowired(required = false)
+    private BookSearchIndex searchIndex;
+
+    /**
+     * Ячейки доступных экземпляров популярных книг, null - если выключены (setting.stock.slots.enabled)
+     */
+    @Autowired(required = false)
+    private BookStockSlots stockSlots;
+
+    /**
+     * Счетчики экземпляров в памяти с отложенной записью в базу, null - если выключены (setting.stock.ledger.enabled).
+     * Если включены, ячейки не используются
+     */
+    @Autowired(required = false)
+    private StockLedger stockLedger;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     public BookServiceImpl(BookRepository bookRepository, AuthorService authorService, GenreService genreService, UserService userService) {
         this.bookRepository = bookRepository;
         this.authorService = authorService;
@@ -45,20 +90,30 @@ public class BookServiceImpl implements BookService {
      * @return страничная выдача книг
      */
     @Override
-    public Page<Book> findAll(Pageable pageable) {
-       return bookRepository.findAll(pageable);
+    public Page<BookSummary> findAll(Pageable pageable) {
+       return toSummaryPage(bookRepository.findRowsBy(pageable));
     }
 
     /**
-     * Поиск книги по названию, совпадение части строки
+     * Поиск книги по названию, совпадение части строки без учета регистра.
+     * Книги упорядочены по похожести названия на строку поиска, сортировка из запроса не применяется
      *
      * @param title строка поиска
      * @param pageable страница
      * @return страница книг
      */
     @Override
-    public Page<Book> findAllByTitleContains(String title, Pageable pageable) {
-        return bookRepository.findAllByTitleContaining(title, pageable);
+    public Page<BookSummary> findAllByTitleContains(String title, Pageable pageable) {
+        var page = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        return toSummaryPage(bookRepository.searchByTitle(containsPattern(title), title, page));
+    }
+
+    /**
+     * Шаблон LIKE '%title%' с экранированием спецсимволов LIKE
+     */
+    static String containsPattern(String title) {
+        var escaped = title.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return "%" + escaped + "%";
     }
 
     /**
@@ -70,7 +125,68 @@ public class BookServiceImpl implements BookService {
     @Override
     @Transactional
     public Book findById(Integer id) {
-        return bookRepository.findById(id).orElseThrow(()-> new NotFoundEntity("Book with id " + id.toString() + " not found"));
+        var book = bookRepository.findById(id).orElseThrow(()-> new NotFoundEntity("Book with id " + id.toString() + " not found"));
+        showStock(book);
+        return book;
+    }
+
+    /**
+     * Актуальные счетчики книги, загруженной в текущей транзакции, после applyStockDelta:
+     * UPDATE не меняет сущность в контексте, поэтому она перечитывается из базы
+     *
+     * @param book загруженная книга
+     */
+    @Transactional
+    @Override
+    public void refreshStock(Book book) {
+        entityManager.refresh(book);
+        showStock(book);
+    }
+
+    /**
+     * Счетчики из StockLedger или доступные вместе с ячейками. Сущность при этом отсоединяется,
+     * чтобы показанные значения не записались в book при flush
+     */
+    private void showStock(Book book) {
+        var id = book.getId();
+        var stock = stockLedger == null ? null : stockLedger.stock(id);
+        if (stock != null) {
+            detach(book);
+            book.setAvailable(stock.available());
+            book.setReserve(stock.reserve());
+        } else if (isStriped(id)) {
+            detach(book);
+            book.setAvailable(book.getAvailable() + stockSlots.available(List.of(id)).getOrDefault(id, 0));
+        }
+    }
+
+    private void detach(Book book) {
+        Hibernate.initialize(book.getAuthors());
+        Hibernate.initialize(book.getGenres());
+        entityManager.detach(book);
+    }
+
+    /**
+     * Загрузка нескольких книг одним запросом
+     *
+     * @param ids идентификаторы книг, допускаются повторы
+     * @return книги по идентификатору
+     * @throws NotFoundEntity если хотя бы одна книга не найдена
+     */
+    @Override
+    @Transactional
+    public Map<Integer, Book> findAllByIdIn(Collection<Integer> ids) {
+        var uniqueIds = new HashSet<>(ids);
+        var books = new HashMap<Integer, Book>();
+        for (Book book : bookRepository.findAllByIdIn(uniqueIds)) {
+            books.put(book.getId(), book);
+        }
+        for (Integer id : uniqueIds) {
+            if (!books.containsKey(id)) {
+                throw new NotFoundEntity("Book with id " + id + " not found");
+            }
+        }
+        return books;
     }
 
     /**
@@ -106,7 +222,9 @@ public class BookServiceImpl implements BookService {
         }
         bookWithID.setAuthors(list);
 
-        return bookRepository.save(bookWithID);
+        var saved = bookRepository.save(bookWithID);
+        updateSearchIndex(saved);
+        return saved;
     }
 
 
@@ -117,11 +235,17 @@ public class BookServiceImpl implements BookService {
      */
     @Transactional
     public Book save(Book book) {
-        return bookRepository.save(book);
+        var saved = bookRepository.save(book);
+        // Изменение счетчиков не меняет текст, авторы при этом не загружаются
+        if (searchIndex != null && !searchIndex.isIndexed(saved.getId(), saved.getTitle(), saved.getDescription())) {
+            updateSearchIndex(saved);
+        }
+        return saved;
     }
 
     /**
-     * Резервирование книги по id
+     * Резервирование книги по id, одним условным UPDATE без чтения книги
+     * (при включенном StockLedger - в памяти, в базу изменение записывается позже)
      *
      * @param id идентификтор книги
      * @return boolean, true - если резерв успешен
@@ -129,15 +253,93 @@ public class BookServiceImpl implements BookService {
     @Transactional
     @Override
     public Boolean reserveBookById(Integer id) {
-        Optional<Book> oBook = bookRepository.findById(id);
-        if(oBook.isPresent() && oBook.get().getAvailable()>0){
-            Book book = oBook.get();
-            book.setAvailable(book.getAvailable()-1);
-            book.setReserve(book.getReserve()+1);
-            bookRepository.save(book);
+        if (stockLedger != null) {
+            return stockLedger.reserve(id);
+        }
+        if (isStriped(id)) {
+            if (!stockSlots.take(id, 1)) {
+                return false;
+            }
+            bookRepository.applyStockDelta(id, 0, 1, 0);
+            return true;
+        }
+        return bookRepository.reserveAvailable(id) == 1;
+    }
+
+    /**
+     * Списание доступных экземпляров книги, одним условным UPDATE
+     * (при включенном StockLedger - в памяти, в базу изменение записывается позже)
+     *
+     * @param id идентификтор книги
+     * @param amount количество экземпляров
+     * @return true, если экземпляров хватило и они списаны
+     */
+    @Transactional
+    @Override
+    public Boolean decrementAvailable(Integer id, int amount) {
+        if (stockLedger != null) {
+            return stockLedger.take(id, amount);
+        }
+        if (isStriped(id)) {
+            return stockSlots.take(id, amount);
+        }
+        if (bookRepository.decrementAvailable(id, amount) == 1) {
             return true;
         }
-        return false;
+        // Ячейки могли завести на другом экземпляре приложения, проверяется только при нехватке экземпляров
+        return stockSlots != null && stockSlots.refresh(id) && stockSlots.take(id, amount);
+    }
+
+    /**
+     * Изменение счетчиков книги на заданные величины, одним UPDATE
+     *
+     * @param id идентификтор книги
+     * @param available изменение доступных экземпляров
+     * @param reserve изменение резерва
+     * @param count изменение общего количества
+     */
+    @Transactional
+    @Override
+    public void applyStockDelta(Integer id, int available, int reserve, int count) {
+        if (stockLedger != null) {
+            // Общее количество меняется редко и не участвует в проверке остатка, оно пишется в базу сразу
+            if (available != 0 || reserve != 0) {
+                stockLedger.apply(id, available, reserve);
+            }
+            if (count != 0) {
+                bookRepository.applyStockDelta(id, 0, 0, count);
+            }
+            return;
+        }
+        if (available > 0 && isStriped(id)) {
+            stockSlots.put(id, available);
+            available = 0;
+            if (reserve == 0 && count == 0) {
+                return;
+            }
+        }
+        bookRepository.applyStockDelta(id, available, reserve, count);
+    }
+
+    /**
+     * Раскладка доступных экземпляров книги по ячейкам, для книг, которые заказывают параллельно
+     *
+     * @param id идентификтор книги
+     * @param slots количество ячеек, 0 или 1 - ячейки удаляются
+     */
+    @Override
+    public void setStockSlots(Integer id, int slots) {
+        if (stockSlots == null) {
+            throw new StockSlotsDisabledException("Stock slots are disabled (setting.stock.slots.enabled)");
+        }
+        if (stockLedger != null) {
+            throw new StockSlotsDisabledException("Stock slots are not used with the stock ledger (setting.stock.ledger.enabled)");
+        }
+        stockSlots.stripe(id, slots);
+    }
+
+    private boolean isStriped(Integer id) {
+        return stockLedger == null && stockSlots != null && stockSlots.isStriped(id);
     }
 
     /**
@@ -149,6 +351,12 @@ public class BookServiceImpl implements BookService {
             throw new NotFoundEntity("Book with id " + id + " not found");
         }
         bookRepository.deleteById(id);
+        if (searchIndex != null) {
+            afterCommit(() -> searchIndex.remove(id));
+        }
+        if (stockLedger != null) {
+            afterCommit(() -> stockLedger.forget(id));
+        }
     }
 
     /**
@@ -173,7 +381,143 @@ public class BookServiceImpl implements BookService {
      * @param pagable запрос страницы
      * @return Страница книг
      */
-    public Page<Book> findAllWithGenreId(Integer genreId, Pageable pagable){
-        return bookRepository.findBooksByGenreId(genreId,pagable);
+    public Page<BookSummary> findAllWithGenreId(Integer genreId, Pageable pagable){
+        return toSummaryPage(bookRepository.findBooksByGenreId(genreId,pagable));
+    }
+
+    /**
+     * Курсорная выдача всех книг
+     *
+     * @param cursor токен продолжения, null - с начала
+     * @param size размер порции
+     * @return порция книг и токен следующей порции
+     */
+    @Override
+    public BookCursorPage findAllAfter(String cursor, Integer size) {
+        var pageable = cursorPageable(size);
+        return toCursorPage(bookRepository.findRowsByIdGreaterThanOrderByIdAsc(BookCursor.decode(cursor), pageable));
+    }
+
+    /**
+     * Курсорная выдача книг по совпадению с названием
+     *
+     * @param title строка поиска
+     * @param cursor токен продолжения, null - с начала
+     * @param size размер порции
+     * @return порция книг и токен следующей порции
+     */
+    @Override
+    public BookCursorPage findAllByTitleContainsAfter(String title, String cursor, Integer size) {
+        var pageable = cursorPageable(size);
+        return toCursorPage(bookRepository.searchByTitleAfter(containsPattern(title), BookCursor.decode(cursor), pageable));
+    }
+
+    /**
+     * Курсорная выдача книг с заданным жанром
+     *
+     * @param genreId идентификтор жанра
+     * @param cursor токен продолжения, null - с начала
+     * @param size размер порции
+     * @return порция книг и токен следующей порции
+     */
+    @Override
+    public BookCursorPage findAllWithGenreIdAfter(Integer genreId, String cursor, Integer size) {
+        var pageable = cursorPageable(size);
+        return toCursorPage(bookRepository.findBooksByGenreIdAfter(genreId, BookCursor.decode(cursor), pageable));
+    }
+
+    /**
+     * Всегда первая страница: смещение задает курсор, а не OFFSET
+     */
+    private Pageable cursorPageable(Integer size) {
+        int limit = size == null ? defaultCursorSize : Math.min(Math.max(size, 1), maxCursorSize);
+        return PageRequest.ofSize(limit);
+    }
+
+    private BookCursorPage toCursorPage(Slice<BookRow> slice) {
+        var content = toSummaries(slice.getContent());
+        String next = null;
+        if (slice.hasNext() && !content.isEmpty()) {
+            next = BookCursor.encode(content.get(content.size() - 1).getId());
+        }
+        return new BookCursorPage(content, next, next != null, content.size());
+    }
+
+    private Page<BookSummary> toSummaryPage(Page<BookRow> page) {
+        return new PageImpl<>(toSummaries(page.getContent()), page.getPageable(), page.getTotalElements());
+    }
+
+    /**
+     * Книги страницы с авторами: авторы всех книг загружаются одним запросом,
+     * количество запросов не зависит от размера страницы
+     */
+    private List<BookSummary> toSummaries(List<BookRow> rows) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        var ids = new ArrayList<Integer>(rows.size());
+        for (BookRow row : rows) {
+            ids.add(row.getId());
+        }
+        var authors = new HashMap<Integer, List<String>>();
+        for (BookAuthorName author : bookRepository.findAuthorNames(ids)) {
+            authors.computeIfAbsent(author.getBookId(), id -> new ArrayList<>()).add(author.getFullname());
+        }
+        Map<Integer, Integer> slotAvailable = stockSlots == null ? Map.of() : stockSlots.available(ids);
+        Map<Integer, Integer> ledgerAvailable = stockLedger == null ? Map.of() : stockLedger.available(ids);
+        var summaries = new ArrayList<BookSummary>(rows.size());
+        for (BookRow row : rows) {
+            int available = ledgerAvailable.getOrDefault(row.getId(), row.getAvailable() + slotAvailable.getOrDefault(row.getId(), 0));
+            summaries.add(new BookSummary(row.getId(), row.getTitle(), row.getYear(), row.getDescription(),
+                    available, authors.getOrDefault(row.getId(), List.of())));
+        }
+        return summaries;
+    }
+
+    /**
+     * Поиск по названию, описанию и авторам.
+     * При включенном индексе в памяти - без обращения к базе, с учетом префикса и опечаток,
+     * иначе - поиск по части названия в базе
+     *
+     * @param query строка поиска
+     * @param limit максимальное количество книг
+     * @return книги по убыванию релевантности
+     */
+    @Override
+    @Transactional
+    public List<BookSearchHit> search(String query, Integer limit) {
+        int size = limit == null ? defaultCursorSize : Math.min(Math.max(limit, 1), maxCursorSize);
+        if (searchIndex != null) {
+            return searchIndex.search(query, size).stream()
+                    .map(hit -> new BookSearchHit(hit.id(), hit.title(), hit.authors(), hit.score()))
+                    .toList();
+        }
+        return findAllByTitleContains(query, PageRequest.ofSize(size)).stream()
+                .map(book -> new BookSearchHit(book.getId(), book.getTitle(), book.getAuthors(), 0))
+                .toList();
+    }
+
+    /**
+     * Обновление индекса после фиксации транзакции, чтобы откаченные изменения не попали в поиск
+     */
+    private void updateSearchIndex(Book book) {
+        if (searchIndex == null) {
+            return;
+        }
+        var document = BookSearchIndex.Document.of(book);
+        afterCommit(() -> searchIndex.index(document));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 }
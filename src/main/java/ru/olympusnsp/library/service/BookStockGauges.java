@@ -0,0 +1,54 @@
+package ru.olympusnsp.library.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.olympusnsp.library.repository.BookRepository;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Метрика library.book.stock (тег state: available, reserve, count) - суммы счетчиков по каталогу.
+ * Суммы считаются по расписанию setting.metrics.stock.refresh-ms, а не при каждом чтении метрики,
+ * чтобы сбор метрик не выполнял полный проход по таблице книг
+ */
+@Component
+public class BookStockGauges {
+
+    private final BookRepository bookRepository;
+    private final AtomicLong available = new AtomicLong();
+    private final AtomicLong reserve = new AtomicLong();
+    private final AtomicLong count = new AtomicLong();
+
+    Logger logger = LoggerFactory.getLogger(BookStockGauges.class);
+
+    public BookStockGauges(BookRepository bookRepository, MeterRegistry meterRegistry) {
+        this.bookRepository = bookRepository;
+        register(meterRegistry, "available", available);
+        register(meterRegistry, "reserve", reserve);
+        register(meterRegistry, "count", count);
+    }
+
+    private static void register(MeterRegistry meterRegistry, String state, AtomicLong value) {
+        Gauge.builder("library.book.stock", value, AtomicLong::get)
+                .description("Экземпляры книг по всему каталогу")
+                .tag("state", state)
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${setting.metrics.stock.refresh-ms}",
+            fixedDelayString = "${setting.metrics.stock.refresh-ms}")
+    public void refresh() {
+        var totals = bookRepository.sumStock();
+        available.set(totals.getAvailable());
+        reserve.set(totals.getReserve());
+        count.set(totals.getCount());
+        logger.debug("Book stock: available {}, reserve {}, count {}", available.get(), reserve.get(), count.get());
+    }
+}
@@ -0,0 +1,235 @@
+package ru.olympusnsp.library.service;
+
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.olympusnsp.library.exeption.NotFoundEntity;
+import ru.olympusnsp.library.model.BookStockSlot;
+import ru.olympusnsp.library.repository.BookRepository;
+import ru.olympusnsp.library.repository.BookSlotTotals;
+import ru.olympusnsp.library.repository.BookStockSlotRepository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Разделенные счетчики доступных экземпляров популярных книг.
+ * Доступные экземпляры книги раскладываются по N ячейкам (book_stock_slot), заказ списывает из случайной ячейки
+ * условным UPDATE, и параллельные заказы одной книги блокируют разные строки вместо одной строки book.
+ * Если в выбранной ячейке экземпляров не хватает, строка книги и все ячейки блокируются, экземпляры собираются,
+ * списываются и раскладываются по ячейкам поровну.
+ * Доступно всего = book.available + сумма ячеек: изменения book.available в обход ячеек не теряются,
+ * при перераспределении они переносятся в ячейки.
+ * Включается настройкой setting.stock.slots.enabled=true, ячейки заводятся для отдельных книг
+ */
+@Service
+@ConditionalOnProperty(name = "setting.stock.slots.enabled", havingValue = "true")
+public class BookStockSlots {
+
+    private final BookStockSlotRepository slotRepository;
+    private final BookRepository bookRepository;
+
+    @Value("${setting.stock.slots.max}")
+    private Integer maxSlots;
+
+    /**
+     * Количество ячеек по книгам, для которых они заведены
+     */
+    private final Map<Integer, Integer> slots = new ConcurrentHashMap<>();
+
+    Logger logger = LoggerFactory.getLogger(BookStockSlots.class);
+
+    public BookStockSlots(BookStockSlotRepository slotRepository, BookRepository bookRepository) {
+        this.slotRepository = slotRepository;
+        this.bookRepository = bookRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        var loaded = new HashMap<Integer, Integer>();
+        for (BookSlotTotals totals : slotRepository.sumByBook()) {
+            loaded.put(totals.getBookId(), totals.getSlots().intValue());
+        }
+        slots.keySet().retainAll(loaded.keySet());
+        slots.putAll(loaded);
+        logger.info("Stock slots loaded for {} books", loaded.size());
+    }
+
+    /**
+     * Заведены ли ячейки для книги, без обращения к базе
+     */
+    public boolean isStriped(Integer bookId) {
+        return slots.containsKey(bookId);
+    }
+
+    /**
+     * Проверка ячеек книги по базе: ячейки могли завести на другом экземпляре приложения
+     *
+     * @return true, если ячейки заведены
+     */
+    public boolean refresh(Integer bookId) {
+        var totals = slotRepository.sumByBookIdIn(List.of(bookId));
+        if (totals.isEmpty()) {
+            slots.remove(bookId);
+            return false;
+        }
+        slots.put(bookId, totals.get(0).getSlots().intValue());
+        return true;
+    }
+
+    /**
+     * Раскладка доступных экземпляров книги по ячейкам.
+     * Количество ячеек 0 или 1 - ячейки удаляются, экземпляры возвращаются в book.available
+     *
+     * @param bookId идентификатор книги
+     * @param count количество ячеек, не больше setting.stock.slots.max
+     */
+    @Transactional
+    public void stripe(Integer bookId, int count) {
+        var central = bookRepository.findAvailableForUpdate(bookId);
+        if (central == null) {
+            throw new NotFoundEntity("Book with id " + bookId + " not found");
+        }
+        var existing = slotRepository.findAllForUpdate(bookId);
+        int total = central + sum(existing);
+        int slotCount = Math.min(Math.max(count, 0), maxSlots);
+        if (slotCount <= 1) {
+            slotRepository.deleteAll(existing);
+            bookRepository.applyStockDelta(bookId, total - central, 0, 0);
+            afterCommit(() -> slots.remove(bookId));
+            logger.info("Stock slots removed for book {}, available {}", bookId, total);
+            return;
+        }
+        if (central != 0) {
+            bookRepository.applyStockDelta(bookId, -central, 0, 0);
+        }
+        distribute(bookId, existing, slotCount, total);
+        afterCommit(() -> slots.put(bookId, slotCount));
+        logger.info("Stock of book {} striped into {} slots, available {}", bookId, slotCount, total);
+    }
+
+    /**
+     * Списание доступных экземпляров: из случайной ячейки, если в ней не хватает - с перераспределением
+     *
+     * @return true, если экземпляров хватило и они списаны
+     */
+    @Transactional
+    public boolean take(Integer bookId, int amount) {
+        int count = slots.getOrDefault(bookId, 0);
+        if (count > 0 && slotRepository.take(bookId, ThreadLocalRandom.current().nextInt(count), amount) == 1) {
+            return true;
+        }
+        return rebalance(bookId, amount);
+    }
+
+    /**
+     * Возврат экземпляров в случайную ячейку
+     *
+     * @param amount количество экземпляров, больше 0
+     */
+    @Transactional
+    public void put(Integer bookId, int amount) {
+        int count = slots.getOrDefault(bookId, 0);
+        if (count > 0 && slotRepository.put(bookId, ThreadLocalRandom.current().nextInt(count), amount) == 1) {
+            return;
+        }
+        // Ячейки удалены на другом экземпляре приложения
+        bookRepository.applyStockDelta(bookId, amount, 0, 0);
+        refresh(bookId);
+    }
+
+    /**
+     * Доступные экземпляры в ячейках книг. Если ни у одной книги нет ячеек - без обращения к базе
+     *
+     * @param bookIds идентификаторы книг
+     * @return сумма ячеек по книгам, у которых они заведены
+     */
+    public Map<Integer, Integer> available(Collection<Integer> bookIds) {
+        var striped = new ArrayList<Integer>();
+        for (Integer bookId : bookIds) {
+            if (slots.containsKey(bookId)) {
+                striped.add(bookId);
+            }
+        }
+        if (striped.isEmpty()) {
+            return Map.of();
+        }
+        var available = new HashMap<Integer, Integer>();
+        for (BookSlotTotals totals : slotRepository.sumByBookIdIn(striped)) {
+            available.put(totals.getBookId(), totals.getAvailable().intValue());
+        }
+        return available;
+    }
+
+    /**
+     * Перераспределение: все экземпляры книги собираются под блокировкой, списываются и раскладываются поровну
+     */
+    private boolean rebalance(Integer bookId, int amount) {
+        var central = bookRepository.findAvailableForUpdate(bookId);
+        if (central == null) {
+            return false;
+        }
+        var existing = slotRepository.findAllForUpdate(bookId);
+        if (existing.isEmpty()) {
+            // Ячейки удалены на другом экземпляре приложения
+            slots.remove(bookId);
+            return bookRepository.decrementAvailable(bookId, amount) == 1;
+        }
+        int total = central + sum(existing);
+        if (total < amount) {
+            return false;
+        }
+        if (central != 0) {
+            bookRepository.applyStockDelta(bookId, -central, 0, 0);
+        }
+        distribute(bookId, existing, existing.size(), total - amount);
+        logger.debug("Stock slots of book {} rebalanced, available {}", bookId, total - amount);
+        return true;
+    }
+
+    /**
+     * Раскладка экземпляров по ячейкам 0..count-1 поровну, остаток - в первые ячейки
+     */
+    private void distribute(Integer bookId, List<BookStockSlot> existing, int count, int total) {
+        for (int slot = 0; slot < count; slot++) {
+            int share = total / count + (slot < total % count ? 1 : 0);
+            if (slot < existing.size()) {
+                existing.get(slot).setAvailable(share);
+            } else {
+                slotRepository.save(new BookStockSlot(bookId, slot, share));
+            }
+        }
+        for (int slot = count; slot < existing.size(); slot++) {
+            slotRepository.delete(existing.get(slot));
+        }
+    }
+
+    private static int sum(List<BookStockSlot> slots) {
+        int sum = 0;
+        for (BookStockSlot slot : slots) {
+            sum += slot.getAvailable();
+        }
+        return sum;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -1,7 +1,12 @@
 package ru.olympusnsp.library.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
+import ru.olympusnsp.library.configuration.CacheConfiguration;
 import ru.olympusnsp.library.exeption.NotFoundEntity;
 import ru.olympusnsp.library.model.Genre;
 import ru.olympusnsp.library.repository.GenreRepository;
@@ -19,31 +24,41 @@ public class GenreServiceImpl implements GenreService {
     private final GenreRepository genreRepository;
 
     /**
-     * Поиск жанра по идентификатору
+     * Поиск жанра по идентификатору, через кэш
      * @param id идентификатор
      * @return Жанр
      */
     @Override
+    @Cacheable(cacheNames = CacheConfiguration.GENRE, key = "#id")
     public Genre findById(Integer id) {
 
         return genreRepository.findById(id).orElseThrow(()-> new NotFoundEntity("Genre with id " + id.toString()+ " not found"));
     }
 
     /**
-     * Сохранение жарна
+     * Сохранение жарна, кэш жанра обновляется, список жанров сбрасывается
      * @param genre жанр
      * @return сохраненный жанр
      */
     @Override
+    @Caching(put = @CachePut(cacheNames = CacheConfiguration.GENRE, key = "#result.id"),
+            evict = @CacheEvict(cacheNames = CacheConfiguration.GENRES, allEntries = true))
     public Genre save(Genre genre) {
         return genreRepository.save(genre);
     }
 
+    /**
+     * Список всех жанров, через кэш
+     * @return жанры
+     */
     @Override
+    @Cacheable(cacheNames = CacheConfiguration.GENRES, key = "'all'")
     public List<Genre> findAll() {
         return genreRepository.findAll();
     }
 
+    @Caching(evict = {@CacheEvict(cacheNames = CacheConfiguration.GENRE, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfiguration.GENRES, allEntries = true)})
     public void deleteById(Integer id){
         if(!genreRepository.existsById(id)){
             throw new NotFoundEntity("Genre with id " + id.toString() + " not found");
@@ -1,24 +1,11 @@
 package ru.olympusnsp.library.service;
 
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.impl.lang.Function;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.stereotype.Service;
-import ru.olympusnsp.library.model.User;
-
-import javax.crypto.SecretKey;
-import java.security.Key;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
 
 public interface JwtService {
     String extractUserName(String token);
     String generateToken(UserDetails userDetails);
     boolean isTokenValid(String token, UserDetails userDetails);
-
+    Claims extractValidClaims(String token);
 }
@@ -1,26 +1,60 @@
 package ru.olympusnsp.library.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.impl.lang.Function;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 import ru.olympusnsp.library.model.User;
 
 import javax.crypto.SecretKey;
-import java.security.Key;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class JwtServiceImpl implements JwtService {
-    @Value("${token.signing.key}")
-    private String jwtSigningKey;
+
+    /**
+     * Ключ подписи и парсер строятся один раз, парсер потокобезопасен
+     */
+    private final SecretKey secretKey;
+    private final JwtParser parser;
+
+    /**
+     * Уже проверенные токены, запись живет до exp токена.
+     * Ключ - SHA-256 токена: сами токены не хранятся в памяти (в дампе кучи),
+     * хэш на порядок дешевле проверки подписи, коллизии практически исключены
+     */
+    private final Cache<String, Claims> verifiedTokens;
+
+    public JwtServiceImpl(@Value("${token.signing.key}") String jwtSigningKey,
+                          @Value("${setting.jwt.verified-cache.max-size}") long verifiedCacheSize,
+                          MeterRegistry meterRegistry) {
+        this.secretKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSigningKey));
+        this.parser = Jwts.parser().verifyWith(secretKey).build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfter(new UntilTokenExpiration())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt.verified");
+    }
 
     /**
      * Извлечение имени пользователя из токена
@@ -29,7 +63,7 @@ public class JwtServiceImpl implements JwtService {
      * @return имя пользователя
      */
     public String extractUserName(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return extractValidClaims(token).getSubject();
     }
 
     /**
@@ -49,28 +83,52 @@ public class JwtServiceImpl implements JwtService {
     }
 
     /**
-     * Проверка токена на валидность
+     * Проверка токена на валидность, токен разбирается один раз
      *
      * @param token       токен
      * @param userDetails данные пользователя
      * @return true, если токен валиден
      */
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String userName = extractUserName(token);
-        return (userName.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        try {
+            return userDetails.getUsername().equals(extractValidClaims(token).getSubject());
+        } catch (JwtException e) {
+            return false;
+        }
     }
 
     /**
-     * Извлечение данных из токена
+     * Проверка подписи и срока действия с разбором токена.
+     * Подпись проверяется только при первом предъявлении токена, далее данные берутся из кэша до exp
      *
-     * @param token           токен
-     * @param claimsResolvers функция извлечения данных
-     * @param <T>             тип данных
-     * @return данные
+     * @param token токен
+     * @return данные токена
+     * @throws JwtException если токен поврежден, подпись неверна или срок истек
+     */
+    public Claims extractValidClaims(String token) {
+        var key = digest(token);
+        var claims = verifiedTokens.getIfPresent(key);
+        if (claims == null) {
+            claims = parser.parseSignedClaims(token).getPayload();
+            if (claims.getExpiration() != null) {
+                verifiedTokens.put(key, claims);
+            }
+            return claims;
+        }
+        // Запись удаляется по exp, но вытеснение Caffeine не мгновенное
+        if (claims.getExpiration().before(new Date())) {
+            verifiedTokens.invalidate(key);
+            throw new ExpiredJwtException(null, claims, "JWT expired");
+        }
+        return claims;
+    }
+
+    /**
+     * Количество проверенных токенов в кэше
      */
-    private <T> T extractClaim(String token, Function<Claims, T> claimsResolvers) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolvers.apply(claims);
+    long verifiedTokenCount() {
+        verifiedTokens.cleanUp();
+        return verifiedTokens.estimatedSize();
     }
 
     /**
@@ -84,51 +142,41 @@ public class JwtServiceImpl implements JwtService {
         return Jwts.builder().claims(extraClaims).subject(userDetails.getUsername())
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis() + 100000 * 60 * 24))
-                .signWith(getSigningKey()).compact();
+                .signWith(secretKey).compact();
     }
 
     /**
-     * Проверка токена на просроченность
-     *
-     * @param token токен
-     * @return true, если токен просрочен
+     * Ключ кэша проверенных токенов
      */
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private static String digest(String token) {
+        try {
+            var sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 обязателен для любой реализации Java
+            throw new IllegalStateException(e);
+        }
     }
 
     /**
-     * Извлечение даты истечения токена
-     *
-     * @param token токен
-     * @return дата истечения
+     * Время жизни записи кэша - до истечения токена
      */
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
-    }
+    private static class UntilTokenExpiration implements Expiry<String, Claims> {
 
-    /**
-     * Извлечение всех данных из токена
-     *
-     * @param token токен
-     * @return данные
-     */
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser().verifyWith(getSecretKey()).build().parseSignedClaims(token).getPayload();
-    }
+        @Override
+        public long expireAfterCreate(String key, Claims claims, long currentTime) {
+            long millis = claims.getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis));
+        }
 
-    /**
-     * Получение ключа для подписи токена
-     *
-     * @return ключ
-     */
-    private Key getSigningKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(jwtSigningKey);
-        return Keys.hmacShaKeyFor(keyBytes);
-    }
+        @Override
+        public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, claims, currentTime);
+        }
 
-    private SecretKey getSecretKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(jwtSigningKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+        @Override
+        public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,145 @@
+package ru.olympusnsp.library.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import ru.olympusnsp.library.dto.BookCursorPage;
+import ru.olympusnsp.library.dto.BookSaving;
+import ru.olympusnsp.library.dto.BookSearchHit;
+import ru.olympusnsp.library.dto.BookSummary;
+import ru.olympusnsp.library.dto.BooksReturn;
+import ru.olympusnsp.library.model.Book;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Замер запросов каталога: метрика library.book.query с тегами query (метод BookService)
+ * и outcome (success или имя класса исключения). Изменения книг передаются BookServiceImpl без замера
+ */
+@Service
+@Primary
+public class MeteredBookService implements BookService {
+
+    private final BookService bookService;
+    private final MeterRegistry meterRegistry;
+
+    public MeteredBookService(@Qualifier("bookServiceImpl") BookService bookService, MeterRegistry meterRegistry) {
+        this.bookService = bookService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Page<BookSummary> findAll(Pageable pageable) {
+        return timed("findAll", () -> bookService.findAll(pageable));
+    }
+
+    @Override
+    public Page<BookSummary> findAllByTitleContains(String title, Pageable pageable) {
+        return timed("findAllByTitleContains", () -> bookService.findAllByTitleContains(title, pageable));
+    }
+
+    @Override
+    public Book findById(Integer id) {
+        return timed("findById", () -> bookService.findById(id));
+    }
+
+    @Override
+    public Map<Integer, Book> findAllByIdIn(Collection<Integer> ids) {
+        return timed("findAllByIdIn", () -> bookService.findAllByIdIn(ids));
+    }
+
+    @Override
+    public Page<BookSummary> findAllWithGenreId(Integer genreId, Pageable pagable) {
+        return timed("findAllWithGenreId", () -> bookService.findAllWithGenreId(genreId, pagable));
+    }
+
+    @Override
+    public BookCursorPage findAllAfter(String cursor, Integer size) {
+        return timed("findAllAfter", () -> bookService.findAllAfter(cursor, size));
+    }
+
+    @Override
+    public BookCursorPage findAllByTitleContainsAfter(String title, String cursor, Integer size) {
+        return timed("findAllByTitleContainsAfter", () -> bookService.findAllByTitleContainsAfter(title, cursor, size));
+    }
+
+    @Override
+    public BookCursorPage findAllWithGenreIdAfter(Integer genreId, String cursor, Integer size) {
+        return timed("findAllWithGenreIdAfter", () -> bookService.findAllWithGenreIdAfter(genreId, cursor, size));
+    }
+
+    @Override
+    public List<BookSearchHit> search(String query, Integer limit) {
+        return timed("search", () -> bookService.search(query, limit));
+    }
+
+    @Override
+    public Book save(BookSaving book) {
+        return bookService.save(book);
+    }
+
+    @Override
+    public Book save(Book book) {
+        return bookService.save(book);
+    }
+
+    @Override
+    public Boolean reserveBookById(Integer id) {
+        return bookService.reserveBookById(id);
+    }
+
+    @Override
+    public Boolean decrementAvailable(Integer id, int amount) {
+        return bookService.decrementAvailable(id, amount);
+    }
+
+    @Override
+    public void applyStockDelta(Integer id, int available, int reserve, int count) {
+        bookService.applyStockDelta(id, available, reserve, count);
+    }
+
+    @Override
+    public void refreshStock(Book book) {
+        bookService.refreshStock(book);
+    }
+
+    @Override
+    public void setStockSlots(Integer id, int slots) {
+        bookService.setStockSlots(id, slots);
+    }
+
+    @Override
+    public void deleteById(Integer id) {
+        bookService.deleteById(id);
+    }
+
+    @Override
+    public void returnBook(BooksReturn booksReturn) {
+        bookService.returnBook(booksReturn);
+    }
+
+    private <T> T timed(String query, Supplier<T> action) {
+        var sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        try {
+            return action.get();
+        } catch (RuntimeException e) {
+            outcome = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("library.book.query")
+                    .description("Время запросов каталога книг")
+                    .tag("query", query)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+}
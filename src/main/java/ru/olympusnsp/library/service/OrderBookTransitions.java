@@ -0,0 +1,148 @@
+package ru.olympusnsp.library.service;
+
+import ru.olympusnsp.library.exeption.OrderBookStatusException;
+import ru.olympusnsp.library.model.OrderBook.OrderBookStatus;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Таблица переходов состояния заказанной книги (OrderBook).
+ * Таблица строится один раз, переход ищется по (старый статус, новый статус) без цепочки условий.
+ * Каждый переход описывает изменения счетчиков Book.available, Book.reserve, Book.count и User.bookRented
+ */
+public final class OrderBookTransitions {
+
+    /**
+     * Нарушение, которое переход добавляет пользователю
+     */
+    public enum Violation {
+        NONE, IF_OVERDUE, ALWAYS
+    }
+
+    /**
+     * Изменение счетчиков книги
+     */
+    public record StockDelta(int available, int reserve, int count) {
+
+        public StockDelta plus(StockDelta other) {
+            return new StockDelta(available + other.available, reserve + other.reserve, count + other.count);
+        }
+
+        public boolean isZero() {
+            return available == 0 && reserve == 0 && count == 0;
+        }
+    }
+
+    /**
+     * Переход состояния
+     *
+     * @param stock           изменение счетчиков книги
+     * @param bookRented      изменение User.bookRented
+     * @param violation       нарушение пользователя
+     * @param startsRental    выставляются даты выдачи и срок возврата
+     * @param returnsBook     выставляется дата возврата
+     */
+    public record Transition(OrderBookStatus from, OrderBookStatus to, StockDelta stock, int bookRented,
+                             Violation violation, boolean startsRental, boolean returnsBook) {
+
+        public boolean isIdentity() {
+            return from == to;
+        }
+    }
+
+    private static final OrderBookStatus[] STATUSES = OrderBookStatus.values();
+    private static final Transition[][] TABLE = new Transition[STATUSES.length][STATUSES.length];
+    private static final String[][] REJECTIONS = new String[STATUSES.length][STATUSES.length];
+
+    static {
+        for (OrderBookStatus status : STATUSES) {
+            define(status, status, 0, 0, 0, 0, Violation.NONE, false, false);
+        }
+        // Книга найдена в библиотеке и отложена в резерв
+        define(OrderBookStatus.CREATED, OrderBookStatus.PREPARED, 0, 1, 0, 0, Violation.NONE, false, false);
+        // Книга не найдена в библиотеке, экземпляр списывается, заказ пользователя закрывается
+        define(OrderBookStatus.CREATED, OrderBookStatus.LOSSLIBRARY, 0, 0, -1, -1, Violation.NONE, false, false);
+        // Отмена только созданного заказа, книга возвращается в доступные
+        define(OrderBookStatus.CREATED, OrderBookStatus.CANCELLED, 1, 0, 0, -1, Violation.NONE, false, false);
+        // Выдача подготовленной книги
+        define(OrderBookStatus.PREPARED, OrderBookStatus.RENTED, 0, -1, 0, 0, Violation.NONE, true, false);
+        // Отмена подготовленной книги, возврат из резерва в доступные
+        define(OrderBookStatus.PREPARED, OrderBookStatus.CANCELLED, 1, -1, 0, -1, Violation.NONE, false, false);
+        // Возврат арендованной книги, при просрочке - нарушение
+        define(OrderBookStatus.RENTED, OrderBookStatus.RETURNED, 1, 0, 0, -1, Violation.IF_OVERDUE, false, true);
+        // Пользователь потерял книгу, экземпляр списывается
+        define(OrderBookStatus.RENTED, OrderBookStatus.LOSSUSER, 0, 0, -1, -1, Violation.ALWAYS, false, false);
+
+        REJECTIONS[OrderBookStatus.RENTED.ordinal()][OrderBookStatus.CANCELLED.ordinal()] =
+                "Используйте статус RETURNED или LOSSUSER";
+        for (OrderBookStatus from : STATUSES) {
+            for (OrderBookStatus to : STATUSES) {
+                if (TABLE[from.ordinal()][to.ordinal()] == null && REJECTIONS[from.ordinal()][to.ordinal()] == null) {
+                    REJECTIONS[from.ordinal()][to.ordinal()] = to == OrderBookStatus.CANCELLED
+                            ? "Отмена из данного состояния невозможна"
+                            : "Неподдерживаемое изменение статуса с " + from + " на " + to;
+                }
+            }
+        }
+    }
+
+    private OrderBookTransitions() {
+    }
+
+    private static void define(OrderBookStatus from, OrderBookStatus to, int available, int reserve, int count,
+                               int bookRented, Violation violation, boolean startsRental, boolean returnsBook) {
+        TABLE[from.ordinal()][to.ordinal()] = new Transition(from, to, new StockDelta(available, reserve, count),
+                bookRented, violation, startsRental, returnsBook);
+    }
+
+    /**
+     * Поиск перехода
+     *
+     * @param from текущий статус
+     * @param to   новый статус
+     * @return переход
+     * @throws OrderBookStatusException если переход запрещен
+     */
+    public static Transition of(OrderBookStatus from, OrderBookStatus to) {
+        var transition = TABLE[from.ordinal()][to.ordinal()];
+        if (transition == null) {
+            throw new OrderBookStatusException(REJECTIONS[from.ordinal()][to.ordinal()]);
+        }
+        return transition;
+    }
+
+    /**
+     * Проверка, разрешен ли переход
+     */
+    public static boolean isAllowed(OrderBookStatus from, OrderBookStatus to) {
+        return TABLE[from.ordinal()][to.ordinal()] != null;
+    }
+
+    /**
+     * Накопление изменений счетчиков нескольких переходов для применения set-based UPDATE,
+     * по одному запросу на книгу и на пользователя
+     */
+    public static final class DeltaBatch {
+
+        private final Map<Integer, StockDelta> books = new HashMap<>();
+        private final Map<Integer, Integer> users = new HashMap<>();
+
+        public void add(Transition transition, Integer bookId, Integer userId) {
+            if (!transition.stock().isZero()) {
+                books.merge(bookId, transition.stock(), StockDelta::plus);
+            }
+            if (transition.bookRented() != 0) {
+                users.merge(userId, transition.bookRented(), Integer::sum);
+            }
+        }
+
+        public Map<Integer, StockDelta> books() {
+            return books;
+        }
+
+        public Map<Integer, Integer> users() {
+            return users;
+        }
+    }
+}
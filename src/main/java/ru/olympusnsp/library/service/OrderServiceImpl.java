@@ -1,5 +1,7 @@
 package ru.olympusnsp.library.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -8,8 +10,12 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.olympusnsp.library.dto.OrderBookChangeRequest;
+import ru.olympusnsp.library.dto.OrderBookChangeResult;
 import ru.olympusnsp.library.dto.OrderCreate;
+import ru.olympusnsp.library.dto.OrderCreated;
 import ru.olympusnsp.library.exeption.*;
 import ru.olympusnsp.library.model.Order;
 import ru.olympusnsp.library.model.OrderBook;
@@ -19,6 +25,7 @@ import ru.olympusnsp.library.repository.UserRepository;
 
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 @Service
@@ -49,6 +56,11 @@ public class OrderServiceImpl implements OrderService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<OrderBookTransitions.Transition, Counter> transitionCounters = new ConcurrentHashMap<>();
+
 
     /**
      * Получить страничную выдачу всех заказов
@@ -78,8 +90,8 @@ public class OrderServiceImpl implements OrderService {
      */
 
     @Transactional
-    public Order createNewOrder(OrderCreate orderCreate) {
-        logger.info("Create new order {}", orderCreate);
+    public OrderCreated createNewOrder(OrderCreate orderCreate) {
+        logger.debug("Создание заказа: пользователь {}, книги {}", orderCreate.getUser_id(), orderCreate.getBook_ids());
         var user = userService.findById(orderCreate.getUser_id());
         if (user==null){
             throw new NotFoundUser("Пользователь не найден");
@@ -97,31 +109,39 @@ public class OrderServiceImpl implements OrderService {
             logger.warn("Превышение доступного количества выдаваемых книг для аккаунта");
             throw new BookCountExcessException("Превышение доступного количества выдаваемых книг для аккаунта");
         }
-        var setOrderBook = new HashSet<OrderBook>();
+        // Все книги заказа загружаются одним запросом, неизвестный id отклоняется до любой записи
+        var books = bookService.findAllByIdIn(book_ids);
+        // Проверка выше читает счетчик без блокировки, лимит окончательно проверяется условным UPDATE:
+        // параллельный заказ того же пользователя мог успеть увеличить счетчик
+        if (!userService.addBookRentedUpTo(user.getId(), book_ids.size(), maxRentalBooks)) {
+            logger.warn("Превышение доступного количества выдаваемых книг для аккаунта");
+            throw new BookCountExcessException("Превышение доступного количества выдаваемых книг для аккаунта");
+        }
+        // Списываем экземпляры условным UPDATE, по возрастанию id, чтобы параллельные заказы не попадали в deadlock
+        var amounts = new TreeMap<Integer, Integer>();
+        for (Integer bookId : book_ids) {
+            amounts.merge(bookId, 1, Integer::sum);
+        }
+        for (var amount : amounts.entrySet()) {
+            if (!bookService.decrementAvailable(amount.getKey(), amount.getValue())) {
+                logger.warn("Закончилась книга с id={}", amount.getKey());
+                throw new BookUnavailableException("Книга с id= " + amount.getKey() + " недоступна");
+            }
+        }
         Order order = new Order();
         order.setUser(user);
         order.setCreatedData(LocalDate.now());
-        order = orderRepository.save(order);
-
         for(Integer bookId : book_ids){
-            var book = bookService.findById(bookId);
-            if(book.getAvailable()<=0){
-                logger.warn("Закончилась книга с id={}",bookId);
-                throw new BookUnavailableException("Книга с id= "+bookId.toString()+" недоступна");
-            }
-            book.setAvailable(book.getAvailable()-1) ;
             OrderBook orderBook = new OrderBook();
-            orderBook.setBook(book);
+            orderBook.setBook(books.get(bookId));
             orderBook.setOrder(order);
             orderBook.setStatus(OrderBook.OrderBookStatus.CREATED);
-            setOrderBook.add(orderBook);
-            //orderBookRepository.save(orderBook);
+            order.getOrderBooks().add(orderBook);
         }
-        order.setOrderBooks(setOrderBook);
-
-        user.setBookRented(book_ids.size()+user.getBookRented());
-        userService.save(user);
-        return orderRepository.findById(order.getId()).orElse(null);
+        // Заказ сохраняется вместе с книгами: идентификаторы выдаются из пачки последовательности при persist,
+        // вставки уходят при flush, ответ строится из этих же сущностей без повторного чтения
+        order = orderRepository.save(order);
+        return OrderCreated.of(order);
     }
 
     /**
@@ -135,107 +155,147 @@ public class OrderServiceImpl implements OrderService {
 
         var oOrderBook = orderBookRepository.findById(change.getOrderBookId());
         if (oOrderBook.isPresent()) {
-            var orderBook = oOrderBook.get();
-            logger.debug("Изменение состояния OrderBook с id {} с {} на {}",change.getOrderBookId(),orderBook.getStatus(),change.getStatus());
-            var newStatus = change.getStatus();
-            var oldStatus = orderBook.getStatus();
-            if (newStatus.equals(oldStatus))
-                return orderBook;
-            if (newStatus == OrderBook.OrderBookStatus.PREPARED && oldStatus == OrderBook.OrderBookStatus.CREATED) {
-                logger.debug("Книга найдена в библиотеке и отложена в резерв (для созданного заказа)");
-                orderBook.setStatus(OrderBook.OrderBookStatus.PREPARED);
-                var book = orderBook.getBook();
-                book.setReserve(book.getReserve() + 1);
-                orderBook.setBook(book);
-                return orderBookRepository.save(orderBook);
-            }
-            else if (newStatus == OrderBook.OrderBookStatus.LOSSLIBRARY && oldStatus == OrderBook.OrderBookStatus.CREATED) {
-                logger.debug("Книга НЕ найдена в библиотеке, объявляется потерянной (для созданного заказа)");
-                orderBook.setStatus(OrderBook.OrderBookStatus.LOSSLIBRARY);
-                var book = orderBook.getBook();
-                book.setAvailable(book.getCount() - 1);
-                orderBook.setBook(book);
-                return orderBookRepository.save(orderBook);
+            return applyChange(oOrderBook.get(), change);
+        }
+        else{
+            throw new NotFoundEntity("OrderBook с id = "+change.getOrderBookId()+" не найден");
+        }
+    }
+
+    /**
+     * Пакетное изменение состояния заказанных книг в одной транзакции.
+     * Заказанные книги загружаются одним запросом, изменения статусов уходят пакетами JDBC при flush,
+     * изменения счетчиков суммируются по таблице переходов и применяются одним UPDATE на книгу и на пользователя.
+     * Ошибка отдельного изменения не отменяет остальные
+     *
+     * @param changes список изменений
+     * @return результат по каждому изменению, в порядке запроса
+     */
+    @Transactional
+    public List<OrderBookChangeResult> changeOrderBooks(List<OrderBookChangeRequest> changes) {
+        var ids = new HashSet<Long>();
+        for (var change : changes) {
+            ids.add(change.getOrderBookId());
+        }
+        var orderBooks = new HashMap<Long, OrderBook>();
+        for (var orderBook : orderBookRepository.findAllWithOrderByIdIn(ids)) {
+            orderBooks.put(orderBook.getId(), orderBook);
+        }
+        var deltas = new OrderBookTransitions.DeltaBatch();
+        var results = new ArrayList<OrderBookChangeResult>(changes.size());
+        for (var change : changes) {
+            var orderBook = orderBooks.get(change.getOrderBookId());
+            if (orderBook == null) {
+                results.add(OrderBookChangeResult.failure(change.getOrderBookId(), change.getStatus(),
+                        "OrderBook с id = " + change.getOrderBookId() + " не найден"));
+                continue;
             }
-            else if (newStatus == OrderBook.OrderBookStatus.RENTED && oldStatus == OrderBook.OrderBookStatus.PREPARED) {
-                logger.debug("Выдача заказа для подготовленных (зарезервированных книг)");
-                orderBook.setStatus(OrderBook.OrderBookStatus.RENTED);
-                orderBook.setDateStartRentedBook(LocalDate.now());
-                var returnUpTo = LocalDate.now().plusDays(daysRentalBooks);
-                orderBook.setDateReturnUpto(returnUpTo);
-                var book = orderBook.getBook();
-                logger.debug("Выдача книги id {} до {}",book.getId(), returnUpTo);
-                book.setReserve(book.getReserve() - 1);
-
-                orderBook.setBook(book);
-                return orderBookRepository.save(orderBook);
+            OrderBookTransitions.Transition transition;
+            try {
+                transition = OrderBookTransitions.of(orderBook.getStatus(), change.getStatus());
+            } catch (OrderBookStatusException e) {
+                results.add(OrderBookChangeResult.failure(orderBook.getId(), orderBook.getStatus(), e.getMessage()));
+                continue;
             }
-            else if (newStatus == OrderBook.OrderBookStatus.RETURNED && oldStatus == OrderBook.OrderBookStatus.RENTED) {
-                logger.debug("Возврат арендованной книги");
-                orderBook.setStatus(OrderBook.OrderBookStatus.RETURNED);
-                var now = LocalDate.now();
-                orderBook.setDateReturnedBook(now);
-                if (now.isAfter(orderBook.getDateReturnUpto())) {
-                    var user_id = orderBook.getOrder().getUser().getId();
-                    logger.info("Пользователь id = {} просрочил возврат книги",user_id);
-                    userService.addViolation(user_id);
-                }
-                var book = orderBook.getBook();
-                book.setAvailable(book.getAvailable() + 1);
-                orderBook.setBook(book);
-                var user = orderBook.getOrder().getUser();
-                user.setBookRented(user.getBookRented()-1);
-                userService.save(user);
-                return orderBookRepository.save(orderBook);
+            if (!transition.isIdentity()) {
+                var userId = orderBook.getOrder().getUser().getId();
+                applyStatus(orderBook, transition, userId);
+                deltas.add(transition, orderBook.getBook().getId(), userId);
             }
-            //
-            else if (newStatus == OrderBook.OrderBookStatus.LOSSUSER && oldStatus == OrderBook.OrderBookStatus.RENTED){
-                logger.debug("Пользователь потерял книгу (для арендованных книг)");
-                orderBook.setStatus(OrderBook.OrderBookStatus.LOSSUSER);
-                var user = orderBook.getOrder().getUser();
-                userService.addViolation(user.getId());
-                var book = orderBook.getBook();
-                book.setAvailable(book.getCount() - 1);
-                orderBook.setBook(book);
-                user.setBookRented(user.getBookRented()-1);
-                userService.save(user);
-                return orderBookRepository.save(orderBook);
+            results.add(OrderBookChangeResult.success(orderBook));
+        }
+        // Счетчики меняются после всех переходов, чтобы загруженные сущности не устарели посреди пакета
+        deltas.books().forEach((bookId, delta) -> {
+            if (!delta.isZero()) {
+                bookService.applyStockDelta(bookId, delta.available(), delta.reserve(), delta.count());
             }
-            // Отмена
-            else if (newStatus == OrderBook.OrderBookStatus.CANCELLED) {
-                switch (oldStatus) {
-                    case PREPARED:
-                        logger.debug("Отмена из подготовленного состояния, возврат книги из резерва в доступные");
-                        orderBook.setStatus(OrderBook.OrderBookStatus.CANCELLED);
-                        var book = orderBook.getBook();
-                        book.setReserve(book.getReserve() - 1);
-                        book.setAvailable(book.getAvailable() + 1);
-                        orderBook.setBook(book);
-                        var user = orderBook.getOrder().getUser();
-                        user.setBookRented(user.getBookRented()-1);
-                        userService.save(user);
-                        return orderBookRepository.save(orderBook);
-                    case RENTED:
-                        logger.info("Запрещено отменять ареднованный заказ, используйте возврат или потерю");
-                        throw new OrderBookStatusException("Используйте статус RETURNED или LOSSUSER");
-                    case CREATED:
-                        logger.debug("Отмена только созданного заказа, книга добавляется в доступные");
-                        var book2 = orderBook.getBook();
-                        book2.setAvailable(book2.getAvailable() + 1);
-                        orderBook.setBook(book2);
-                        var user2 = orderBook.getOrder().getUser();
-                        user2.setBookRented(user2.getBookRented()-1);
-                        userService.save(user2);
-                        return orderBookRepository.save(orderBook);
-                    default:
-                        logger.info("Отмена из данного состояния невозмозжна");
-                        throw new OrderBookStatusException("Отмена из данного состояния невозможна");
-                }
+        });
+        deltas.users().forEach((userId, delta) -> {
+            if (delta != 0) {
+                userService.addBookRented(userId, delta);
             }
-            throw new OrderBookStatusException("Неподдерживаемое изменение статуса с "+change.getStatus()+" на "+orderBook.getStatus()+")");
+        });
+        return results;
+    }
+
+    /**
+     * Применение перехода состояния к загруженной заказанной книге
+     *
+     * @param orderBook заказанная книга
+     * @param change изменение
+     * @return заказанная книга после перехода
+     */
+    private OrderBook applyChange(OrderBook orderBook, OrderBookChangeRequest change) {
+        // Больше двух аргументов - массив varargs создается даже при выключенном DEBUG
+        if (logger.isDebugEnabled()) {
+            logger.debug("Изменение состояния OrderBook с id {} с {} на {}", change.getOrderBookId(), orderBook.getStatus(), change.getStatus());
         }
-        else{
-            throw new NotFoundEntity("OrderBook с id = "+change.getOrderBookId()+" не найден");
+        var transition = OrderBookTransitions.of(orderBook.getStatus(), change.getStatus());
+        if (transition.isIdentity())
+            return orderBook;
+        // Пользователь заказа не загружается: нужен только идентификатор, счетчики меняются UPDATE
+        var userId = orderBook.getOrder().getUser().getId();
+        applyStatus(orderBook, transition, userId);
+
+        var stock = transition.stock();
+        if (!stock.isZero()) {
+            // Счетчики меняются через BookService, как в пакетном изменении: одним UPDATE или в StockLedger
+            bookService.applyStockDelta(orderBook.getBook().getId(), stock.available(), stock.reserve(), stock.count());
         }
+        if (transition.bookRented() != 0) {
+            userService.addBookRented(userId, transition.bookRented());
+        }
+        var saved = orderBookRepository.save(orderBook);
+        if (!stock.isZero()) {
+            // Книга в ответе - с изменившимися счетчиками
+            bookService.refreshStock(saved.getBook());
+        }
+        return saved;
+    }
+
+    /**
+     * Смена статуса, дат и нарушений пользователя по переходу, без изменения счетчиков
+     */
+    private void applyStatus(OrderBook orderBook, OrderBookTransitions.Transition transition, Integer userId) {
+        orderBook.setStatus(transition.to());
+        var now = LocalDate.now();
+        if (transition.startsRental()) {
+            var returnUpTo = now.plusDays(daysRentalBooks);
+            logger.debug("Выдача книги по OrderBook id {} до {}", orderBook.getId(), returnUpTo);
+            orderBook.setDateStartRentedBook(now);
+            orderBook.setDateReturnUpto(returnUpTo);
+        }
+        if (transition.returnsBook()) {
+            orderBook.setDateReturnedBook(now);
+        }
+        var overdue = orderBook.getDateReturnUpto() != null && now.isAfter(orderBook.getDateReturnUpto());
+        if (transition.violation() == OrderBookTransitions.Violation.ALWAYS
+                || (transition.violation() == OrderBookTransitions.Violation.IF_OVERDUE && overdue)) {
+            logger.info("Пользователь id = {} получает нарушение, переход {} -> {}", userId, transition.from(), transition.to());
+            userService.addViolation(userId);
+        }
+        countTransition(transition);
+    }
+
+    /**
+     * Счетчик переходов library.order.book.transitions (теги from, to).
+     * Увеличивается после фиксации транзакции, откаченные и повторенные попытки не учитываются
+     */
+    private void countTransition(OrderBookTransitions.Transition transition) {
+        var counter = transitionCounters.computeIfAbsent(transition, t -> Counter.builder("library.order.book.transitions")
+                .description("Переходы состояний заказанных книг")
+                .tag("from", t.from().name())
+                .tag("to", t.to().name())
+                .register(meterRegistry));
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            counter.increment();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                counter.increment();
+            }
+        });
     }
 }
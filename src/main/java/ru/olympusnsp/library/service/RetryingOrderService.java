@@ -0,0 +1,167 @@
+package ru.olympusnsp.library.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import ru.olympusnsp.library.dto.OrderBookChangeRequest;
+import ru.olympusnsp.library.dto.OrderBookChangeResult;
+import ru.olympusnsp.library.dto.OrderCreate;
+import ru.olympusnsp.library.dto.OrderCreated;
+import ru.olympusnsp.library.exeption.BookCountExcessException;
+import ru.olympusnsp.library.exeption.BookUnavailableException;
+import ru.olympusnsp.library.model.Order;
+import ru.olympusnsp.library.model.OrderBook;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Повтор транзакций заказов при конфликте оптимистической блокировки
+ * и при откате взаимной блокировки строк (перераспределение ячеек популярных книг, BookStockSlots).
+ * Каждая попытка выполняется в новой транзакции OrderServiceImpl, между попытками - экспоненциальная пауза.
+ * Время операций с учетом повторов - метрика library.order.operation (теги operation, outcome),
+ * отказы в заказе по количеству и наличию книг - library.order.rejections (тег reason)
+ */
+@Service
+@Primary
+public class RetryingOrderService implements OrderService {
+
+    private final OrderService orderService;
+    private final int maxAttempts;
+    private final long backoffMs;
+
+    private final Counter conflicts;
+    private final Counter retries;
+    private final Counter exhausted;
+    private final MeterRegistry meterRegistry;
+    private final Counter unavailableRejections;
+    private final Counter countExcessRejections;
+
+    Logger logger = LoggerFactory.getLogger(RetryingOrderService.class);
+
+    public RetryingOrderService(@Qualifier("orderServiceImpl") OrderService orderService,
+                                MeterRegistry meterRegistry,
+                                @Value("${setting.order.retry.max-attempts}") int maxAttempts,
+                                @Value("${setting.order.retry.backoff-ms}") long backoffMs) {
+        this.orderService = orderService;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMs = backoffMs;
+        this.conflicts = Counter.builder("library.order.optimistic.conflicts")
+                .description("Конфликты оптимистической блокировки в транзакциях заказов")
+                .register(meterRegistry);
+        this.retries = Counter.builder("library.order.optimistic.retries")
+                .description("Повторные попытки транзакций заказов")
+                .register(meterRegistry);
+        this.exhausted = Counter.builder("library.order.optimistic.exhausted")
+                .description("Транзакции заказов, не выполненные за все попытки")
+                .register(meterRegistry);
+        this.meterRegistry = meterRegistry;
+        this.unavailableRejections = rejections(meterRegistry, BookUnavailableException.class);
+        this.countExcessRejections = rejections(meterRegistry, BookCountExcessException.class);
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, Class<? extends RuntimeException> reason) {
+        return Counter.builder("library.order.rejections")
+                .description("Отказы в заказе: книги закончились или превышено количество книг")
+                .tag("reason", reason.getSimpleName())
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Page<Order> findAll(Pageable pageable) {
+        return orderService.findAll(pageable);
+    }
+
+    @Override
+    public Order findById(Long id) {
+        return orderService.findById(id);
+    }
+
+    @Override
+    public OrderCreated createNewOrder(OrderCreate orderCreate) {
+        return timed("createNewOrder", () -> withRetry("createNewOrder", () -> orderService.createNewOrder(orderCreate)));
+    }
+
+    @Override
+    public OrderBook changeOrderBook(OrderBookChangeRequest change) {
+        return timed("changeOrderBook", () -> withRetry("changeOrderBook", () -> orderService.changeOrderBook(change)));
+    }
+
+    @Override
+    public List<OrderBookChangeResult> changeOrderBooks(List<OrderBookChangeRequest> changes) {
+        return timed("changeOrderBooks", () -> withRetry("changeOrderBooks", () -> orderService.changeOrderBooks(changes)));
+    }
+
+    /**
+     * Замер операции, outcome - success или имя класса исключения
+     */
+    private <T> T timed(String operation, Supplier<T> action) {
+        var sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        try {
+            return action.get();
+        } catch (RuntimeException e) {
+            outcome = e.getClass().getSimpleName();
+            if (e instanceof BookUnavailableException) {
+                unavailableRejections.increment();
+            } else if (e instanceof BookCountExcessException) {
+                countExcessRejections.increment();
+            }
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("library.order.operation")
+                    .description("Время операций с заказами, с учетом повторов")
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Выполнение операции с повтором при ConcurrencyFailureException (конфликт версий, взаимная блокировка)
+     *
+     * @param operation имя операции для журнала
+     * @param action    транзакционный вызов
+     * @return результат операции
+     */
+    private <T> T withRetry(String operation, Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (ConcurrencyFailureException e) {
+                conflicts.increment();
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    logger.warn("{}: конфликт параллельных транзакций, попытки исчерпаны ({})", operation, attempt);
+                    throw e;
+                }
+                logger.debug("{}: конфликт параллельных транзакций, повтор {} из {}", operation, attempt + 1, maxAttempts);
+                retries.increment();
+                backoff(attempt, e);
+            }
+        }
+    }
+
+    private void backoff(int attempt, ConcurrencyFailureException cause) {
+        long delay = backoffMs << (attempt - 1);
+        if (delay <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+}
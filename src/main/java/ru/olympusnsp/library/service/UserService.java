@@ -1,5 +1,6 @@
 package ru.olympusnsp.library.service;
 
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import ru.olympusnsp.library.model.User;
 
@@ -7,9 +8,12 @@ import java.util.Optional;
 
 public interface UserService {
     UserDetailsService userDetailsService();
+    UserDetailsPasswordService userDetailsPasswordService();
     User getByUsername(String username);
     User save(User user);
     User getCurrentUser();
     User findById(Integer id);
-    User addViolation(Integer user_id);
+    boolean addViolation(Integer user_id);
+    void addBookRented(Integer user_id, int delta);
+    boolean addBookRentedUpTo(Integer user_id, int delta, int max);
 }
@@ -1,6 +1,10 @@
 package ru.olympusnsp.library.service;
 
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Service;
 import ru.olympusnsp.library.dto.BooksReturn;
@@ -15,11 +19,16 @@ import java.util.Optional;
 @Service
 public class UserServiceImpl implements UserService {
 
-    public UserServiceImpl(UserRepository userRepository) {
+    public UserServiceImpl(UserRepository userRepository, BlockedUserRegistry blockedUserRegistry) {
         this.userRepository = userRepository;
+        this.blockedUserRegistry = blockedUserRegistry;
     }
 
     private final UserRepository userRepository;
+    private final BlockedUserRegistry blockedUserRegistry;
+
+    @Value("${setting.max-violations}")
+    private Integer maxViolations;
 
     /** Предоставление UserDetailsService
      *
@@ -29,6 +38,27 @@ public class UserServiceImpl implements UserService {
         return this::getByUsername;
     }
 
+    /** Предоставление UserDetailsPasswordService, для перехеширования пароля при входе
+     *
+     * @return UserDetailsPasswordService
+     */
+    public UserDetailsPasswordService userDetailsPasswordService() {
+        return this::updatePassword;
+    }
+
+    /**
+     * Замена хеша пароля
+     * @param userDetails пользователь
+     * @param encodedPassword новый хеш
+     * @return пользователь
+     */
+    @Transactional
+    public User updatePassword(UserDetails userDetails, String encodedPassword) {
+        var user = userRepository.findByUsername(userDetails.getUsername());
+        user.setPassword(encodedPassword);
+        return userRepository.save(user);
+    }
+
     /**
      *  Получение пользователя по имени
      * @param username
@@ -68,21 +98,44 @@ public class UserServiceImpl implements UserService {
     }
 
     /**
-     * Добавление нарушения у пользователя, и блокировка если нарушения два
+     * Добавление нарушения у пользователя, и блокировка если нарушений не меньше setting.max-violations.
+     * Нарушение и блокировка записываются одним UPDATE, затем читается только состояние блокировки
      * @param user_id идентификатор
-     * @return пользователя
+     * @return true, если после нарушения пользователь заблокирован
      */
-    public User addViolation(Integer user_id){
-        var oUser = userRepository.findById(user_id);
-        if (oUser.isPresent()){
-            var user = oUser.get();
-            user.setViolations(user.getViolations() + 1);
-            if (user.getViolations() == 2) {
-                user.setStatusBlock(true);
-            }
-            return userRepository.save(user);
+    @Transactional
+    public boolean addViolation(Integer user_id){
+        if (userRepository.addViolation(user_id, maxViolations) == 0) {
+            throw new NotFoundUser("User with id "+user_id+" not found");
         }
-        throw new NotFoundUser("User with id "+user_id+" not found");
+        // Строка заблокирована UPDATE до конца транзакции: чтение видит итог и этого, и параллельных нарушений
+        if (Boolean.TRUE.equals(userRepository.findStatusBlockById(user_id))) {
+            blockedUserRegistry.block(user_id);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Изменение количества выданных пользователю книг, одним UPDATE
+     * @param user_id идентификатор
+     * @param delta изменение
+     */
+    @Transactional
+    public void addBookRented(Integer user_id, int delta) {
+        userRepository.addBookRented(user_id, delta);
+    }
+
+    /**
+     * Увеличение количества выданных пользователю книг с проверкой лимита, одним условным UPDATE
+     * @param user_id идентификатор
+     * @param delta количество выдаваемых книг
+     * @param max предел книг на руках
+     * @return false - лимит был бы превышен, счетчик не изменен
+     */
+    @Transactional
+    public boolean addBookRentedUpTo(Integer user_id, int delta, int max) {
+        return userRepository.addBookRentedUpTo(user_id, delta, max) == 1;
     }
 
-}
+}
\ No newline at end of file
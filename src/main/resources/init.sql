@@ -11,8 +11,12 @@ create table book (
                       description text not null,
                       count int not null,
                       available int not null,
-                      reserve int not null
+                      reserve int not null,
+                      version bigint not null default 0
 );
+-- Поиск по части названия (ILIKE '%x%') и сортировка по похожести через индекс триграмм
+create extension if not exists pg_trgm;
+CREATE INDEX idx_book_title_trgm ON book USING gin (title gin_trgm_ops);
 
 
 create table author_book(
@@ -45,9 +49,12 @@ create table user_(
                      book_rented int not null,
                      status_block boolean not null,
                      violations int not null,
-                     role varchar(20) not null
+                     role varchar(20) not null,
+                     version bigint not null default 0,
+                     block_changed_at timestamp not null default now()
 );
 CREATE INDEX idx_username ON user_ (username);
+CREATE INDEX idx_user_block_changed_at ON user_ (block_changed_at);
 
 create table order_
 (
@@ -65,10 +72,34 @@ create table order_book (
     date_return_upto date,
     date_returned_book date,
     book_id int not null,
+    version bigint not null default 0,
     constraint fk_order foreign key (order_id) references order_ (id),
     constraint fk_book foreign key (book_id) references book (id)
 );
 
+-- Ячейки доступных экземпляров популярных книг (setting.stock.slots.enabled),
+-- доступно всего = book.available + сумма ячеек книги
+create table book_stock_slot (
+    book_id int not null,
+    slot int not null,
+    available int not null check (available >= 0),
+    primary key (book_id, slot),
+    constraint fk_book foreign key (book_id) references book (id) on delete cascade
+);
+
+-- Номер последней записи журнала StockLedger, записанной в book (setting.stock.ledger.enabled)
+create table stock_ledger_checkpoint (
+    id int primary key,
+    seq bigint not null
+);
+
+-- Идентификаторы заказов и жанров книг выделяются Hibernate пачками по 50 (pooled),
+-- шаг последовательности должен совпадать с allocationSize сущностей Book, Author, Order, OrderBook и GenreBook
+ALTER SEQUENCE book_id_seq INCREMENT BY 50;
+ALTER SEQUENCE author_id_seq INCREMENT BY 50;
+ALTER SEQUENCE order__id_seq INCREMENT BY 50;
+ALTER SEQUENCE order_book_id_seq INCREMENT BY 50;
+ALTER SEQUENCE genre_book_id_seq INCREMENT BY 50;
 
 -- create table order_book
 -- (
@@ -0,0 +1,124 @@
+package ru.olympusnsp.library.configuration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordEncoderConfigurationTest {
+
+    private PasswordEncoderConfiguration configuration;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        configuration = new PasswordEncoderConfiguration();
+        meterRegistry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(configuration, "encoderId", PasswordEncoderConfiguration.BCRYPT);
+        ReflectionTestUtils.setField(configuration, "bcryptStrength", 5);
+        // Минимальные параметры Argon2, чтобы тест не тратил время на хеширование
+        ReflectionTestUtils.setField(configuration, "argon2SaltLength", 16);
+        ReflectionTestUtils.setField(configuration, "argon2HashLength", 32);
+        ReflectionTestUtils.setField(configuration, "argon2Parallelism", 1);
+        ReflectionTestUtils.setField(configuration, "argon2MemoryKb", 1024);
+        ReflectionTestUtils.setField(configuration, "argon2Iterations", 1);
+    }
+
+    @Test
+    @DisplayName("passwordEncoder - старый хеш BCrypt без префикса принимается и требует перехеширования")
+    void passwordEncoder_AcceptsLegacyBcryptAndRequestsUpgrade() {
+        var encoder = configuration.passwordEncoder(meterRegistry);
+        var legacy = new BCryptPasswordEncoder(4).encode("secret");
+
+        assertTrue(encoder.matches("secret", legacy));
+        assertFalse(encoder.matches("wrong", legacy));
+        assertTrue(encoder.upgradeEncoding(legacy));
+
+        var current = encoder.encode("secret");
+        assertTrue(current.startsWith("{bcrypt}"));
+        assertFalse(encoder.upgradeEncoding(current));
+        assertEquals(1, meterRegistry.get("library.password.hash").tag("operation", "encode").timer().count());
+        assertEquals(2, meterRegistry.get("library.password.hash").tag("operation", "matches").timer().count());
+    }
+
+    @Test
+    @DisplayName("passwordEncoder - при переходе на Argon2 хеши BCrypt перехешируются")
+    void passwordEncoder_SwitchToArgon2() {
+        var bcryptHash = configuration.passwordEncoder(meterRegistry).encode("secret");
+        ReflectionTestUtils.setField(configuration, "encoderId", PasswordEncoderConfiguration.ARGON2);
+        var encoder = configuration.passwordEncoder(new SimpleMeterRegistry());
+
+        assertTrue(encoder.matches("secret", bcryptHash));
+        assertTrue(encoder.upgradeEncoding(bcryptHash));
+        var argon2Hash = encoder.encode("secret");
+        assertTrue(argon2Hash.startsWith("{argon2}"));
+        assertTrue(encoder.matches("secret", argon2Hash));
+    }
+
+    @Test
+    @DisplayName("passwordEncoder - неизвестный алгоритм в настройках отклоняется при старте")
+    void passwordEncoder_RejectsUnknownAlgorithm() {
+        ReflectionTestUtils.setField(configuration, "encoderId", "md5");
+
+        assertThrows(IllegalStateException.class, () -> configuration.passwordEncoder(meterRegistry));
+    }
+
+    @Test
+    @DisplayName("passwordHashExecutor - при заполненной очереди задача отклоняется")
+    void passwordHashExecutor_RejectsWhenQueueIsFull() throws InterruptedException {
+        ReflectionTestUtils.setField(configuration, "executorThreads", 1);
+        ReflectionTestUtils.setField(configuration, "executorQueueCapacity", 1);
+        var executor = configuration.passwordHashExecutor();
+        executor.initialize();
+        var release = new CountDownLatch(1);
+        try {
+            executor.execute(() -> awaitQuietly(release));
+            executor.execute(() -> awaitQuietly(release));
+
+            assertThrows(TaskRejectedException.class, () -> executor.execute(() -> { }));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("passwordHashExecutor - не отключает applicationTaskExecutor Spring Boot")
+    void passwordHashExecutor_KeepsApplicationTaskExecutor() {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(TaskExecutionAutoConfiguration.class))
+                .withUserConfiguration(PasswordEncoderConfiguration.class)
+                .withBean(SimpleMeterRegistry.class)
+                .withPropertyValues("setting.password.encoder=bcrypt", "setting.password.bcrypt.strength=4",
+                        "setting.password.argon2.salt-length=16", "setting.password.argon2.hash-length=32",
+                        "setting.password.argon2.parallelism=1", "setting.password.argon2.memory-kb=1024",
+                        "setting.password.argon2.iterations=1", "setting.password.executor.threads=1",
+                        "setting.password.executor.queue-capacity=1")
+                .run(context -> {
+                    assertTrue(context.containsBean(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME));
+                    // Executor без квалификатора - пул приложения, пул хеширования внедряется только по имени
+                    assertSame(context.getBean(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME),
+                            context.getBean(Executor.class));
+                    assertNotSame(context.getBean("passwordHashExecutor"), context.getBean(Executor.class));
+                });
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
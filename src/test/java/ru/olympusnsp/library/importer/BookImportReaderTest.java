@@ -0,0 +1,114 @@
+package ru.olympusnsp.library.importer;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.olympusnsp.library.exeption.BookImportException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookImportReaderTest {
+
+    private static List<BookImportRecord> readAll(String content, BookImportFormat format) throws IOException {
+        var records = new ArrayList<BookImportRecord>();
+        try (var reader = BookImportReader.open(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), format)) {
+            BookImportRecord record;
+            while ((record = reader.next()) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    @Test
+    @DisplayName("CSV - колонки по заголовку, авторы и жанры через точку с запятой")
+    void csv_ReadsColumnsByHeader() throws IOException {
+        var records = readAll("""
+                genres,count,title,authors,year,description
+                Роман;Классика,3,Война и мир,Лев Толстой,1869,Роман-эпопея о войне 1812 года
+                """, BookImportFormat.CSV);
+
+        assertEquals(1, records.size());
+        var record = records.get(0);
+        assertNull(record.getError());
+        assertEquals(2, record.getLine());
+        assertEquals("Война и мир", record.getTitle());
+        assertEquals((short) 1869, record.getYear());
+        assertEquals(3, record.getCount());
+        assertEquals("Роман-эпопея о войне 1812 года", record.getDescription());
+        assertEquals(List.of("Лев Толстой"), record.getAuthors());
+        assertEquals(List.of("Роман", "Классика"), record.getGenres());
+    }
+
+    @Test
+    @DisplayName("CSV - кавычки, запятые и переводы строк внутри значения, CRLF, номер строки записи")
+    void csv_QuotedValues() throws IOException {
+        var records = readAll("title,year,description,count,authors\r\n"
+                + "\"Книга, с запятой\",2001,\"Первая строка\nвторая \"\"в кавычках\"\"\",1,\"Автор Один; Автор Два\"\r\n"
+                + "\r\n"
+                + "Следующая,2002,Описание следующей книги,2,Автор Три\r\n", BookImportFormat.CSV);
+
+        assertEquals(2, records.size());
+        assertEquals("Книга, с запятой", records.get(0).getTitle());
+        assertEquals("Первая строка\nвторая \"в кавычках\"", records.get(0).getDescription());
+        assertEquals(List.of("Автор Один", "Автор Два"), records.get(0).getAuthors());
+        assertEquals(List.of(), records.get(0).getGenres());
+        assertEquals(2, records.get(0).getLine());
+        assertEquals("Следующая", records.get(1).getTitle());
+        assertEquals(5, records.get(1).getLine());
+    }
+
+    @Test
+    @DisplayName("CSV - ошибка в строке не прерывает чтение")
+    void csv_RowErrors() throws IOException {
+        var records = readAll("""
+                title,year,description,count,authors
+                Книга,не год,Описание книги,1,Автор
+                Книга,2000,Описание книги
+                Книга,2000,Описание книги,1,Автор
+                "Незакрытая,2000,Описание,1,Автор
+                """, BookImportFormat.CSV);
+
+        assertEquals(4, records.size());
+        assertTrue(records.get(0).getError().startsWith("Некорректное число"));
+        assertEquals(2, records.get(0).getLine());
+        assertTrue(records.get(1).getError().startsWith("Ожидалось колонок: 5"));
+        assertNull(records.get(2).getError());
+        assertEquals("Незакрытая кавычка", records.get(3).getError());
+        assertEquals(5, records.get(3).getLine());
+    }
+
+    @Test
+    @DisplayName("CSV - без обязательной колонки файл отклоняется")
+    void csv_MissingColumn() {
+        var exception = assertThrows(BookImportException.class,
+                () -> readAll("title,year,description,authors\n", BookImportFormat.CSV));
+        assertEquals("В заголовке CSV нет колонки count", exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("NDJSON - объект на строку, некорректный JSON - ошибка строки")
+    void ndjson_ReadsLines() throws IOException {
+        var records = readAll("""
+                {"title":"Война и мир","year":1869,"description":"Роман-эпопея","count":3,"authors":["Лев Толстой"],"genres":["Роман"],"isbn":"x"}
+
+                {"title":"Сломанная",
+                {"title":"Анна Каренина","year":1877,"description":"Роман","count":1,"authors":["Лев Толстой"]}
+                """, BookImportFormat.NDJSON);
+
+        assertEquals(3, records.size());
+        assertEquals("Война и мир", records.get(0).getTitle());
+        assertEquals(List.of("Роман"), records.get(0).getGenres());
+        assertEquals(1, records.get(0).getLine());
+        assertTrue(records.get(1).getError().startsWith("Некорректный JSON"));
+        assertEquals(3, records.get(1).getLine());
+        assertEquals("Анна Каренина", records.get(2).getTitle());
+        assertNull(records.get(2).getGenres());
+        assertEquals(4, records.get(2).getLine());
+    }
+}
@@ -0,0 +1,227 @@
+package ru.olympusnsp.library.ledger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.olympusnsp.library.model.Book;
+import ru.olympusnsp.library.model.StockLedgerCheckpoint;
+import ru.olympusnsp.library.repository.BookRepository;
+import ru.olympusnsp.library.repository.StockLedgerCheckpointRepository;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Счетчики в памяти и журнал на H2. Экземпляры StockLedger создаются в тесте: сбой моделируется тем,
+ * что первый экземпляр бросается без close, а второй восстанавливается из того же каталога
+ */
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:ledger;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=YEAR,VALUE")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockLedgerTest {
+
+    @TempDir
+    Path directory;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private StockLedgerCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private StockLedger ledger;
+
+    @BeforeEach
+    void setUp() {
+        ledger = start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DELETE FROM stock_ledger_checkpoint");
+        jdbcTemplate.execute("DELETE FROM book");
+    }
+
+    private StockLedger start() {
+        var started = new StockLedger(bookRepository, checkpointRepository, transactionTemplate, directory.toString(), true);
+        started.recover();
+        return started;
+    }
+
+    private Integer saveBook(int available) {
+        return bookRepository.save(Book.builder().title("Бестселлер").year((short) 2025)
+                .description("Описание популярной книги").count(available).available(available).reserve(0).build()).getId();
+    }
+
+    private int bookAvailable(Integer bookId) {
+        return jdbcTemplate.queryForObject("SELECT available FROM book WHERE id = ?", Integer.class, bookId);
+    }
+
+    private int bookReserve(Integer bookId) {
+        return jdbcTemplate.queryForObject("SELECT reserve FROM book WHERE id = ?", Integer.class, bookId);
+    }
+
+    private long checkpoint() {
+        return checkpointRepository.findById(StockLedgerCheckpoint.ID).map(StockLedgerCheckpoint::getSeq).orElse(0L);
+    }
+
+    @Test
+    @DisplayName("take и reserve меняют счетчики в памяти, в book изменения попадают при flush вместе с номером журнала")
+    void takeAndReserve_WrittenOnFlush() {
+        var bookId = saveBook(5);
+
+        assertTrue(ledger.take(bookId, 2));
+        assertTrue(ledger.reserve(bookId));
+        assertFalse(ledger.take(bookId, 3));
+        assertFalse(ledger.take(-1, 1));
+
+        assertEquals(new StockLedger.Stock(2, 1), ledger.stock(bookId));
+        assertEquals(5, bookAvailable(bookId));
+
+        ledger.flush();
+
+        assertEquals(2, bookAvailable(bookId));
+        assertEquals(1, bookReserve(bookId));
+        assertEquals(2, checkpoint());
+        ledger.close();
+    }
+
+    @Test
+    @DisplayName("После сбоя записи журнала после сохраненного номера применяются к book, уже записанные - нет")
+    void recover_ReplaysRecordsAfterCheckpoint() {
+        var bookId = saveBook(10);
+        assertTrue(ledger.take(bookId, 2));
+        ledger.flush();
+        assertTrue(ledger.take(bookId, 1));
+        ledger.apply(bookId, 0, 1);
+        // Сбой: накопленные изменения не записаны в book, первый экземпляр не закрывается
+
+        var recovered = start();
+
+        assertEquals(7, bookAvailable(bookId));
+        assertEquals(1, bookReserve(bookId));
+        assertEquals(3, checkpoint());
+        assertTrue(recovered.take(bookId, 7));
+        recovered.close();
+        assertEquals(0, bookAvailable(bookId));
+
+        // Журнал записан в book полностью, повторный запуск ничего не применяет
+        start().close();
+        assertEquals(0, bookAvailable(bookId));
+    }
+
+    @Test
+    @DisplayName("При откате транзакции списание отменяется, журнал пишется на диск до фиксации")
+    void rollback_Compensates() {
+        var bookId = saveBook(3);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            assertTrue(ledger.take(bookId, 3));
+            status.setRollbackOnly();
+        });
+        assertEquals(3, ledger.stock(bookId).available());
+
+        transactionTemplate.executeWithoutResult(status -> assertTrue(ledger.take(bookId, 1)));
+        assertEquals(2, ledger.stock(bookId).available());
+
+        // Сбой без flush: зафиксированное списание и отмена откаченного восстанавливаются из журнала
+        start().close();
+        assertEquals(2, bookAvailable(bookId));
+    }
+
+    @Test
+    @DisplayName("Возврат виден другим заказам только после фиксации, откаченный возврат не уводит остаток в минус")
+    void release_VisibleOnlyAfterCommit() throws Exception {
+        var bookId = saveBook(1);
+        assertTrue(ledger.take(bookId, 1));
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                ledger.apply(bookId, 1, 0);
+                assertEquals(1, ledger.stock(bookId).available()); // Своя транзакция видит возврат
+                // Параллельный заказ не видит экземпляр, возврат которого еще не зафиксирован
+                assertFalse(futureValue(executor.submit(() -> ledger.take(bookId, 1))));
+                status.setRollbackOnly();
+            });
+            assertEquals(0, ledger.stock(bookId).available());
+
+            transactionTemplate.executeWithoutResult(status -> ledger.apply(bookId, 1, 0));
+            assertEquals(1, ledger.stock(bookId).available());
+            assertTrue(futureValue(executor.submit(() -> ledger.take(bookId, 1))));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, ledger.stock(bookId).available());
+
+        ledger.close();
+        assertEquals(0, bookAvailable(bookId));
+    }
+
+    private static <T> T futureValue(Future<T> future) {
+        try {
+            return future.get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    @DisplayName("Параллельные списания не продают больше, чем есть")
+    void take_Concurrent_NeverOversells() throws Exception {
+        int stock = 40;
+        int threads = 8;
+        int attempts = 20;
+        var bookId = saveBook(stock);
+        var taken = new AtomicInteger();
+        var executor = Executors.newFixedThreadPool(threads);
+        var start = new CountDownLatch(1);
+        var futures = new ArrayList<Future<?>>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < attempts; i++) {
+                        if (Boolean.TRUE.equals(transactionTemplate.execute(status -> ledger.take(bookId, 1)))) {
+                            taken.incrementAndGet();
+                        }
+                        if (i % 5 == 0) {
+                            ledger.flush();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (var future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        ledger.close();
+
+        assertEquals(stock, taken.get());
+        assertEquals(0, bookAvailable(bookId));
+        assertEquals(List.of(), StockWal.read(directory).stream().filter(entry -> entry.seq() <= checkpoint()).toList());
+    }
+}
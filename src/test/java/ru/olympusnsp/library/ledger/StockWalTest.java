@@ -0,0 +1,96 @@
+package ru.olympusnsp.library.ledger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StockWalTest {
+
+    @TempDir
+    Path directory;
+
+    private List<Path> segments() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    @Test
+    @DisplayName("Записи читаются в порядке номеров, нумерация продолжается с переданного номера")
+    void appendSyncRead() throws IOException {
+        var wal = new StockWal(directory, true, 10);
+        assertEquals(11, wal.append(1, -1, 1));
+        assertEquals(12, wal.append(2, -2, 0));
+        wal.sync(12);
+
+        assertEquals(List.of(new StockWal.Entry(11, 1, -1, 1), new StockWal.Entry(12, 2, -2, 0)), StockWal.read(directory));
+        wal.close();
+    }
+
+    @Test
+    @DisplayName("Записи, не записанные sync, на диске не видны")
+    void unsyncedRecordsStayInMemory() throws IOException {
+        var wal = new StockWal(directory, true, 0);
+        wal.sync(wal.append(1, -1, 0));
+        wal.append(1, -1, 0);
+
+        assertEquals(1, StockWal.read(directory).size());
+        wal.close();
+    }
+
+    @Test
+    @DisplayName("Оборванная запись в конце сегмента пропускается")
+    void tornTailIsSkipped() throws IOException {
+        var wal = new StockWal(directory, true, 0);
+        wal.append(1, -1, 0);
+        wal.append(1, 3, -1);
+        wal.close();
+        var segment = segments().get(0);
+        Files.write(segment, new byte[]{0, 0, 0, 0, 0, 0, 0, 3, 0, 0}, StandardOpenOption.APPEND);
+
+        assertEquals(List.of(new StockWal.Entry(1, 1, -1, 0), new StockWal.Entry(2, 1, 3, -1)), StockWal.read(directory));
+    }
+
+    @Test
+    @DisplayName("Запись с неверной контрольной суммой и все после нее пропускаются")
+    void corruptedRecordStopsSegment() throws IOException {
+        var wal = new StockWal(directory, true, 0);
+        wal.append(1, -1, 0);
+        wal.append(2, -1, 0);
+        wal.close();
+        var segment = segments().get(0);
+        var bytes = Files.readAllBytes(segment);
+        bytes[StockWal.RECORD_SIZE + Long.BYTES] ^= 1;
+        Files.write(segment, bytes);
+
+        assertEquals(List.of(new StockWal.Entry(1, 1, -1, 0)), StockWal.read(directory));
+    }
+
+    @Test
+    @DisplayName("rotate начинает новый сегмент, удаляются только сегменты до переданного номера")
+    void rotateAndDeleteClosedSegments() throws IOException {
+        var wal = new StockWal(directory, true, 0);
+        wal.append(1, -1, 0);
+        wal.append(1, -1, 0);
+        assertEquals(2, wal.rotate());
+        wal.append(1, -1, 0);
+        assertEquals(3, wal.rotate());
+        wal.append(1, 2, 0);
+        wal.sync(4);
+        assertEquals(3, segments().size());
+
+        wal.deleteClosedSegments(2);
+
+        assertEquals(List.of(directory.resolve("stock-3.wal"), directory.resolve("stock-4.wal")), segments());
+        assertEquals(List.of(new StockWal.Entry(3, 1, -1, 0), new StockWal.Entry(4, 1, 2, 0)), StockWal.read(directory));
+        wal.close();
+    }
+}
@@ -0,0 +1,286 @@
+package ru.olympusnsp.library.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.olympusnsp.library.model.OrderBook.OrderBookStatus;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Нагрузочный тест через настоящие контроллеры, фильтр JWT и сервисы, база - H2 в памяти.
+ * Потоки-читатели параллельно просматривают каталог, заказывают книги и меняют статусы своих заказов.
+ * После прогона проверяется согласованность счетчиков книг и пользователей с заказанными книгами.
+ * Запуск: mvn -Pload-test test, параметры: -Dload.threads, -Dload.duration (сек), -Dload.books, -Dload.stock
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:load;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=YEAR,VALUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create",
+        "logging.level.ru.olympusnsp.library=WARN",
+        "logging.level.org.hibernate.engine.jdbc.spi.SqlExceptionHelper=OFF"
+})
+class LibraryLoadTest {
+
+    private static final int THREADS = Integer.getInteger("load.threads", 16);
+    private static final Duration DURATION = Duration.ofSeconds(Integer.getInteger("load.duration", 20));
+    private static final int BOOKS = Integer.getInteger("load.books", 20);
+    // Мало экземпляров на книгу, чтобы заказы конкурировали за последние экземпляры
+    private static final int STOCK = Integer.getInteger("load.stock", 3);
+    private static final String PASSWORD = "password-load-test";
+    private static final Set<OrderBookStatus> ACTIVE = EnumSet.of(
+            OrderBookStatus.CREATED, OrderBookStatus.PREPARED, OrderBookStatus.RENTED);
+
+    @LocalServerPort
+    private int port;
+
+    @Value("${setting.order.max-rental-books}")
+    private int maxRentalBooks;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(Duration.ofSeconds(5)).build();
+    private final LoadRecorder recorder = new LoadRecorder();
+
+    /**
+     * Пользователь нагрузочного теста и его незавершенные заказанные книги
+     */
+    private static class Reader {
+        final int id;
+        final String token;
+        final Map<Long, OrderBookStatus> orderBooks = new HashMap<>();
+
+        Reader(int id, String token) {
+            this.id = id;
+            this.token = token;
+        }
+    }
+
+    @Test
+    @DisplayName("Смешанная нагрузка: каталог, заказы и смена статусов без перерасхода и рассогласования счетчиков")
+    void mixedLoad_KeepsCountersConsistent() throws Exception {
+        var bookIds = createCatalog();
+        var readers = new ArrayList<Reader>();
+        for (int i = 0; i < THREADS; i++) {
+            readers.add(signUp("loadreader" + i));
+        }
+
+        var executor = Executors.newFixedThreadPool(THREADS);
+        long deadline = System.nanoTime() + DURATION.toNanos();
+        long started = System.nanoTime();
+        var workers = new ArrayList<Future<?>>();
+        for (Reader reader : readers) {
+            workers.add(executor.submit(() -> {
+                var random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    step(reader, bookIds, random);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        var elapsed = Duration.ofNanos(System.nanoTime() - started);
+        executor.shutdown();
+
+        var violations = checkConsistency(bookIds);
+        System.out.printf("Load test: %d threads, %d books x %d copies%n%s", THREADS, BOOKS, STOCK, recorder.report(elapsed));
+        System.out.println("Consistency violations: " + (violations.isEmpty() ? "none" : String.join("; ", violations)));
+
+        assertTrue(violations.isEmpty(), String.join("\n", violations));
+        assertEquals(0, recorder.count(LoadRecorder.ERROR), "Server errors during the run");
+        assertTrue(recorder.count("order", LoadRecorder.OK) > 0, "No order succeeded");
+    }
+
+    /**
+     * Одно действие читателя: 60% - просмотр каталога, 20% - заказ, 20% - смена статуса своей книги
+     */
+    private void step(Reader reader, List<Integer> bookIds, ThreadLocalRandom random) throws Exception {
+        int roll = random.nextInt(100);
+        if (roll < 35) {
+            send("book-page", get("/book?page=" + random.nextInt(Math.max(1, BOOKS / 20)) + "&size=20"));
+        } else if (roll < 50) {
+            send("book-cursor", get("/book/cursor?size=20"));
+        } else if (roll < 60) {
+            send("book", get("/book/" + bookIds.get(random.nextInt(bookIds.size()))));
+        } else if (roll < 80 && reader.orderBooks.size() < maxRentalBooks) {
+            order(reader, bookIds, random);
+        } else if (!reader.orderBooks.isEmpty()) {
+            changeStatus(reader, random);
+        }
+    }
+
+    private void order(Reader reader, List<Integer> bookIds, ThreadLocalRandom random) throws Exception {
+        int size = Math.min(1 + random.nextInt(2), maxRentalBooks - reader.orderBooks.size());
+        var books = new ArrayList<Integer>();
+        for (int i = 0; i < size; i++) {
+            books.add(bookIds.get(random.nextInt(bookIds.size())));
+        }
+        var body = objectMapper.writeValueAsString(Map.of("user_id", reader.id, "book_ids", books));
+        var response = send("order", authorized(reader, "/order").POST(HttpRequest.BodyPublishers.ofString(body)));
+        if (response.statusCode() == 200) {
+            for (JsonNode orderBook : objectMapper.readTree(response.body()).path("orderBooks")) {
+                reader.orderBooks.put(orderBook.path("id").asLong(), OrderBookStatus.valueOf(orderBook.path("status").asText()));
+            }
+        }
+    }
+
+    /**
+     * Жизненный цикл заказанной книги: подготовка или отмена, выдача, возврат; изредка книга не находится в библиотеке
+     */
+    private void changeStatus(Reader reader, ThreadLocalRandom random) throws Exception {
+        var ids = new ArrayList<>(reader.orderBooks.keySet());
+        long id = ids.get(random.nextInt(ids.size()));
+        var current = reader.orderBooks.get(id);
+        int roll = random.nextInt(100);
+        var next = switch (current) {
+            case CREATED -> roll < 75 ? OrderBookStatus.PREPARED : roll < 95 ? OrderBookStatus.CANCELLED : OrderBookStatus.LOSSLIBRARY;
+            case PREPARED -> roll < 85 ? OrderBookStatus.RENTED : OrderBookStatus.CANCELLED;
+            default -> OrderBookStatus.RETURNED;
+        };
+        var body = objectMapper.writeValueAsString(Map.of("status", next));
+        var response = send("status", authorized(reader, "/order/orderbook/" + id).PUT(HttpRequest.BodyPublishers.ofString(body)));
+        if (response.statusCode() == 200) {
+            if (ACTIVE.contains(next)) {
+                reader.orderBooks.put(id, next);
+            } else {
+                reader.orderBooks.remove(id);
+            }
+        }
+    }
+
+    /**
+     * Счетчики должны совпадать с заказанными книгами:
+     * Book.available = count - активные заказы, Book.reserve = подготовленные, Book.count = STOCK - потерянные,
+     * User.bookRented = активные заказы пользователя, не больше лимита
+     */
+    private List<String> checkConsistency(List<Integer> bookIds) {
+        var violations = new ArrayList<String>();
+        var byBook = new HashMap<Integer, EnumMap<OrderBookStatus, Integer>>();
+        jdbcTemplate.query("SELECT book_id, status, count(*) AS amount FROM order_book GROUP BY book_id, status", row -> {
+            byBook.computeIfAbsent(row.getInt("book_id"), id -> new EnumMap<>(OrderBookStatus.class))
+                    .put(OrderBookStatus.values()[row.getInt("status")], row.getInt("amount"));
+        });
+        jdbcTemplate.query("SELECT id, count, available, reserve FROM book", row -> {
+            int id = row.getInt("id");
+            var statuses = byBook.getOrDefault(id, new EnumMap<>(OrderBookStatus.class));
+            int active = 0;
+            for (OrderBookStatus status : ACTIVE) {
+                active += statuses.getOrDefault(status, 0);
+            }
+            int lost = statuses.getOrDefault(OrderBookStatus.LOSSLIBRARY, 0) + statuses.getOrDefault(OrderBookStatus.LOSSUSER, 0);
+            int count = row.getInt("count");
+            int available = row.getInt("available");
+            int reserve = row.getInt("reserve");
+            if (available < 0) {
+                violations.add("book " + id + " oversold: available " + available);
+            }
+            if (available != count - active) {
+                violations.add("book " + id + ": available " + available + ", expected " + (count - active));
+            }
+            if (reserve != statuses.getOrDefault(OrderBookStatus.PREPARED, 0)) {
+                violations.add("book " + id + ": reserve " + reserve + ", prepared " + statuses.getOrDefault(OrderBookStatus.PREPARED, 0));
+            }
+            if (count != STOCK - lost) {
+                violations.add("book " + id + ": count " + count + ", expected " + (STOCK - lost));
+            }
+        });
+        var activeByUser = new HashMap<Integer, Integer>();
+        jdbcTemplate.query("SELECT o.user_id, ob.status FROM order_book ob JOIN order_ o ON o.id = ob.order_id", row -> {
+            if (ACTIVE.contains(OrderBookStatus.values()[row.getInt("status")])) {
+                activeByUser.merge(row.getInt("user_id"), 1, Integer::sum);
+            }
+        });
+        jdbcTemplate.query("SELECT id, book_rented FROM user_", row -> {
+            int id = row.getInt("id");
+            int rented = row.getInt("book_rented");
+            int expected = activeByUser.getOrDefault(id, 0);
+            if (rented != expected) {
+                violations.add("user " + id + ": bookRented " + rented + ", active order books " + expected);
+            }
+            if (rented > maxRentalBooks) {
+                violations.add("user " + id + ": bookRented " + rented + " exceeds limit " + maxRentalBooks);
+            }
+        });
+        return violations;
+    }
+
+    private List<Integer> createCatalog() throws Exception {
+        send("setup", post("/author/", Map.of("fullname", "Load Test Author")));
+        send("setup", post("/genre/", Map.of("text", "Load Test Genre")));
+        var ids = new ArrayList<Integer>();
+        for (int i = 0; i < BOOKS; i++) {
+            var response = send("setup", post("/book", Map.of(
+                    "title", "Load test book " + i,
+                    "year", 2000,
+                    "description", "Book created by the load test suite",
+                    "count", STOCK,
+                    "authorsId", List.of(1),
+                    "genresId", List.of(1))));
+            ids.add(objectMapper.readTree(response.body()).path("id").asInt());
+        }
+        return ids;
+    }
+
+    private Reader signUp(String username) throws Exception {
+        var response = send("setup", post("/auth/sign-up", Map.of(
+                "username", username, "email", username + "@example.com", "password", PASSWORD)));
+        var token = objectMapper.readTree(response.body()).path("token").asText();
+        var id = jdbcTemplate.queryForObject("SELECT id FROM user_ WHERE username = ?", Integer.class, username);
+        return new Reader(id, token);
+    }
+
+    private HttpRequest.Builder get(String path) {
+        return HttpRequest.newBuilder(uri(path)).GET();
+    }
+
+    private HttpRequest.Builder post(String path, Object body) throws Exception {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)));
+    }
+
+    private HttpRequest.Builder authorized(Reader reader, String path) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + reader.token);
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private HttpResponse<String> send(String operation, HttpRequest.Builder request) throws Exception {
+        long start = System.nanoTime();
+        var response = client.send(request.timeout(Duration.ofSeconds(30)).build(), HttpResponse.BodyHandlers.ofString());
+        if (!operation.equals("setup")) {
+            recorder.record(operation, System.nanoTime() - start, response.statusCode());
+        } else if (response.statusCode() != 200) {
+            throw new IllegalStateException("Setup request failed: " + response.statusCode() + " " + response.body());
+        }
+        return response;
+    }
+}
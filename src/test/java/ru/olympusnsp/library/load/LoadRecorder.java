@@ -0,0 +1,83 @@
+package ru.olympusnsp.library.load;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время ответа и исход запросов нагрузочного теста по операциям.
+ * Исход: ok - 2xx, rejected - отказ по правилам библиотеки (4xx), error - 5xx или ошибка соединения
+ */
+class LoadRecorder {
+
+    static final String OK = "ok";
+    static final String REJECTED = "rejected";
+    static final String ERROR = "error";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> outcomes = new ConcurrentHashMap<>();
+
+    void record(String operation, long nanos, int status) {
+        timers.computeIfAbsent(operation, op -> Timer.builder("load.request")
+                        .tag("operation", op)
+                        .publishPercentiles(0.5, 0.95, 0.99)
+                        .distributionStatisticExpiry(Duration.ofDays(1))
+                        .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+        var outcome = status >= 200 && status < 300 ? OK : status >= 400 && status < 500 ? REJECTED : ERROR;
+        outcomes.computeIfAbsent(operation + "/" + outcome, key -> Counter.builder("load.outcome")
+                        .tag("operation", operation)
+                        .tag("outcome", outcome)
+                        .register(registry))
+                .increment();
+    }
+
+    long count(String outcome) {
+        long total = 0;
+        for (var entry : outcomes.entrySet()) {
+            if (entry.getKey().endsWith("/" + outcome)) {
+                total += (long) entry.getValue().count();
+            }
+        }
+        return total;
+    }
+
+    long count(String operation, String outcome) {
+        var counter = outcomes.get(operation + "/" + outcome);
+        return counter == null ? 0 : (long) counter.count();
+    }
+
+    /**
+     * Таблица по операциям: количество, пропускная способность, перцентили и исходы
+     */
+    String report(Duration elapsed) {
+        var report = new StringBuilder(String.format(Locale.ROOT, "%-14s %8s %9s %9s %9s %9s %9s %9s %7s%n",
+                "operation", "requests", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "rejected", "errors"));
+        long requests = 0;
+        for (var entry : new TreeMap<>(timers).entrySet()) {
+            var snapshot = entry.getValue().takeSnapshot();
+            var percentiles = new double[3];
+            int i = 0;
+            for (ValueAtPercentile value : snapshot.percentileValues()) {
+                percentiles[i++] = value.value(TimeUnit.MILLISECONDS);
+            }
+            requests += snapshot.count();
+            report.append(String.format(Locale.ROOT, "%-14s %8d %9.1f %9.2f %9.2f %9.2f %9.2f %9d %7d%n",
+                    entry.getKey(), snapshot.count(), snapshot.count() * 1000.0 / elapsed.toMillis(),
+                    percentiles[0], percentiles[1], percentiles[2], snapshot.max(TimeUnit.MILLISECONDS),
+                    count(entry.getKey(), REJECTED), count(entry.getKey(), ERROR)));
+        }
+        report.append(String.format(Locale.ROOT, "total %d requests in %d ms, %.1f req/s%n",
+                requests, elapsed.toMillis(), requests * 1000.0 / elapsed.toMillis()));
+        return report.toString();
+    }
+}
@@ -0,0 +1,182 @@
+package ru.olympusnsp.library.load;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.olympusnsp.library.model.Book;
+import ru.olympusnsp.library.repository.BookRepository;
+import ru.olympusnsp.library.service.BookStockSlots;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Параллельные заказы одной книги: одна строка book против ячеек BookStockSlots, база - H2 в памяти.
+ * Каждое списание - транзакция, которая после списания держит блокировки load.stock-hold-ms
+ * (вставка заказа и заказанных книг в createNewOrder). Выводит пропускную способность по количеству ячеек
+ * и проверяет, что списано не больше, чем было, и остаток совпадает с количеством списаний.
+ * Запуск: mvn -Pload-test test -Dtest=StockSlotsStressTest, параметры: -Dload.threads, -Dload.duration (сек)
+ */
+@Tag("load")
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:stock-stress;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=YEAR,VALUE",
+        "setting.stock.slots.enabled=true",
+        "setting.stock.slots.max=64",
+        "logging.level.org.hibernate.engine.jdbc.spi.SqlExceptionHelper=OFF"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(BookStockSlots.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockSlotsStressTest {
+
+    private static final int THREADS = Integer.getInteger("load.threads", 16);
+    private static final Duration DURATION = Duration.ofSeconds(Integer.getInteger("load.duration", 5));
+    private static final long HOLD_MS = Long.getLong("load.stock-hold-ms", 2);
+    private static final int[] SLOTS = {1, 4, 16};
+
+    @Autowired
+    private BookStockSlots stockSlots;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DELETE FROM book_stock_slot");
+        jdbcTemplate.execute("DELETE FROM book");
+        stockSlots.load();
+    }
+
+    private Integer saveBook(int available) {
+        return bookRepository.save(Book.builder().title("Бестселлер").year((short) 2025)
+                .description("Описание популярной книги").count(available).available(available).reserve(0).build()).getId();
+    }
+
+    private int totalAvailable(Integer bookId) {
+        return jdbcTemplate.queryForObject("SELECT available FROM book WHERE id = ?", Integer.class, bookId)
+                + jdbcTemplate.queryForObject("SELECT coalesce(sum(available), 0) FROM book_stock_slot WHERE book_id = ?", Integer.class, bookId);
+    }
+
+    /**
+     * Списание одного экземпляра, 1 ячейка - прежний условный UPDATE строки book
+     */
+    private boolean take(Integer bookId, int slots) {
+        while (true) {
+            try {
+                return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                    boolean taken = slots <= 1
+                            ? bookRepository.decrementAvailable(bookId, 1) == 1
+                            : stockSlots.take(bookId, 1);
+                    hold();
+                    return taken;
+                }));
+            } catch (ConcurrencyFailureException e) {
+                // Откат взаимной блокировки ничего не меняет, повтор как в RetryingOrderService
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private static void hold() {
+        try {
+            Thread.sleep(HOLD_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Прогон на время DURATION или до окончания экземпляров
+     *
+     * @return количество успешных списаний
+     */
+    private long run(Integer bookId, int slots) throws Exception {
+        var taken = new AtomicLong();
+        var deadline = System.nanoTime() + DURATION.toNanos();
+        var executor = Executors.newFixedThreadPool(THREADS);
+        var start = new CountDownLatch(1);
+        var futures = new ArrayList<Future<?>>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    while (System.nanoTime() < deadline) {
+                        if (!take(bookId, slots)) {
+                            break;
+                        }
+                        taken.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (var future : futures) {
+                future.get(DURATION.toSeconds() + 60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return taken.get();
+    }
+
+    @Test
+    @DisplayName("Пропускная способность списаний растет с количеством ячеек, лишнего не списывается")
+    void throughputScalesWithSlots() throws Exception {
+        var throughput = new LinkedHashMap<Integer, Double>();
+        for (int slots : SLOTS) {
+            int stock = 1_000_000;
+            var bookId = saveBook(stock);
+            if (slots > 1) {
+                stockSlots.stripe(bookId, slots);
+            }
+            long started = System.nanoTime();
+            long taken = run(bookId, slots);
+            double seconds = (System.nanoTime() - started) / 1e9;
+            throughput.put(slots, taken / seconds);
+            assertEquals(stock - taken, totalAvailable(bookId), "slots " + slots);
+        }
+        var report = new StringBuilder();
+        throughput.forEach((slots, rate) -> report.append(String.format(Locale.ROOT, "%6d slots: %10.1f ops/s%n", slots, rate)));
+        System.out.printf("Stock slots stress: %d threads, hold %d ms%n%s", THREADS, HOLD_MS, report);
+        assertTrue(throughput.get(16) > throughput.get(1), report.toString());
+    }
+
+    @Test
+    @DisplayName("При распродаже параллельные списания забирают ровно все экземпляры")
+    void sellOut_NeverOversells() throws Exception {
+        for (int slots : SLOTS) {
+            int stock = THREADS * 10;
+            var bookId = saveBook(stock);
+            if (slots > 1) {
+                stockSlots.stripe(bookId, slots);
+            }
+            long taken = run(bookId, slots);
+
+            assertEquals(stock, taken, "slots " + slots);
+            assertEquals(0, totalAvailable(bookId), "slots " + slots);
+        }
+    }
+}
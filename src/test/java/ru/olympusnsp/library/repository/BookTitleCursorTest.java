@@ -0,0 +1,66 @@
+package ru.olympusnsp.library.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import ru.olympusnsp.library.model.Book;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Курсорный поиск по названию ищет без учета регистра, как постраничный searchByTitle
+ */
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:titles;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=YEAR,VALUE")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class BookTitleCursorTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Integer war;
+    private Integer warUpper;
+    private Integer discount;
+
+    @BeforeEach
+    void setUp() {
+        war = persist("Война и мир");
+        persist("Анна Каренина");
+        warUpper = persist("ВОЙНА МИРОВ");
+        discount = persist("Скидка 100%");
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Integer persist(String title) {
+        return entityManager.persist(Book.builder().title(title).year((short) 2000)
+                .description("Описание книги для проверки поиска").count(1).available(1).reserve(0).build()).getId();
+    }
+
+    private List<Integer> ids(String pattern, Integer lastId) {
+        return bookRepository.searchByTitleAfter(pattern, lastId, PageRequest.ofSize(10)).getContent().stream()
+                .map(BookRow::getId).toList();
+    }
+
+    @Test
+    @DisplayName("searchByTitleAfter - совпадение без учета регистра, по возрастанию id после курсора")
+    void searchByTitleAfter_IgnoresCase() {
+        assertEquals(List.of(war, warUpper), ids("%война%", 0));
+        assertEquals(List.of(warUpper), ids("%война%", war));
+    }
+
+    @Test
+    @DisplayName("searchByTitleAfter - экранированный % ищется как символ")
+    void searchByTitleAfter_EscapedWildcard() {
+        assertEquals(List.of(discount), ids("%\\%%", 0));
+    }
+}
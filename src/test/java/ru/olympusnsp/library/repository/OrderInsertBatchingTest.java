@@ -0,0 +1,83 @@
+package ru.olympusnsp.library.repository;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import ru.olympusnsp.library.model.*;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Заказ с несколькими книгами сохраняется двумя командами: заказ и пакет заказанных книг
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:orders;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=YEAR,VALUE",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class OrderInsertBatchingTest {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User user;
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        user = entityManager.persist(User.builder().username("reader").password("hash").email("reader@example.com")
+                .bookRented(0).statusBlock(false).violations(0).role(Role.ROLE_USER).build());
+        book = entityManager.persist(Book.builder().title("Книга").year((short) 2000)
+                .description("Описание книги для проверки вставки").count(100).available(100).reserve(0).build());
+        // Оптимизатор pooled обращается к последовательности дважды до первой полной пачки идентификаторов
+        saveOrder(1);
+        saveOrder(1);
+        entityManager.flush();
+    }
+
+    private Order saveOrder(int books) {
+        var order = new Order();
+        order.setUser(user);
+        order.setCreatedData(LocalDate.now());
+        for (int i = 0; i < books; i++) {
+            var orderBook = new OrderBook();
+            orderBook.setOrder(order);
+            orderBook.setBook(book);
+            orderBook.setStatus(OrderBook.OrderBookStatus.CREATED);
+            order.getOrderBooks().add(orderBook);
+        }
+        return orderRepository.save(order);
+    }
+
+    @ParameterizedTest(name = "books = {0}")
+    @ValueSource(ints = {1, 3, 10})
+    @DisplayName("Вставка заказа: id без обращения к базе, заказанные книги одним пакетом")
+    void orderWithBooks_InsertedInTwoStatements(int books) {
+        var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        var order = saveOrder(books);
+        entityManager.flush();
+
+        assertEquals(books + 1, statistics.getEntityInsertCount());
+        assertEquals(2, statistics.getPrepareStatementCount());
+        for (OrderBook orderBook : order.getOrderBooks()) {
+            assertEquals(order.getId(), orderBook.getOrder().getId());
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package ru.olympusnsp.library.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import ru.olympusnsp.library.model.Role;
+import ru.olympusnsp.library.model.User;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Счетчики пользователя меняются UPDATE без чтения пользователя, правило блокировки - в том же UPDATE
+ */
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:users;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=YEAR,VALUE")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class UserCountersTest {
+
+    private static final int MAX_VIOLATIONS = 2;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Integer userId;
+
+    @BeforeEach
+    void setUp() {
+        userId = entityManager.persistFlushFind(User.builder().username("reader").password("hash").email("reader@example.com")
+                .bookRented(0).statusBlock(false).violations(0).role(Role.ROLE_USER).build()).getId();
+        entityManager.clear();
+    }
+
+    private User reload() {
+        entityManager.clear();
+        return entityManager.find(User.class, userId);
+    }
+
+    @Test
+    @DisplayName("addBookRented - счетчик выданных книг меняется на величину, версия увеличивается")
+    void addBookRented_ChangesCounterAndVersion() {
+        var version = reload().getVersion();
+
+        assertEquals(1, userRepository.addBookRented(userId, 3));
+        assertEquals(1, userRepository.addBookRented(userId, -1));
+
+        var user = reload();
+        assertEquals(2, user.getBookRented());
+        assertEquals(version + 2, user.getVersion());
+    }
+
+    @Test
+    @DisplayName("addBookRentedUpTo - счетчик увеличивается только в пределах лимита")
+    void addBookRentedUpTo_OnlyWithinLimit() {
+        assertEquals(1, userRepository.addBookRentedUpTo(userId, 2, 3));
+        assertEquals(0, userRepository.addBookRentedUpTo(userId, 2, 3)); // 4 книги больше лимита
+        assertEquals(2, reload().getBookRented()); // Строка не изменена
+
+        assertEquals(1, userRepository.addBookRentedUpTo(userId, 1, 3)); // Ровно до лимита
+        assertEquals(3, reload().getBookRented());
+    }
+
+    @Test
+    @DisplayName("addViolation - нарушение учитывается всегда, блокировка - при достижении предела")
+    void addViolation_CountsAndBlocksOnLimit() {
+        assertEquals(1, userRepository.addViolation(userId, MAX_VIOLATIONS));
+        assertFalse(userRepository.findStatusBlockById(userId));
+        assertEquals(1, reload().getViolations());
+
+        assertEquals(1, userRepository.addViolation(userId, MAX_VIOLATIONS));
+        assertTrue(userRepository.findStatusBlockById(userId));
+
+        // Уже заблокированный пользователь остается заблокированным, нарушение учитывается
+        assertEquals(1, userRepository.addViolation(userId, MAX_VIOLATIONS));
+        var user = reload();
+        assertEquals(3, user.getViolations());
+        assertTrue(user.getStatusBlock());
+    }
+
+    @Test
+    @DisplayName("addViolation - блокирует, если нарушений стало не меньше предела, неизвестный пользователь - 0 строк")
+    void addViolation_BlocksAtLimit() {
+        assertEquals(1, userRepository.addViolation(userId, 1));
+        assertTrue(reload().getStatusBlock());
+
+        assertEquals(0, userRepository.addViolation(-1, MAX_VIOLATIONS));
+    }
+
+    @Test
+    @DisplayName("addViolation - время изменения блокировки обновляется при блокировке, изменение находит findBlockChangedSince")
+    void addViolation_StampsBlockChange() {
+        var before = reload().getBlockChangedAt();
+        assertTrue(userRepository.findBlockChangedSince(before).isEmpty());
+
+        userRepository.addViolation(userId, MAX_VIOLATIONS);
+        assertEquals(before, reload().getBlockChangedAt()); // Нарушение без блокировки время не меняет
+        assertEquals(1, userRepository.addViolation(userId, MAX_VIOLATIONS));
+
+        var changes = userRepository.findBlockChangedSince(before);
+        assertEquals(1, changes.size());
+        assertEquals(userId, changes.get(0).getId());
+        assertTrue(changes.get(0).getStatusBlock());
+        assertEquals(List.of(userId), userRepository.findBlocked().stream().map(BlockChange::getId).toList());
+
+        var blockedAt = reload().getBlockChangedAt();
+        userRepository.addViolation(userId, MAX_VIOLATIONS);
+        assertEquals(blockedAt, reload().getBlockChangedAt()); // Повторное нарушение блокировку не меняет
+    }
+}
@@ -0,0 +1,87 @@
+package ru.olympusnsp.library.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookSearchIndexTest {
+
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookSearchIndex();
+        index.rebuild(List.of(
+                new BookSearchIndex.Document(1, "Война и мир", "Роман-эпопея о войне 1812 года", List.of("Лев Толстой")),
+                new BookSearchIndex.Document(2, "Анна Каренина", "Роман о любви и обществе", List.of("Лев Толстой")),
+                new BookSearchIndex.Document(3, "Мастер и Маргарита", "Роман о дьяволе в Москве", List.of("Михаил Булгаков")),
+                new BookSearchIndex.Document(4, "Мир приключений", "Сборник рассказов: война и мир глазами солдат", List.of("Разные авторы"))
+        ));
+    }
+
+    private List<Integer> ids(List<BookSearchIndex.Hit> hits) {
+        return hits.stream().map(BookSearchIndex.Hit::id).toList();
+    }
+
+    @Test
+    @DisplayName("search - совпадение в названии ранжируется выше совпадения в описании")
+    void search_TitleMatchRanksFirst() {
+        var hits = index.search("война", 10);
+
+        assertEquals(List.of(1, 4), ids(hits));
+        assertTrue(hits.get(0).score() > hits.get(1).score());
+        assertEquals(List.of("Лев Толстой"), hits.get(0).authors());
+    }
+
+    @Test
+    @DisplayName("search - все термины запроса должны совпасть, в том числе по автору")
+    void search_RequiresAllTerms() {
+        assertEquals(Set.of(1, 2), Set.copyOf(ids(index.search("толстой роман", 10))));
+        assertEquals(List.of(2), ids(index.search("толстой любви", 10)));
+        assertEquals(List.of(), ids(index.search("булгаков война", 10)));
+    }
+
+    @Test
+    @DisplayName("search - последний термин ищется как префикс")
+    void search_LastTermAsPrefix() {
+        assertEquals(List.of(3), ids(index.search("маргар", 10)));
+        assertEquals(List.of(3), ids(index.search("мастер булг", 10)));
+    }
+
+    @Test
+    @DisplayName("search - опечатки и перестановки букв допускаются")
+    void search_ToleratesTypos() {
+        assertEquals(List.of(2), ids(index.search("каренена", 10)));
+        assertEquals(List.of(3), ids(index.search("бугалков мастер", 10)));
+    }
+
+    @Test
+    @DisplayName("index/remove - изменения применяются без перестроения")
+    void indexAndRemove_UpdateIncrementally() {
+        index.index(new BookSearchIndex.Document(5, "Идиот", "Роман о князе Мышкине", List.of("Федор Достоевский")));
+        index.index(new BookSearchIndex.Document(1, "Война и мир. Том 1", "Роман-эпопея", List.of("Лев Толстой")));
+        index.remove(3);
+
+        assertEquals(4, index.size());
+        assertEquals(List.of(5), ids(index.search("достоевский", 10)));
+        assertEquals(List.of(), ids(index.search("маргарита", 10)));
+        assertEquals(List.of(), ids(index.search("1812", 10)));
+        assertEquals(List.of(1), ids(index.search("война том", 10)));
+        assertTrue(index.isIndexed(1, "Война и мир. Том 1", "Роман-эпопея"));
+        assertFalse(index.isIndexed(1, "Война и мир", "Роман-эпопея"));
+    }
+
+    @Test
+    @DisplayName("distance - расстояние Дамерау-Левенштейна с ограничением")
+    void distance_CountsTranspositionAsOneEdit() {
+        assertEquals(0, BookSearchIndex.distance("мир", "мир", 1));
+        assertEquals(1, BookSearchIndex.distance("мри", "мир", 1));
+        assertEquals(1, BookSearchIndex.distance("миры", "мир", 1));
+        assertEquals(2, BookSearchIndex.distance("абвг", "гвба", 1));
+    }
+}
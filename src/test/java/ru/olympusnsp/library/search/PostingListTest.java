@@ -0,0 +1,71 @@
+package ru.olympusnsp.library.search;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostingListTest {
+
+    private static List<int[]> decode(PostingList list) {
+        var pairs = new ArrayList<int[]>();
+        list.forEach((docId, frequency) -> pairs.add(new int[]{docId, frequency}));
+        return pairs;
+    }
+
+    @Test
+    @DisplayName("encode - пары читаются в исходном порядке, разности занимают 1 байт")
+    void encode_RoundTrip() {
+        var list = PostingList.encode(new int[]{3, 5, 200, 100_000}, new int[]{1, 7, 2, 300}, 4);
+
+        var pairs = decode(list);
+
+        assertEquals(4, list.size());
+        assertArrayEquals(new int[]{3, 1}, pairs.get(0));
+        assertArrayEquals(new int[]{5, 7}, pairs.get(1));
+        assertArrayEquals(new int[]{200, 2}, pairs.get(2));
+        assertArrayEquals(new int[]{100_000, 300}, pairs.get(3));
+        // 3,1 | 2,7 | 195(2 байта),2 | 99800(3 байта),300(2 байта)
+        assertEquals(12, list.byteSize());
+    }
+
+    @Test
+    @DisplayName("encode - неупорядоченные идентификаторы отклоняются")
+    void encode_RejectsUnsortedIds() {
+        assertThrows(IllegalArgumentException.class,
+                () -> PostingList.encode(new int[]{5, 3}, new int[]{1, 1}, 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> PostingList.encode(new int[]{5, 5}, new int[]{1, 1}, 2));
+    }
+
+    @Test
+    @DisplayName("with/without - случайные изменения совпадают с эталонным TreeMap")
+    void withAndWithout_MatchReferenceMap() {
+        var random = new Random(42);
+        var reference = new TreeMap<Integer, Integer>();
+        var list = PostingList.EMPTY;
+        for (int i = 0; i < 2_000; i++) {
+            int docId = 1 + random.nextInt(300);
+            if (random.nextInt(3) == 0) {
+                reference.remove(docId);
+                list = list.without(docId);
+            } else {
+                int frequency = 1 + random.nextInt(20);
+                reference.put(docId, frequency);
+                list = list.with(docId, frequency);
+            }
+        }
+
+        var pairs = decode(list);
+        assertEquals(reference.size(), list.size());
+        int i = 0;
+        for (var entry : reference.entrySet()) {
+            assertArrayEquals(new int[]{entry.getKey(), entry.getValue()}, pairs.get(i++));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package ru.olympusnsp.library.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.olympusnsp.library.repository.BlockChange;
+import ru.olympusnsp.library.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BlockedUserRegistryTest {
+
+    private static final long OVERLAP_MS = 60_000;
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 10, 1, 12, 0);
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private BlockedUserRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(registry, "overlapMs", OVERLAP_MS);
+    }
+
+    private static BlockChange change(Integer id, boolean statusBlock, LocalDateTime at) {
+        return new BlockChange() {
+            @Override
+            public Integer getId() {
+                return id;
+            }
+
+            @Override
+            public Boolean getStatusBlock() {
+                return statusBlock;
+            }
+
+            @Override
+            public LocalDateTime getBlockChangedAt() {
+                return at;
+            }
+        };
+    }
+
+    @Test
+    @DisplayName("refresh - первая сверка загружает все блокировки, следующие - только изменения, включая снятие блокировки")
+    void refresh_LoadsBlockedThenAppliesChanges() {
+        when(userRepository.findLastBlockChange()).thenReturn(T0);
+        when(userRepository.findBlocked()).thenReturn(List.of(change(1, true, T0.minusDays(1)), change(2, true, T0)));
+
+        registry.refresh();
+        assertTrue(registry.isBlocked(1));
+        assertTrue(registry.isBlocked(2));
+
+        when(userRepository.findBlockChangedSince(T0.minusMinutes(1)))
+                .thenReturn(List.of(change(1, false, T0.plusSeconds(5)), change(3, true, T0.plusSeconds(7))));
+        registry.refresh();
+        assertFalse(registry.isBlocked(1)); // Снятие блокировки в базе применяется сверкой
+        assertTrue(registry.isBlocked(2));
+        assertTrue(registry.isBlocked(3));
+
+        // Отметка сдвигается на последнее прочитанное изменение, с запасом на долгие транзакции
+        when(userRepository.findBlockChangedSince(T0.plusSeconds(7).minusMinutes(1))).thenReturn(List.of());
+        registry.refresh();
+        verify(userRepository, times(1)).findBlocked();
+        verify(userRepository, times(1)).findBlockChangedSince(T0.plusSeconds(7).minusMinutes(1));
+    }
+
+    @Test
+    @DisplayName("refresh - блокировка, отмеченная после запроса к базе, не снимается устаревшим состоянием строки")
+    void refresh_KeepsBlockAddedDuringQuery() {
+        when(userRepository.findLastBlockChange()).thenReturn(T0);
+        when(userRepository.findBlocked()).thenReturn(List.of());
+        registry.refresh();
+
+        when(userRepository.findBlockChangedSince(any())).thenAnswer(invocation -> {
+            registry.block(4); // Фиксация блокировки между запросом и применением его результата
+            return List.of(change(4, false, T0.plusSeconds(1)));
+        }).thenReturn(List.of(change(4, false, T0.plusSeconds(1))));
+
+        registry.refresh();
+        assertTrue(registry.isBlocked(4));
+
+        // Отметка учтена, следующая сверка снова применяет состояние из базы
+        registry.refresh();
+        assertFalse(registry.isBlocked(4));
+    }
+
+    @Test
+    @DisplayName("refresh - без пользователей в базе сверка начинается с начала времени")
+    void refresh_EmptyDatabase() {
+        when(userRepository.findLastBlockChange()).thenReturn(null);
+        when(userRepository.findBlocked()).thenReturn(List.of());
+
+        registry.refresh();
+        registry.refresh();
+
+        verify(userRepository, times(1)).findBlockChangedSince(any());
+    }
+
+    @Test
+    @DisplayName("block - в транзакции применяется только после фиксации")
+    void block_InsideTransaction_AppliedAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            registry.block(5);
+            assertFalse(registry.isBlocked(5));
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertTrue(registry.isBlocked(5));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("block - без транзакции применяется сразу")
+    void block_WithoutTransaction_AppliedImmediately() {
+        registry.block(7);
+
+        assertTrue(registry.isBlocked(7));
+        verifyNoInteractions(userRepository);
+    }
+}
@@ -0,0 +1,168 @@
+package ru.olympusnsp.library.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import ru.olympusnsp.library.model.Author;
+import ru.olympusnsp.library.model.Book;
+import ru.olympusnsp.library.model.Genre;
+import ru.olympusnsp.library.repository.BookRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Бюджет SQL запросов каталога: количество запросов не зависит от количества книг.
+ * Превышение бюджета означает N+1 загрузку авторов, жанров или книг
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:catalog;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=YEAR,VALUE",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(BookServiceImpl.class)
+class BookCatalogQueryCountTest {
+
+    private static final int BOOKS = 45;
+
+    @MockitoBean
+    private AuthorService authorService;
+    @MockitoBean
+    private GenreService genreService;
+    @MockitoBean
+    private UserService userService;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Genre genre;
+    private final List<Integer> bookIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        genre = entityManager.persist(Genre.builder().text("Роман").build());
+        var first = entityManager.persist(Author.builder().fullname("Первый автор").build());
+        var second = entityManager.persist(Author.builder().fullname("Второй автор").build());
+        for (int i = 0; i < BOOKS; i++) {
+            var book = entityManager.persist(Book.builder()
+                    .title("Книга " + i).year((short) 2000).description("Описание книги для проверки запросов")
+                    .count(1).available(1).reserve(0)
+                    .authors(List.of(first, second))
+                    .genres(List.of(genre))
+                    .build());
+            bookIds.add(book.getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Statistics statistics() {
+        var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
+    @ParameterizedTest(name = "size = {0}")
+    @ValueSource(ints = {5, 20, 40})
+    @DisplayName("findAll - страница, количество и авторы: три запроса для любого размера страницы")
+    void findAll_ConstantQueries(int size) {
+        var statistics = statistics();
+
+        var page = bookService.findAll(PageRequest.of(0, size));
+
+        assertEquals(size, page.getNumberOfElements());
+        assertEquals(List.of("Первый автор", "Второй автор"), page.getContent().get(size - 1).getAuthors());
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    @ParameterizedTest(name = "size = {0}")
+    @ValueSource(ints = {5, 20, 40})
+    @DisplayName("findAllWithGenreId - три запроса для любого размера страницы")
+    void findAllWithGenreId_ConstantQueries(int size) {
+        var statistics = statistics();
+
+        var page = bookService.findAllWithGenreId(genre.getId(), PageRequest.of(0, size));
+
+        assertEquals(size, page.getNumberOfElements());
+        assertEquals(BOOKS, page.getTotalElements());
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    @ParameterizedTest(name = "size = {0}")
+    @ValueSource(ints = {5, 20, 40})
+    @DisplayName("findAllAfter - порция и авторы: два запроса для любого размера порции")
+    void findAllAfter_ConstantQueries(int size) {
+        var statistics = statistics();
+
+        var slice = bookService.findAllAfter(null, size);
+
+        assertEquals(size, slice.getSize());
+        assertEquals(2, slice.getContent().get(0).getAuthors().size());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("findById - книга с авторами одним запросом, жанры вторым")
+    void findById_WithinBudget() {
+        var statistics = statistics();
+
+        var book = bookService.findById(bookIds.get(0));
+
+        assertEquals(2, book.getAuthors().size());
+        assertEquals(1, book.getGenres().size());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @ParameterizedTest(name = "books = {0}")
+    @ValueSource(ints = {3, 40})
+    @DisplayName("findAllByIdIn - книги заказа с авторами и жанрами: два запроса для любого количества книг")
+    void findAllByIdIn_WithinBudget(int size) {
+        var statistics = statistics();
+
+        var books = bookService.findAllByIdIn(bookIds.subList(0, size));
+        for (Book book : books.values()) {
+            assertEquals(2, book.getAuthors().size());
+            assertEquals(1, book.getGenres().size());
+        }
+
+        assertEquals(size, books.size());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("findByIdGreaterThanOrderByIdAsc - порция книг и авторы пачкой, как при построении поискового индекса")
+    void keysetSliceWithAuthors_WithinBudget() {
+        var statistics = statistics();
+
+        var slice = bookRepository.findByIdGreaterThanOrderByIdAsc(0, PageRequest.ofSize(BOOKS));
+        for (Book book : slice.getContent()) {
+            assertEquals(2, book.getAuthors().size());
+        }
+
+        assertEquals(BOOKS, slice.getNumberOfElements());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,134 @@
+package ru.olympusnsp.library.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.olympusnsp.library.importer.BookImportFormat;
+import ru.olympusnsp.library.model.Author;
+import ru.olympusnsp.library.repository.AuthorRepository;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Импорт на H2: порции в отдельных транзакциях, поэтому тест работает без общей транзакции и чистит таблицы сам
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:import;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=YEAR,VALUE",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "setting.import.batch-size=50",
+        "setting.import.max-errors=2"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(ValidationAutoConfiguration.class)
+@Import(BookImportServiceImpl.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookImportServiceTest {
+
+    private static final int BOOKS = 120;
+    private static final int AUTHORS = 30;
+
+    @Autowired
+    private BookImportService bookImportService;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DELETE FROM author_book");
+        jdbcTemplate.execute("DELETE FROM genre_book");
+        jdbcTemplate.execute("DELETE FROM book");
+        jdbcTemplate.execute("DELETE FROM author");
+        jdbcTemplate.execute("DELETE FROM genre");
+    }
+
+    private static ByteArrayInputStream csv(int books) {
+        var content = new StringBuilder("title,year,description,count,authors,genres\n");
+        for (int i = 0; i < books; i++) {
+            content.append("Книга ").append(i).append(",2000,Описание книги номер ").append(i).append(",2,")
+                    .append("Автор ").append(i % AUTHORS).append(";Соавтор,")
+                    .append(i % 2 == 0 ? "Роман" : "Повесть").append('\n');
+        }
+        return new ByteArrayInputStream(content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private int count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Integer.class);
+    }
+
+    @Test
+    @DisplayName("importBooks - книги записаны, авторы и жанры созданы по одному разу, существующий автор переиспользован")
+    void importBooks_DeduplicatesAuthorsAndGenres() {
+        var existing = authorRepository.save(Author.builder().fullname("Соавтор").build());
+        var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        var report = bookImportService.importBooks(csv(BOOKS), BookImportFormat.CSV);
+
+        assertEquals(BOOKS, report.getRead());
+        assertEquals(BOOKS, report.getImported());
+        assertEquals(0, report.getFailed());
+        assertEquals(AUTHORS, report.getAuthorsCreated());
+        assertEquals(2, report.getGenresCreated());
+        assertEquals(BOOKS, count("SELECT count(*) FROM book WHERE available = 2 AND reserve = 0"));
+        assertEquals(AUTHORS + 1, count("SELECT count(*) FROM author"));
+        assertEquals(2, count("SELECT count(*) FROM genre"));
+        assertEquals(2 * BOOKS, count("SELECT count(*) FROM author_book"));
+        assertEquals(BOOKS, count("SELECT count(*) FROM author_book WHERE author_id = " + existing.getId()));
+        assertEquals(BOOKS, count("SELECT count(*) FROM genre_book"));
+        assertEquals(BOOKS + AUTHORS + 2, statistics.getEntityInsertCount());
+        // Вставки книг и связей идут пакетами на порцию: без пакетов было бы больше 500 команд
+        assertTrue(statistics.getPrepareStatementCount() < 40, "statements: " + statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("importBooks - некорректные строки пропускаются с ошибкой, остальные книги порции записываются")
+    void importBooks_ReportsRowErrors() {
+        var content = """
+                title,year,description,count,authors,genres
+                Книга раз,2000,Описание первой книги импорта,1,Автор,
+                Книга два,2000,Коротко,1,Автор,
+                Книга три,2000,Описание третьей книги импорта,1,,
+                Книга четыре,2000,Описание четвертой книги импорта,1,Автор,%s
+                Книга пять,2000,Описание пятой книги импорта,1,Автор,Роман
+                """.formatted("Ж".repeat(300));
+
+        var report = bookImportService.importBooks(
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), BookImportFormat.CSV);
+
+        assertEquals(5, report.getRead());
+        assertEquals(2, report.getImported());
+        assertEquals(3, report.getFailed());
+        // Хранится не больше setting.import.max-errors ошибок
+        assertEquals(2, report.getErrors().size());
+        assertTrue(report.isErrorsTruncated());
+        assertEquals(3, report.getErrors().get(0).getLine());
+        assertTrue(report.getErrors().get(0).getMessage().startsWith("description:"));
+        assertEquals(4, report.getErrors().get(1).getLine());
+        assertEquals("Не указаны авторы", report.getErrors().get(1).getMessage());
+        assertEquals(2, count("SELECT count(*) FROM book"));
+        assertEquals(0, count("SELECT count(*) FROM book WHERE title = 'Книга четыре'"));
+        assertEquals(1, count("SELECT count(*) FROM genre"));
+        assertEquals(1, count("SELECT count(*) FROM author"));
+    }
+}
@@ -1,6 +1,7 @@
 
 package ru.olympusnsp.library.service;
 
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -14,16 +15,27 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.test.util.ReflectionTestUtils;
 import ru.olympusnsp.library.dto.BookSaving;
+import ru.olympusnsp.library.dto.BookSummary;
+import ru.olympusnsp.library.exeption.InvalidCursorException;
 import ru.olympusnsp.library.exeption.NotFoundEntity;
+import ru.olympusnsp.library.ledger.StockLedger;
 import ru.olympusnsp.library.model.Author;
 import ru.olympusnsp.library.model.Book;
 import ru.olympusnsp.library.model.Genre;
+import ru.olympusnsp.library.repository.BookAuthorName;
 import ru.olympusnsp.library.repository.BookRepository;
+import ru.olympusnsp.library.repository.BookRow;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -69,25 +81,52 @@ class BookServiceImplTest {
         testBook1 = Book.builder().id(1).title("Test Book 1").description("Description 1").count(5).available(5).reserve(0).build();
         testBook2 = Book.builder().id(2).title("Another Book").description("Description 2").count(3).available(2).reserve(1).build();
         pageable = PageRequest.of(0, 10); // Стандартная пагинация для тестов
+        ReflectionTestUtils.setField(bookService, "defaultCursorSize", 20);
+        ReflectionTestUtils.setField(bookService, "maxCursorSize", 100);
+    }
+
+    private static final SpelAwareProxyProjectionFactory PROJECTIONS = new SpelAwareProxyProjectionFactory();
+
+    private static BookRow row(Book book) {
+        return PROJECTIONS.createProjection(BookRow.class, book);
+    }
+
+    private static BookAuthorName authorName(Integer bookId, String fullname) {
+        return PROJECTIONS.createProjection(BookAuthorName.class, Map.of("bookId", bookId, "fullname", fullname));
     }
 
     @Test
     @DisplayName("findAll - должен вернуть страницу книг")
     void findAll_ShouldReturnPageOfBooks() {
         // Arrange (Подготовка)
-        List<Book> books = List.of(testBook1, testBook2);
-        Page<Book> bookPage = new PageImpl<>(books, pageable, books.size());
-        when(bookRepository.findAll(pageable)).thenReturn(bookPage); // Мокируем ответ репозитория
+        List<BookRow> books = List.of(row(testBook1), row(testBook2));
+        Page<BookRow> bookPage = new PageImpl<>(books, pageable, books.size());
+        when(bookRepository.findRowsBy(pageable)).thenReturn(bookPage); // Мокируем ответ репозитория
+        when(bookRepository.findAuthorNames(List.of(1, 2))).thenReturn(List.of(
+                authorName(1, "Author Name"), authorName(1, "Second Author")));
 
         // Act (Действие)
-        Page<Book> result = bookService.findAll(pageable);
+        Page<BookSummary> result = bookService.findAll(pageable);
 
         // Assert (Проверка)
         assertNotNull(result);
         assertEquals(2, result.getTotalElements());
         assertEquals(2, result.getContent().size());
         assertEquals(testBook1.getTitle(), result.getContent().get(0).getTitle());
-        verify(bookRepository, times(1)).findAll(pageable); // Проверяем, что метод репозитория был вызван 1 раз
+        assertEquals(List.of("Author Name", "Second Author"), result.getContent().get(0).getAuthors());
+        assertEquals(List.of(), result.getContent().get(1).getAuthors());
+        verify(bookRepository, times(1)).findRowsBy(pageable); // Проверяем, что метод репозитория был вызван 1 раз
+        verify(bookRepository, times(1)).findAuthorNames(any()); // Авторы всей страницы - одним запросом
+    }
+
+    @Test
+    @DisplayName("findAll - для пустой страницы авторы не запрашиваются")
+    void findAll_EmptyPage_ShouldNotQueryAuthors() {
+        when(bookRepository.findRowsBy(pageable)).thenReturn(Page.empty(pageable));
+
+        assertTrue(bookService.findAll(pageable).isEmpty());
+
+        verify(bookRepository, never()).findAuthorNames(any());
     }
 
     @Test
@@ -95,18 +134,35 @@ class BookServiceImplTest {
     void findAllByTitleContains_ShouldReturnPageOfBooksMatchingTitle() {
         // Arrange
         String titleQuery = "Test";
-        List<Book> books = List.of(testBook1);
-        Page<Book> bookPage = new PageImpl<>(books, pageable, books.size());
-        when(bookRepository.findAllByTitleContaining(titleQuery, pageable)).thenReturn(bookPage);
+        List<BookRow> books = List.of(row(testBook1));
+        Page<BookRow> bookPage = new PageImpl<>(books, pageable, books.size());
+        when(bookRepository.searchByTitle("%Test%", titleQuery, pageable)).thenReturn(bookPage);
 
         // Act
-        Page<Book> result = bookService.findAllByTitleContains(titleQuery, pageable);
+        Page<BookSummary> result = bookService.findAllByTitleContains(titleQuery, pageable);
 
         // Assert
         assertNotNull(result);
         assertEquals(1, result.getTotalElements());
         assertEquals(testBook1.getTitle(), result.getContent().get(0).getTitle());
-        verify(bookRepository, times(1)).findAllByTitleContaining(titleQuery, pageable);
+        verify(bookRepository, times(1)).searchByTitle("%Test%", titleQuery, pageable);
+    }
+
+    @Test
+    @DisplayName("findAllByTitleContains - сортировка из запроса заменяется сортировкой по похожести")
+    void findAllByTitleContains_ShouldDropRequestedSort() {
+        var sorted = PageRequest.of(2, 10, Sort.by("title"));
+        when(bookRepository.searchByTitle(any(), any(), any())).thenReturn(Page.empty());
+
+        bookService.findAllByTitleContains("War", sorted);
+
+        verify(bookRepository).searchByTitle("%War%", "War", PageRequest.of(2, 10));
+    }
+
+    @Test
+    @DisplayName("containsPattern - спецсимволы LIKE экранируются")
+    void containsPattern_ShouldEscapeLikeWildcards() {
+        assertEquals("%100\\%\\_a\\\\b%", BookServiceImpl.containsPattern("100%_a\\b"));
     }
 
     @Test
@@ -142,6 +198,37 @@ class BookServiceImplTest {
         verify(bookRepository, times(1)).findById(bookId);
     }
 
+    @Test
+    @DisplayName("findAllByIdIn - должен загрузить книги одним запросом, без повторов id")
+    void findAllByIdIn_ShouldLoadBooksInOneQuery() {
+        // Arrange
+        when(bookRepository.findAllByIdIn(Set.of(1, 2))).thenReturn(List.of(testBook1, testBook2));
+
+        // Act
+        Map<Integer, Book> result = bookService.findAllByIdIn(List.of(1, 2, 1));
+
+        // Assert
+        assertEquals(2, result.size());
+        assertSame(testBook1, result.get(1));
+        assertSame(testBook2, result.get(2));
+        verify(bookRepository, times(1)).findAllByIdIn(Set.of(1, 2));
+        verify(bookRepository, never()).findById(anyInt());
+    }
+
+    @Test
+    @DisplayName("findAllByIdIn - должен выбросить NotFoundEntity, если одна из книг не найдена")
+    void findAllByIdIn_ShouldThrowNotFoundEntity_WhenAnyBookMissing() {
+        // Arrange
+        when(bookRepository.findAllByIdIn(Set.of(1, 99))).thenReturn(List.of(testBook1));
+
+        // Act & Assert
+        NotFoundEntity exception = assertThrows(NotFoundEntity.class, () -> {
+            bookService.findAllByIdIn(List.of(1, 99));
+        });
+
+        assertEquals("Book with id 99 not found", exception.getMessage());
+    }
+
     @Test
     @DisplayName("save - должен сохранить новую книгу со связями")
     void save_ShouldSaveNewBookWithRelations() {
@@ -247,49 +334,86 @@ class BookServiceImplTest {
     @DisplayName("reserveBookById - должен успешно зарезервировать доступную книгу")
     void reserveBookById_ShouldReturnTrue_WhenBookAvailable() {
         int bookId = 1;
-        int initialAvailable = testBook1.getAvailable();
-        int initialReserve = testBook1.getReserve();
-        when(bookRepository.findById(bookId)).thenReturn(Optional.of(testBook1));
-        // Мокировать save не обязательно, но можно для проверки аргумента
-        when(bookRepository.save(any(Book.class))).thenReturn(testBook1);
+        when(bookRepository.reserveAvailable(bookId)).thenReturn(1);
 
         Boolean result = bookService.reserveBookById(bookId);
 
         assertTrue(result);
-        verify(bookRepository, times(1)).findById(bookId);
-        verify(bookRepository, times(1)).save(bookArgumentCaptor.capture());
-
-        Book savedBook = bookArgumentCaptor.getValue();
-        assertEquals(initialAvailable - 1, savedBook.getAvailable());
-        assertEquals(initialReserve + 1, savedBook.getReserve());
-        assertEquals(bookId, savedBook.getId());
+        verify(bookRepository, times(1)).reserveAvailable(bookId);
+        verify(bookRepository, never()).findById(anyInt()); // Книга не читается, резерв одним UPDATE
+        verify(bookRepository, never()).save(any(Book.class));
     }
 
     @Test
-    @DisplayName("reserveBookById - должен вернуть false, если книга не найдена")
-    void reserveBookById_ShouldReturnFalse_WhenBookNotFound() {
+    @DisplayName("reserveBookById - должен вернуть false, если книга не найдена или недоступна (available = 0)")
+    void reserveBookById_ShouldReturnFalse_WhenNoRowUpdated() {
         int bookId = 99;
-        when(bookRepository.findById(bookId)).thenReturn(Optional.empty());
+        when(bookRepository.reserveAvailable(bookId)).thenReturn(0);
 
         Boolean result = bookService.reserveBookById(bookId);
 
         assertFalse(result);
-        verify(bookRepository, times(1)).findById(bookId);
+        verify(bookRepository, times(1)).reserveAvailable(bookId);
         verify(bookRepository, never()).save(any(Book.class)); // save не должен вызываться
     }
 
     @Test
-    @DisplayName("reserveBookById - должен вернуть false, если книга недоступна (available = 0)")
-    void reserveBookById_ShouldReturnFalse_WhenBookNotAvailable() {
+    @DisplayName("decrementAvailable - должен вернуть false, если экземпляров не хватает")
+    void decrementAvailable_ShouldReturnFalse_WhenNotEnoughAvailable() {
         int bookId = 1;
-        testBook1.setAvailable(0); // Устанавливаем, что книга недоступна
-        when(bookRepository.findById(bookId)).thenReturn(Optional.of(testBook1));
+        when(bookRepository.decrementAvailable(bookId, 2)).thenReturn(0);
 
-        Boolean result = bookService.reserveBookById(bookId);
+        assertFalse(bookService.decrementAvailable(bookId, 2));
+        verify(bookRepository, times(1)).decrementAvailable(bookId, 2);
+        verify(bookRepository, never()).save(any(Book.class));
+    }
 
-        assertFalse(result);
-        verify(bookRepository, times(1)).findById(bookId);
-        verify(bookRepository, never()).save(any(Book.class)); // save не должен вызываться
+    @Test
+    @DisplayName("reserveBookById - при включенном StockLedger резерв в памяти, без UPDATE строки книги")
+    void reserveBookById_ShouldUseLedger_WhenEnabled() {
+        var stockLedger = mock(StockLedger.class);
+        ReflectionTestUtils.setField(bookService, "stockLedger", stockLedger);
+        when(stockLedger.reserve(1)).thenReturn(true);
+
+        assertTrue(bookService.reserveBookById(1));
+        verify(bookRepository, never()).reserveAvailable(anyInt());
+    }
+
+    @Test
+    @DisplayName("applyStockDelta - при включенном StockLedger available и reserve в памяти, count - сразу в базу")
+    void applyStockDelta_ShouldSplitLedgerAndCount_WhenLedgerEnabled() {
+        var stockLedger = mock(StockLedger.class);
+        ReflectionTestUtils.setField(bookService, "stockLedger", stockLedger);
+
+        bookService.applyStockDelta(1, 1, -1, 0);
+        bookService.applyStockDelta(2, 0, 0, -1);
+
+        verify(stockLedger, times(1)).apply(1, 1, -1);
+        verify(stockLedger, never()).apply(eq(2), anyInt(), anyInt());
+        verify(bookRepository, times(1)).applyStockDelta(2, 0, 0, -1);
+        verify(bookRepository, never()).applyStockDelta(eq(1), anyInt(), anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("refreshStock - книга перечитывается из базы, при включенном StockLedger - счетчики из памяти")
+    void refreshStock_ShouldReloadAndOverlayLedger() {
+        var entityManager = mock(EntityManager.class);
+        ReflectionTestUtils.setField(bookService, "entityManager", entityManager);
+
+        bookService.refreshStock(testBook1);
+
+        verify(entityManager, times(1)).refresh(testBook1);
+        verify(entityManager, never()).detach(any());
+
+        var stockLedger = mock(StockLedger.class);
+        ReflectionTestUtils.setField(bookService, "stockLedger", stockLedger);
+        when(stockLedger.stock(testBook1.getId())).thenReturn(new StockLedger.Stock(7, 2));
+
+        bookService.refreshStock(testBook1);
+
+        verify(entityManager, times(1)).detach(testBook1); // Значения из памяти не записываются в book
+        assertEquals(7, testBook1.getAvailable());
+        assertEquals(2, testBook1.getReserve());
     }
 
     @Test
@@ -320,4 +444,62 @@ class BookServiceImplTest {
         verify(bookRepository, times(1)).existsById(bookId);
         verify(bookRepository, never()).deleteById(anyInt()); // deleteById не должен вызываться
     }
+
+    @Test
+    @DisplayName("findAllAfter - первая порция без курсора, токен указывает на последнюю книгу")
+    void findAllAfter_ShouldStartFromBeginningAndReturnNextToken() {
+        var slice = new SliceImpl<>(List.of(row(testBook1), row(testBook2)), PageRequest.ofSize(2), true);
+        when(bookRepository.findRowsByIdGreaterThanOrderByIdAsc(0, PageRequest.ofSize(2))).thenReturn(slice);
+
+        var result = bookService.findAllAfter(null, 2);
+
+        assertEquals(2, result.getSize());
+        assertTrue(result.isHasNext());
+        assertEquals(testBook2.getId(), BookCursor.decode(result.getNext()));
+    }
+
+    @Test
+    @DisplayName("findAllAfter - продолжение по токену, на последней порции токена нет")
+    void findAllAfter_ShouldContinueFromTokenAndStopAtEnd() {
+        var slice = new SliceImpl<>(List.of(row(testBook2)), PageRequest.ofSize(20), false);
+        when(bookRepository.findRowsByIdGreaterThanOrderByIdAsc(1, PageRequest.ofSize(20))).thenReturn(slice);
+
+        var result = bookService.findAllAfter(BookCursor.encode(1), null);
+
+        assertEquals(1, result.getContent().size());
+        assertFalse(result.isHasNext());
+        assertNull(result.getNext());
+    }
+
+    @Test
+    @DisplayName("findAllWithGenreIdAfter - размер порции ограничен настройкой")
+    void findAllWithGenreIdAfter_ShouldClampSize() {
+        when(bookRepository.findBooksByGenreIdAfter(eq(1), eq(0), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of()));
+
+        bookService.findAllWithGenreIdAfter(1, "", 10_000);
+
+        verify(bookRepository).findBooksByGenreIdAfter(1, 0, PageRequest.ofSize(100));
+    }
+
+    @Test
+    @DisplayName("findAllByTitleContainsAfter - поиск по экранированному шаблону ILIKE, как в findAllByTitleContains")
+    void findAllByTitleContainsAfter_ShouldSearchByEscapedPattern() {
+        when(bookRepository.searchByTitleAfter(any(), any(), any())).thenReturn(new SliceImpl<>(List.of()));
+
+        bookService.findAllByTitleContainsAfter("100%", null, 10);
+
+        verify(bookRepository).searchByTitleAfter("%100\\%%", 0, PageRequest.ofSize(10));
+    }
+
+    @Test
+    @DisplayName("findAllByTitleContainsAfter - поврежденный токен отклоняется")
+    void findAllByTitleContainsAfter_ShouldRejectInvalidCursor() {
+        assertThrows(InvalidCursorException.class,
+                () -> bookService.findAllByTitleContainsAfter("Test", "not-a-cursor", 10));
+        assertThrows(InvalidCursorException.class,
+                () -> bookService.findAllByTitleContainsAfter("Test", BookCursor.encode(-5), 10));
+
+        verifyNoInteractions(bookRepository);
+    }
 }
@@ -0,0 +1,174 @@
+package ru.olympusnsp.library.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.olympusnsp.library.model.Book;
+import ru.olympusnsp.library.repository.BookRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ячейки доступных экземпляров на H2: каждое списание - отдельная транзакция, поэтому тест чистит таблицы сам
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:slots;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=YEAR,VALUE",
+        "setting.stock.slots.enabled=true",
+        "setting.stock.slots.max=16"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(BookStockSlots.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookStockSlotsTest {
+
+    @Autowired
+    private BookStockSlots stockSlots;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DELETE FROM book_stock_slot");
+        jdbcTemplate.execute("DELETE FROM book");
+        stockSlots.load();
+    }
+
+    private Integer saveBook(int available) {
+        return bookRepository.save(Book.builder().title("Бестселлер").year((short) 2025)
+                .description("Описание популярной книги").count(available).available(available).reserve(0).build()).getId();
+    }
+
+    private int bookAvailable(Integer bookId) {
+        return jdbcTemplate.queryForObject("SELECT available FROM book WHERE id = ?", Integer.class, bookId);
+    }
+
+    private List<Integer> slotAvailable(Integer bookId) {
+        return jdbcTemplate.queryForList("SELECT available FROM book_stock_slot WHERE book_id = ? ORDER BY slot", Integer.class, bookId);
+    }
+
+    private int totalAvailable(Integer bookId) {
+        return bookAvailable(bookId) + slotAvailable(bookId).stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * Списание в отдельной транзакции. Одновременные перераспределения могут откатиться как взаимная блокировка,
+     * такая транзакция ничего не меняет и повторяется, как в RetryingOrderService
+     */
+    private boolean takeWithRetry(Integer bookId) {
+        while (true) {
+            try {
+                return Boolean.TRUE.equals(transactionTemplate.execute(status -> stockSlots.take(bookId, 1)));
+            } catch (ConcurrencyFailureException e) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("stripe - доступные экземпляры раскладываются по ячейкам поровну, сумма в каталоге не меняется")
+    void stripe_SpreadsAvailableAcrossSlots() {
+        var bookId = saveBook(10);
+
+        stockSlots.stripe(bookId, 4);
+
+        assertTrue(stockSlots.isStriped(bookId));
+        assertEquals(0, bookAvailable(bookId));
+        assertEquals(List.of(3, 3, 2, 2), slotAvailable(bookId));
+        assertEquals(10, stockSlots.available(List.of(bookId)).get(bookId));
+        assertEquals(10, bookRepository.sumStock().getAvailable());
+    }
+
+    @Test
+    @DisplayName("take - при нехватке в ячейке экземпляры собираются со всех ячеек и из book.available")
+    void take_RebalancesWhenSlotRunsDry() {
+        var bookId = saveBook(8);
+        stockSlots.stripe(bookId, 4);
+
+        // В каждой ячейке по 2, списание 3 возможно только через перераспределение
+        assertTrue(stockSlots.take(bookId, 3));
+        assertEquals(List.of(2, 1, 1, 1), slotAvailable(bookId));
+
+        assertFalse(stockSlots.take(bookId, 6));
+        assertEquals(5, totalAvailable(bookId));
+
+        // Возврат в обход ячеек учитывается при перераспределении
+        jdbcTemplate.update("UPDATE book SET available = available + 2 WHERE id = ?", bookId);
+        assertTrue(stockSlots.take(bookId, 7));
+        assertEquals(0, totalAvailable(bookId));
+        assertFalse(stockSlots.take(bookId, 1));
+    }
+
+    @Test
+    @DisplayName("put и stripe(1) - возврат попадает в ячейку, удаление ячеек возвращает экземпляры в book.available")
+    void put_ThenUnstripe() {
+        var bookId = saveBook(4);
+        stockSlots.stripe(bookId, 2);
+
+        stockSlots.put(bookId, 3);
+        assertEquals(7, totalAvailable(bookId));
+
+        stockSlots.stripe(bookId, 1);
+
+        assertFalse(stockSlots.isStriped(bookId));
+        assertEquals(7, bookAvailable(bookId));
+        assertTrue(slotAvailable(bookId).isEmpty());
+    }
+
+    @Test
+    @DisplayName("take - параллельные списания не продают больше, чем есть")
+    void take_Concurrent_NeverOversells() throws Exception {
+        int stock = 40;
+        int threads = 8;
+        int attempts = 20;
+        var bookId = saveBook(stock);
+        stockSlots.stripe(bookId, 4);
+        var taken = new AtomicInteger();
+        var executor = Executors.newFixedThreadPool(threads);
+        var start = new CountDownLatch(1);
+        var futures = new ArrayList<Future<?>>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < attempts; i++) {
+                        if (takeWithRetry(bookId)) {
+                            taken.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (var future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(stock, taken.get());
+        assertEquals(0, totalAvailable(bookId));
+        assertTrue(slotAvailable(bookId).stream().allMatch(available -> available >= 0));
+    }
+}
@@ -0,0 +1,121 @@
+package ru.olympusnsp.library.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.NoOpCache;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import ru.olympusnsp.library.configuration.CacheConfiguration;
+import ru.olympusnsp.library.exeption.NotFoundEntity;
+import ru.olympusnsp.library.model.Author;
+import ru.olympusnsp.library.model.Genre;
+import ru.olympusnsp.library.repository.AuthorRepository;
+import ru.olympusnsp.library.repository.GenreRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Кэширование справочников: жанры в кэше, кэш авторов выключен настройкой
+ */
+@SpringJUnitConfig(classes = {CacheConfiguration.class, GenreServiceImpl.class, AuthorServiceImpl.class})
+@TestPropertySource(properties = {
+        "setting.cache.genre.enabled=true",
+        "setting.cache.genre.ttl=1h",
+        "setting.cache.genre.max-size=2",
+        "setting.cache.author.enabled=false",
+        "setting.cache.author.ttl=1h",
+        "setting.cache.author.max-size=100"
+})
+class DictionaryCacheTest {
+
+    @MockitoBean
+    private GenreRepository genreRepository;
+    @MockitoBean
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private GenreService genreService;
+    @Autowired
+    private AuthorService authorService;
+    @Autowired
+    private CacheManager cacheManager;
+
+    private Genre genre;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        genre = new Genre();
+        genre.setId(1);
+        genre.setText("Роман");
+    }
+
+    @Test
+    @DisplayName("findById - повторный запрос жанра не обращается к базе")
+    void genreFindById_SecondCallServedFromCache() {
+        when(genreRepository.findById(1)).thenReturn(Optional.of(genre));
+
+        assertSame(genre, genreService.findById(1));
+        assertSame(genre, genreService.findById(1));
+
+        verify(genreRepository, times(1)).findById(1);
+    }
+
+    @Test
+    @DisplayName("findById - ненайденный жанр не кэшируется")
+    void genreFindById_NotFoundIsNotCached() {
+        when(genreRepository.findById(5)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundEntity.class, () -> genreService.findById(5));
+        assertThrows(NotFoundEntity.class, () -> genreService.findById(5));
+
+        verify(genreRepository, times(2)).findById(5);
+    }
+
+    @Test
+    @DisplayName("save/deleteById - кэш жанра и список жанров обновляются")
+    void genreSaveAndDelete_InvalidateCache() {
+        when(genreRepository.findAll()).thenReturn(List.of(genre));
+        genreService.findAll();
+        genreService.findAll();
+        verify(genreRepository, times(1)).findAll();
+
+        var renamed = new Genre();
+        renamed.setId(1);
+        renamed.setText("Эпопея");
+        when(genreRepository.save(renamed)).thenReturn(renamed);
+        genreService.save(renamed);
+
+        assertSame(renamed, genreService.findById(1));
+        genreService.findAll();
+        verify(genreRepository, never()).findById(1);
+        verify(genreRepository, times(2)).findAll();
+
+        when(genreRepository.existsById(1)).thenReturn(true);
+        when(genreRepository.findById(1)).thenReturn(Optional.of(genre));
+        genreService.deleteById(1);
+        genreService.findById(1);
+        verify(genreRepository, times(1)).findById(1);
+    }
+
+    @Test
+    @DisplayName("findById - при выключенном кэше автор читается из базы каждый раз")
+    void authorFindById_CacheDisabled() {
+        var author = Author.builder().id(2).fullname("Лев Толстой").build();
+        when(authorRepository.findById(2)).thenReturn(Optional.of(author));
+
+        authorService.findById(2);
+        authorService.findById(2);
+
+        verify(authorRepository, times(2)).findById(2);
+        assertInstanceOf(NoOpCache.class, cacheManager.getCache(CacheConfiguration.AUTHOR));
+    }
+}
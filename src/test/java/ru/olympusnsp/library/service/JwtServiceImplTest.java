@@ -0,0 +1,91 @@
+package ru.olympusnsp.library.service;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.olympusnsp.library.model.Role;
+import ru.olympusnsp.library.model.User;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtServiceImplTest {
+
+    private static final String KEY = "53A73E5F1C4E0A2D3B5F2D784E6A1B423D6F247D1F6E5C3A596D635A75327855";
+
+    private SimpleMeterRegistry meterRegistry;
+    private JwtServiceImpl jwtService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        jwtService = new JwtServiceImpl(KEY, 100, meterRegistry);
+        user = new User();
+        user.setId(7);
+        user.setUsername("reader");
+        user.setEmail("reader@example.com");
+        user.setRole(Role.ROLE_USER);
+    }
+
+    private double cacheGets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "jwt.verified").tag("result", result)
+                .functionCounter().count();
+    }
+
+    @Test
+    @DisplayName("extractValidClaims - подпись проверяется при первом предъявлении, затем токен берется из кэша")
+    void extractValidClaims_CachesVerifiedToken() {
+        var token = jwtService.generateToken(user);
+
+        assertEquals("reader", jwtService.extractValidClaims(token).getSubject());
+        assertEquals(7, jwtService.extractValidClaims(token).get("id", Integer.class));
+        assertTrue(jwtService.isTokenValid(token, user));
+
+        assertEquals(1, jwtService.verifiedTokenCount());
+        assertEquals(1, cacheGets("miss"));
+        assertEquals(2, cacheGets("hit"));
+    }
+
+    @Test
+    @DisplayName("extractValidClaims - токен с чужой подписью отклоняется и не кэшируется")
+    void extractValidClaims_RejectsForeignSignature() {
+        var otherKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(KEY.replace('5', '6')));
+        var token = Jwts.builder().subject("reader")
+                .expiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(otherKey).compact();
+
+        assertThrows(JwtException.class, () -> jwtService.extractValidClaims(token));
+        assertFalse(jwtService.isTokenValid(token, user));
+        assertEquals(0, jwtService.verifiedTokenCount());
+    }
+
+    @Test
+    @DisplayName("extractValidClaims - просроченный токен отклоняется")
+    void extractValidClaims_RejectsExpiredToken() {
+        var key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(KEY));
+        var token = Jwts.builder().subject("reader")
+                .expiration(new Date(System.currentTimeMillis() - 1_000))
+                .signWith(key).compact();
+
+        assertThrows(ExpiredJwtException.class, () -> jwtService.extractValidClaims(token));
+        assertEquals(0, jwtService.verifiedTokenCount());
+    }
+
+    @Test
+    @DisplayName("isTokenValid - токен другого пользователя невалиден")
+    void isTokenValid_OtherUser() {
+        var token = jwtService.generateToken(user);
+        var other = new User();
+        other.setUsername("someone");
+
+        assertFalse(jwtService.isTokenValid(token, other));
+    }
+}
@@ -0,0 +1,59 @@
+package ru.olympusnsp.library.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.olympusnsp.library.exeption.NotFoundEntity;
+import ru.olympusnsp.library.model.Book;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MeteredBookServiceTest {
+
+    @Mock
+    private BookService bookService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private MeteredBookService meteredBookService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        meteredBookService = new MeteredBookService(bookService, meterRegistry);
+    }
+
+    private long timerCount(String query, String outcome) {
+        return meterRegistry.get("library.book.query").tag("query", query).tag("outcome", outcome).timer().count();
+    }
+
+    @Test
+    @DisplayName("findById - запрос замеряется с тегами query и outcome, исключение пробрасывается")
+    void findById_RecordsOutcome() {
+        var book = new Book();
+        when(bookService.findById(1)).thenReturn(book);
+        when(bookService.findById(2)).thenThrow(new NotFoundEntity("Book with id 2 not found"));
+
+        assertSame(book, meteredBookService.findById(1));
+        assertThrows(NotFoundEntity.class, () -> meteredBookService.findById(2));
+
+        assertEquals(1, timerCount("findById", "success"));
+        assertEquals(1, timerCount("findById", "NotFoundEntity"));
+    }
+
+    @Test
+    @DisplayName("decrementAvailable - изменения передаются без замера")
+    void decrementAvailable_NotTimed() {
+        when(bookService.decrementAvailable(1, 2)).thenReturn(true);
+
+        assertTrue(meteredBookService.decrementAvailable(1, 2));
+
+        verify(bookService).decrementAvailable(1, 2);
+        assertNull(meterRegistry.find("library.book.query").timer());
+    }
+}
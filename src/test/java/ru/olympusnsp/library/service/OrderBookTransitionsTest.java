@@ -0,0 +1,146 @@
+package ru.olympusnsp.library.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.RepetitionInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import ru.olympusnsp.library.exeption.OrderBookStatusException;
+import ru.olympusnsp.library.model.OrderBook.OrderBookStatus;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Свойства таблицы переходов, проверяются для каждой пары статусов
+ */
+class OrderBookTransitionsTest {
+
+    /**
+     * Вклад одной заказанной книги в счетчики для каждого статуса, относительно состояния до заказа:
+     * available, reserve, count, bookRented
+     */
+    private static final Map<OrderBookStatus, int[]> FOOTPRINT = new EnumMap<>(Map.of(
+            OrderBookStatus.CREATED, new int[]{-1, 0, 0, 1},
+            OrderBookStatus.PREPARED, new int[]{-1, 1, 0, 1},
+            OrderBookStatus.RENTED, new int[]{-1, 0, 0, 1},
+            OrderBookStatus.RETURNED, new int[]{0, 0, 0, 0},
+            OrderBookStatus.CANCELLED, new int[]{0, 0, 0, 0},
+            OrderBookStatus.LOSSLIBRARY, new int[]{-1, 0, -1, 0},
+            OrderBookStatus.LOSSUSER, new int[]{-1, 0, -1, 0}
+    ));
+
+    private static final List<OrderBookStatus> TERMINAL = List.of(
+            OrderBookStatus.RETURNED, OrderBookStatus.CANCELLED, OrderBookStatus.LOSSLIBRARY, OrderBookStatus.LOSSUSER);
+
+    static Stream<Arguments> allPairs() {
+        var pairs = new ArrayList<Arguments>();
+        for (OrderBookStatus from : OrderBookStatus.values()) {
+            for (OrderBookStatus to : OrderBookStatus.values()) {
+                pairs.add(Arguments.of(from, to));
+            }
+        }
+        return pairs.stream();
+    }
+
+    @ParameterizedTest(name = "{0} -> {1}")
+    @MethodSource("allPairs")
+    @DisplayName("Каждая пара статусов либо разрешена, либо отклоняется OrderBookStatusException")
+    void everyPair_IsEitherAllowedOrRejected(OrderBookStatus from, OrderBookStatus to) {
+        if (OrderBookTransitions.isAllowed(from, to)) {
+            var transition = OrderBookTransitions.of(from, to);
+            assertEquals(from, transition.from());
+            assertEquals(to, transition.to());
+        } else {
+            var exception = assertThrows(OrderBookStatusException.class, () -> OrderBookTransitions.of(from, to));
+            assertNotNull(exception.getMessage());
+        }
+    }
+
+    @ParameterizedTest(name = "{0} -> {1}")
+    @MethodSource("allPairs")
+    @DisplayName("Изменение счетчиков перехода равно разнице вкладов статусов")
+    void allowedPair_DeltasMatchStatusFootprints(OrderBookStatus from, OrderBookStatus to) {
+        if (!OrderBookTransitions.isAllowed(from, to)) {
+            return;
+        }
+        var transition = OrderBookTransitions.of(from, to);
+        var before = FOOTPRINT.get(from);
+        var after = FOOTPRINT.get(to);
+        assertEquals(after[0] - before[0], transition.stock().available(), "available");
+        assertEquals(after[1] - before[1], transition.stock().reserve(), "reserve");
+        assertEquals(after[2] - before[2], transition.stock().count(), "count");
+        assertEquals(after[3] - before[3], transition.bookRented(), "bookRented");
+    }
+
+    @ParameterizedTest(name = "{0} -> {1}")
+    @MethodSource("allPairs")
+    @DisplayName("Из конечного статуса возможен только переход в тот же статус")
+    void terminalStatus_HasNoOutgoingTransitions(OrderBookStatus from, OrderBookStatus to) {
+        if (TERMINAL.contains(from)) {
+            assertEquals(from == to, OrderBookTransitions.isAllowed(from, to));
+        }
+    }
+
+    @ParameterizedTest(name = "{0} -> {0}")
+    @MethodSource("allPairs")
+    @DisplayName("Переход в тот же статус ничего не меняет")
+    void samePair_IsIdentity(OrderBookStatus from, OrderBookStatus to) {
+        if (from != to) {
+            return;
+        }
+        var transition = OrderBookTransitions.of(from, to);
+        assertTrue(transition.isIdentity());
+        assertTrue(transition.stock().isZero());
+        assertEquals(0, transition.bookRented());
+        assertEquals(OrderBookTransitions.Violation.NONE, transition.violation());
+    }
+
+    @Test
+    @DisplayName("Нарушение назначается только при возврате с просрочкой и потере пользователем")
+    void violations_OnlyForReturnAndUserLoss() {
+        assertEquals(OrderBookTransitions.Violation.IF_OVERDUE,
+                OrderBookTransitions.of(OrderBookStatus.RENTED, OrderBookStatus.RETURNED).violation());
+        assertEquals(OrderBookTransitions.Violation.ALWAYS,
+                OrderBookTransitions.of(OrderBookStatus.RENTED, OrderBookStatus.LOSSUSER).violation());
+        assertEquals("Используйте статус RETURNED или LOSSUSER", assertThrows(OrderBookStatusException.class,
+                () -> OrderBookTransitions.of(OrderBookStatus.RENTED, OrderBookStatus.CANCELLED)).getMessage());
+    }
+
+    @RepeatedTest(50)
+    @DisplayName("Случайная последовательность переходов: сумма пакета равна сумме переходов и вкладу конечного статуса")
+    void randomWalks_BatchedDeltasMatchFootprint(RepetitionInfo repetition) {
+        var random = new Random(repetition.getCurrentRepetition());
+        var batch = new OrderBookTransitions.DeltaBatch();
+        int copies = 1 + random.nextInt(5);
+        int[] expected = new int[4];
+        for (int copy = 0; copy < copies; copy++) {
+            var status = OrderBookStatus.CREATED;
+            for (int step = 0; step < 6; step++) {
+                var next = OrderBookStatus.values()[random.nextInt(OrderBookStatus.values().length)];
+                if (OrderBookTransitions.isAllowed(status, next)) {
+                    batch.add(OrderBookTransitions.of(status, next), 1, 1);
+                    status = next;
+                }
+            }
+            var created = FOOTPRINT.get(OrderBookStatus.CREATED);
+            var reached = FOOTPRINT.get(status);
+            for (int i = 0; i < expected.length; i++) {
+                expected[i] += reached[i] - created[i];
+            }
+        }
+        var stock = batch.books().getOrDefault(1, new OrderBookTransitions.StockDelta(0, 0, 0));
+        assertEquals(expected[0], stock.available());
+        assertEquals(expected[1], stock.reserve());
+        assertEquals(expected[2], stock.count());
+        assertEquals(expected[3], (int) batch.users().getOrDefault(1, 0));
+    }
+}
@@ -1,5 +1,7 @@
 package ru.olympusnsp.library.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -7,6 +9,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -14,7 +17,10 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.test.util.ReflectionTestUtils; // Для установки @Value полей
 import ru.olympusnsp.library.dto.OrderBookChangeRequest;
+import ru.olympusnsp.library.dto.OrderBookChangeResult;
 import ru.olympusnsp.library.dto.OrderCreate;
+import ru.olympusnsp.library.dto.OrderCreated;
+import ru.olympusnsp.library.dto.OrderedBook;
 import ru.olympusnsp.library.exeption.*;
 import ru.olympusnsp.library.model.*; // Импортируем User, Book, Order, OrderBook
 import ru.olympusnsp.library.repository.OrderBookRepository;
@@ -25,7 +31,9 @@ import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -43,6 +51,9 @@ class OrderServiceImplTest {
     @Mock
     private BookService bookService;
 
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @InjectMocks
     private OrderServiceImpl orderService;
 
@@ -167,13 +178,11 @@ class OrderServiceImplTest {
     void createNewOrder_Successful() {
         // Arrange
         when(userService.findById(USER_ID)).thenReturn(mockUser);
-        when(bookService.findById(BOOK_ID_1)).thenReturn(mockBook1);
-        when(bookService.findById(BOOK_ID_2)).thenReturn(mockBook2);
-
-        Order savedOrderWithId = new Order();
-        savedOrderWithId.setId(ORDER_ID);
-        savedOrderWithId.setUser(mockUser);
-        savedOrderWithId.setCreatedData(LocalDate.now());
+        when(bookService.findAllByIdIn(List.of(BOOK_ID_1, BOOK_ID_2)))
+                .thenReturn(Map.of(BOOK_ID_1, mockBook1, BOOK_ID_2, mockBook2));
+        when(userService.addBookRentedUpTo(USER_ID, 2, MAX_RENTAL_BOOKS)).thenReturn(true);
+        when(bookService.decrementAvailable(BOOK_ID_1, 1)).thenReturn(true);
+        when(bookService.decrementAvailable(BOOK_ID_2, 1)).thenReturn(true);
 
         when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
             Order orderToSave = invocation.getArgument(0);
@@ -181,33 +190,59 @@ class OrderServiceImplTest {
             return orderToSave; // Возвращаем "сохраненный" объект
         });
 
-        mockOrder.setOrderBooks(Set.of( // Добавляем ожидаемые OrderBook к моку order
-                new OrderBook(null, mockOrder, OrderBook.OrderBookStatus.CREATED, null, null,null,mockBook1 ),
-                new OrderBook(null, mockOrder, OrderBook.OrderBookStatus.CREATED, null, null, null, mockBook2)
-        ));
-        when(orderRepository.findById(ORDER_ID)).thenReturn(Optional.of(mockOrder)); // Возвращаем мок заказа с книгами
-
-        Order result = orderService.createNewOrder(orderCreateDto);
+        OrderCreated result = orderService.createNewOrder(orderCreateDto);
 
         assertNotNull(result);
         assertEquals(ORDER_ID, result.getId());
-        assertEquals(mockUser, result.getUser());
-        assertEquals(2, result.getUser().getBookRented());
+        assertEquals(USER_ID, result.getUserId());
         assertNotNull(result.getCreatedData());
-        assertNotNull(result.getOrderBooks());
         assertEquals(2, result.getOrderBooks().size()); // Проверяем количество книг в заказе
-
-        // Проверяем, что доступное количество книг уменьшилось
-        assertEquals(4, mockBook1.getAvailable()); // 5 -> 4
-        assertEquals(0, mockBook2.getAvailable()); // 1 -> 0
+        for (var orderedBook : result.getOrderBooks()) {
+            assertEquals(OrderBook.OrderBookStatus.CREATED, orderedBook.getStatus());
+        }
+        assertEquals(Set.of(BOOK_ID_1, BOOK_ID_2),
+                new HashSet<>(result.getOrderBooks().stream().map(OrderedBook::getBookId).toList()));
+
+        // Заказ сохраняется один раз, уже с заказанными книгами
+        var orderCaptor = ArgumentCaptor.forClass(Order.class);
+        verify(orderRepository, times(1)).save(orderCaptor.capture());
+        assertEquals(2, orderCaptor.getValue().getOrderBooks().size());
+
+        // Доступное количество списывается условным UPDATE, без изменения сущностей
+        verify(bookService, times(1)).decrementAvailable(BOOK_ID_1, 1);
+        verify(bookService, times(1)).decrementAvailable(BOOK_ID_2, 1);
+        assertEquals(5, mockBook1.getAvailable());
+        assertEquals(1, mockBook2.getAvailable());
 
         verify(userService, times(1)).findById(USER_ID);
-        verify(bookService, times(1)).findById(BOOK_ID_1);
-        verify(bookService, times(1)).findById(BOOK_ID_2);
-        verify(orderRepository, times(1)).save(any(Order.class)); // Проверяем, что save был вызван
-        verify(userService, times(1)).save(mockUser); //
-        verify(orderRepository, times(1)).findById(ORDER_ID); // Проверяем финальный findById
+        verify(bookService, times(1)).findAllByIdIn(List.of(BOOK_ID_1, BOOK_ID_2)); // Одна выборка на весь заказ
+        verify(bookService, never()).findById(any());
+        verify(userService, times(1)).addBookRentedUpTo(USER_ID, 2, MAX_RENTAL_BOOKS); // Счетчик одним условным UPDATE
+        verify(userService, never()).addBookRented(any(), anyInt());
+        verify(userService, never()).save(any());
+        verify(orderRepository, never()).findById(anyLong()); // Ответ строится без повторного чтения заказа
+
+    }
+
+    @Test
+    @DisplayName("createNewOrder - Повторная книга списывается одним UPDATE на нужное количество")
+    void createNewOrder_DuplicateBook_DecrementsOnce() {
+        orderCreateDto.setBook_ids(List.of(BOOK_ID_1, BOOK_ID_1));
+        when(userService.findById(USER_ID)).thenReturn(mockUser);
+        when(bookService.findAllByIdIn(List.of(BOOK_ID_1, BOOK_ID_1))).thenReturn(Map.of(BOOK_ID_1, mockBook1));
+        when(userService.addBookRentedUpTo(USER_ID, 2, MAX_RENTAL_BOOKS)).thenReturn(true);
+        when(bookService.decrementAvailable(BOOK_ID_1, 2)).thenReturn(true);
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
+            Order orderToSave = invocation.getArgument(0);
+            orderToSave.setId(ORDER_ID);
+            return orderToSave;
+        });
 
+        orderService.createNewOrder(orderCreateDto);
+
+        verify(bookService, times(1)).decrementAvailable(BOOK_ID_1, 2);
+        verify(bookService, never()).decrementAvailable(BOOK_ID_1, 1);
+        verify(userService, times(1)).addBookRentedUpTo(USER_ID, 2, MAX_RENTAL_BOOKS);
     }
 
     @Test
@@ -265,21 +300,32 @@ class OrderServiceImplTest {
         verifyNoInteractions(bookService, orderRepository, orderBookRepository);
     }
 
+    @Test
+    @DisplayName("createNewOrder - Лимит книг исчерпан параллельным заказом, условный UPDATE не изменил счетчик")
+    void createNewOrder_ConcurrentRentalLimitExceeded() {
+        mockUser.setBookRented(MAX_RENTAL_BOOKS - 2); // Прочитанный счетчик еще допускает 2 книги
+        when(userService.findById(USER_ID)).thenReturn(mockUser);
+        when(bookService.findAllByIdIn(List.of(BOOK_ID_1, BOOK_ID_2)))
+                .thenReturn(Map.of(BOOK_ID_1, mockBook1, BOOK_ID_2, mockBook2));
+        when(userService.addBookRentedUpTo(USER_ID, 2, MAX_RENTAL_BOOKS)).thenReturn(false);
+
+        assertThrows(BookCountExcessException.class, () -> {
+            orderService.createNewOrder(orderCreateDto);
+        });
+        verify(bookService, never()).decrementAvailable(any(), anyInt()); // Экземпляры не списываются
+        verifyNoInteractions(orderRepository, orderBookRepository);
+    }
+
     @Test
     @DisplayName("createNewOrder - Книга недоступна")
     void createNewOrder_BookUnavailable() {
 
-        mockBook2.setAvailable(0); // Вторая книга недоступна
         when(userService.findById(USER_ID)).thenReturn(mockUser);
-        when(bookService.findById(BOOK_ID_1)).thenReturn(mockBook1);
-        when(bookService.findById(BOOK_ID_2)).thenReturn(mockBook2);
-
-
-        Order savedOrderWithId = new Order();
-        savedOrderWithId.setId(ORDER_ID);
-        savedOrderWithId.setUser(mockUser);
-        savedOrderWithId.setCreatedData(LocalDate.now());
-        when(orderRepository.save(any(Order.class))).thenReturn(savedOrderWithId);
+        when(bookService.findAllByIdIn(List.of(BOOK_ID_1, BOOK_ID_2)))
+                .thenReturn(Map.of(BOOK_ID_1, mockBook1, BOOK_ID_2, mockBook2));
+        when(userService.addBookRentedUpTo(USER_ID, 2, MAX_RENTAL_BOOKS)).thenReturn(true);
+        when(bookService.decrementAvailable(BOOK_ID_1, 1)).thenReturn(true);
+        when(bookService.decrementAvailable(BOOK_ID_2, 1)).thenReturn(false); // Вторая книга недоступна
 
 
         assertThrows(BookUnavailableException.class, () -> {
@@ -287,10 +333,9 @@ class OrderServiceImplTest {
         });
 
         verify(userService, times(1)).findById(USER_ID);
-        verify(bookService, times(1)).findById(BOOK_ID_1);
-        verify(bookService, times(1)).findById(BOOK_ID_2);
-        verify(orderRepository, times(1)).save(any(Order.class)); // Пустой заказ сохраняется до проверки книг
-        verify(orderRepository, never()).findById(anyLong()); // Финальный findById не вызывается
+        verify(bookService, times(1)).findAllByIdIn(List.of(BOOK_ID_1, BOOK_ID_2));
+        verify(bookService, times(1)).decrementAvailable(BOOK_ID_2, 1);
+        verifyNoInteractions(orderRepository); // Заказ не сохраняется, если книги не хватило
         verifyNoInteractions(orderBookRepository); // orderBookRepository.save не вызывается
     }
 
@@ -300,25 +345,16 @@ class OrderServiceImplTest {
         int nonExistentBookId = 999;
         orderCreateDto.setBook_ids(List.of(BOOK_ID_1, nonExistentBookId));
         when(userService.findById(USER_ID)).thenReturn(mockUser);
-        when(bookService.findById(BOOK_ID_1)).thenReturn(mockBook1);
-        when(bookService.findById(nonExistentBookId)).thenThrow(new NotFoundEntity("Book not found"));
-
-        Order savedOrderWithId = new Order();
-        savedOrderWithId.setId(ORDER_ID);
-        savedOrderWithId.setUser(mockUser);
-        savedOrderWithId.setCreatedData(LocalDate.now());
-        when(orderRepository.save(any(Order.class))).thenReturn(savedOrderWithId);
+        when(bookService.findAllByIdIn(List.of(BOOK_ID_1, nonExistentBookId))).thenThrow(new NotFoundEntity("Book not found"));
 
         assertThrows(NotFoundEntity.class, () -> {
             orderService.createNewOrder(orderCreateDto);
         });
 
         verify(userService, times(1)).findById(USER_ID);
-        verify(bookService, times(1)).findById(BOOK_ID_1);
-        verify(bookService, times(1)).findById(nonExistentBookId);
-        verify(orderRepository, times(1)).save(any(Order.class));
-        verify(orderRepository, never()).findById(anyLong());
-        verifyNoInteractions(orderBookRepository);
+        verify(bookService, times(1)).findAllByIdIn(List.of(BOOK_ID_1, nonExistentBookId));
+        verifyNoInteractions(orderRepository, orderBookRepository); // Неизвестная книга отклоняется до записи заказа
+        verify(userService, never()).save(any());
     }
 
 
@@ -359,7 +395,6 @@ class OrderServiceImplTest {
     void changeOrderBook_CreatedToPrepared() {
         changeRequest.setStatus(OrderBook.OrderBookStatus.PREPARED);
         mockOrderBook.setStatus(OrderBook.OrderBookStatus.CREATED);
-        int initialReserve = mockBook1.getReserve();
 
         when(orderBookRepository.findById(ORDER_BOOK_ID)).thenReturn(Optional.of(mockOrderBook));
         // Возвращаем измененный объект при сохранении
@@ -369,7 +404,11 @@ class OrderServiceImplTest {
 
         assertNotNull(result);
         assertEquals(OrderBook.OrderBookStatus.PREPARED, result.getStatus());
-        assertEquals(initialReserve + 1, result.getBook().getReserve()); // Проверяем увеличение резерва
+        verify(bookService, times(1)).applyStockDelta(BOOK_ID_1, 0, 1, 0); // Проверяем увеличение резерва
+        verify(bookService, times(1)).refreshStock(mockBook1); // В ответе - книга с новыми счетчиками
+        // Вне транзакции переход учитывается сразу
+        assertEquals(1, meterRegistry.get("library.order.book.transitions")
+                .tag("from", "CREATED").tag("to", "PREPARED").counter().count());
 
         verify(orderBookRepository, times(1)).findById(ORDER_BOOK_ID);
         verify(orderBookRepository, times(1)).save(any(OrderBook.class));
@@ -380,7 +419,7 @@ class OrderServiceImplTest {
     void changeOrderBook_CreatedToLossLibrary() {
         changeRequest.setStatus(OrderBook.OrderBookStatus.LOSSLIBRARY);
         mockOrderBook.setStatus(OrderBook.OrderBookStatus.CREATED);
-        int initialCount = mockBook1.getCount(); // Используем общее количество для обновления available
+        mockOrderBook.getOrder().getUser().setBookRented(1);
 
         when(orderBookRepository.findById(ORDER_BOOK_ID)).thenReturn(Optional.of(mockOrderBook));
         when(orderBookRepository.save(any(OrderBook.class))).thenAnswer(invocation -> invocation.getArgument(0));
@@ -389,7 +428,10 @@ class OrderServiceImplTest {
 
         assertNotNull(result);
         assertEquals(OrderBook.OrderBookStatus.LOSSLIBRARY, result.getStatus());
-        assertEquals(initialCount - 1, result.getBook().getAvailable()); // Проверяем установку available = count - 1
+        // Экземпляр списан, доступные не меняются, книга уже списана при заказе
+        verify(bookService, times(1)).applyStockDelta(BOOK_ID_1, 0, 0, -1);
+        verify(userService, times(1)).addBookRented(USER_ID, -1); // Заказ пользователя закрыт
+        verify(userService, never()).save(any());
 
         verify(orderBookRepository, times(1)).findById(ORDER_BOOK_ID);
         verify(orderBookRepository, times(1)).save(any(OrderBook.class));
@@ -401,8 +443,6 @@ class OrderServiceImplTest {
 
         changeRequest.setStatus(OrderBook.OrderBookStatus.RENTED);
         mockOrderBook.setStatus(OrderBook.OrderBookStatus.PREPARED);
-        mockBook1.setReserve(1); // Книга должна быть в резерве
-        int initialReserve = mockBook1.getReserve();
         LocalDate today = LocalDate.now();
         LocalDate expectedReturnDate = today.plusDays(DAYS_RENTAL_BOOKS);
 
@@ -415,7 +455,7 @@ class OrderServiceImplTest {
         // Assert
         assertNotNull(result);
         assertEquals(OrderBook.OrderBookStatus.RENTED, result.getStatus());
-        assertEquals(initialReserve - 1, result.getBook().getReserve()); // Резерв уменьшился
+        verify(bookService, times(1)).applyStockDelta(BOOK_ID_1, 0, -1, 0); // Резерв уменьшился
         assertEquals(today, result.getDateStartRentedBook()); // Дата начала аренды установлена
         assertEquals(expectedReturnDate, result.getDateReturnUpto()); // Дата возврата установлена
 
@@ -435,7 +475,6 @@ class OrderServiceImplTest {
         mockOrderBook.setDateReturnUpto(LocalDate.now().plusDays(1));
 
         mockOrderBook.getOrder().getUser().setBookRented(2);
-        int initialAvailable = mockBook1.getAvailable();
 
         when(orderBookRepository.findById(ORDER_BOOK_ID)).thenReturn(Optional.of(mockOrderBook));
         when(orderBookRepository.save(any(OrderBook.class))).thenAnswer(invocation -> invocation.getArgument(0));
@@ -443,22 +482,18 @@ class OrderServiceImplTest {
         OrderBook result = orderService.changeOrderBook(changeRequest);
 
 
-        var user = result.getOrder().getUser();
-
         assertNotNull(result);
         assertEquals(OrderBook.OrderBookStatus.RETURNED, result.getStatus());
         assertNotNull(result.getDateReturnedBook());
-        assertEquals(1,user.getBookRented());
-        assertEquals(initialAvailable + 1, result.getBook().getAvailable());
+        verify(bookService, times(1)).applyStockDelta(BOOK_ID_1, 1, 0, 0);
         verify(userService,never()).addViolation(USER_ID);
 
         ArgumentCaptor<OrderBook> captor = ArgumentCaptor.forClass(OrderBook.class);
         verify(orderBookRepository, times(1)).save(captor.capture());
-        verify(userService, times(1)).save(user);
+        verify(userService, times(1)).addBookRented(USER_ID, -1);
         OrderBook savedOrderBook = captor.getValue();
-        verify(userService, times(1)).save(mockUser); //
+        verify(userService, never()).save(any());
         assertEquals(OrderBook.OrderBookStatus.RETURNED, savedOrderBook.getStatus());
-        assertEquals(initialAvailable + 1, savedOrderBook.getBook().getAvailable());
     }
 
     @Test
@@ -470,7 +505,6 @@ class OrderServiceImplTest {
         // Устанавливаем дату возврата в прошлом для имитации просрочки
         mockOrderBook.setDateReturnUpto(LocalDate.now().minusDays(1));
         mockOrderBook.getOrder().getUser().setBookRented(2);
-        int initialAvailable = mockBook1.getAvailable();
 
         when(orderBookRepository.findById(ORDER_BOOK_ID)).thenReturn(Optional.of(mockOrderBook));
         when(orderBookRepository.save(any(OrderBook.class))).thenAnswer(invocation -> invocation.getArgument(0));
@@ -478,16 +512,15 @@ class OrderServiceImplTest {
         OrderBook result = orderService.changeOrderBook(changeRequest);
 
         assertNotNull(result);
-        assertEquals(1, result.getOrder().getUser().getBookRented());
         assertEquals(OrderBook.OrderBookStatus.RETURNED, result.getStatus());
         assertNotNull(result.getDateReturnedBook());
-        assertEquals(initialAvailable + 1, result.getBook().getAvailable());
+        verify(bookService, times(1)).applyStockDelta(BOOK_ID_1, 1, 0, 0);
 
         verify(userService,times(1)).addViolation(USER_ID);
 
         ArgumentCaptor<OrderBook> captor = ArgumentCaptor.forClass(OrderBook.class);
         verify(orderBookRepository, times(1)).save(captor.capture());
-        verify(userService, times(1)).save(mockUser); //
+        verify(userService, times(1)).addBookRented(USER_ID, -1);
         OrderBook savedOrderBook = captor.getValue();
     }
 
@@ -501,7 +534,6 @@ class OrderServiceImplTest {
         changeRequest.setStatus(OrderBook.OrderBookStatus.LOSSUSER);
         mockOrderBook.setStatus(OrderBook.OrderBookStatus.RENTED);
         mockOrderBook.getOrder().getUser().setBookRented(2);
-        int initialCount = mockBook1.getCount(); // Используем count для обновления available
 
         when(orderBookRepository.findById(ORDER_BOOK_ID)).thenReturn(Optional.of(mockOrderBook));
         when(orderBookRepository.save(any(OrderBook.class))).thenAnswer(invocation -> invocation.getArgument(0));
@@ -511,17 +543,16 @@ class OrderServiceImplTest {
 
         // Assert
         assertNotNull(result);
-        assertEquals(1, result.getOrder().getUser().getBookRented());
         assertEquals(OrderBook.OrderBookStatus.LOSSUSER, result.getStatus());
         verify(userService,times(1)).addViolation(USER_ID);; // Нарушение +1
         assertFalse(result.getOrder().getUser().getStatusBlock()); // Блокировки нет
-        assertEquals(initialCount - 1, result.getBook().getAvailable()); // Книга списывается (available = count - 1)
+        verify(bookService, times(1)).applyStockDelta(BOOK_ID_1, 0, 0, -1); // Книга списывается
 
         ArgumentCaptor<OrderBook> captor = ArgumentCaptor.forClass(OrderBook.class);
         verify(orderBookRepository, times(1)).save(captor.capture());
         OrderBook savedOrderBook = captor.getValue();
-        verify(userService, times(1)).save(mockUser); //
-        assertEquals(initialCount - 1, savedOrderBook.getBook().getAvailable());
+        verify(userService, times(1)).addBookRented(USER_ID, -1);
+        assertEquals(OrderBook.OrderBookStatus.LOSSUSER, savedOrderBook.getStatus());
     }
 
 
@@ -534,10 +565,6 @@ class OrderServiceImplTest {
         changeRequest.setStatus(OrderBook.OrderBookStatus.CANCELLED);
         mockOrderBook.setStatus(OrderBook.OrderBookStatus.PREPARED);
         mockOrderBook.getOrder().getUser().setBookRented(2);
-        mockBook1.setReserve(1); // Была в резерве
-        mockBook1.setAvailable(4); // Доступных было меньше
-        int initialReserve = mockBook1.getReserve();
-        int initialAvailable = mockBook1.getAvailable();
 
         when(orderBookRepository.findById(ORDER_BOOK_ID)).thenReturn(Optional.of(mockOrderBook));
         when(orderBookRepository.save(any(OrderBook.class))).thenAnswer(invocation -> invocation.getArgument(0));
@@ -547,19 +574,16 @@ class OrderServiceImplTest {
 
         // Assert
         assertNotNull(result);
-        assertEquals(1, result.getOrder().getUser().getBookRented());
         assertEquals(OrderBook.OrderBookStatus.CANCELLED, result.getStatus()); // Статус установлен в моке перед save
-        assertEquals(initialReserve - 1, result.getBook().getReserve()); // Резерв снят
-        assertEquals(initialAvailable + 1, result.getBook().getAvailable()); // Доступность увеличена
+        verify(bookService, times(1)).applyStockDelta(BOOK_ID_1, 1, -1, 0); // Резерв снят, доступность увеличена
 
         ArgumentCaptor<OrderBook> captor = ArgumentCaptor.forClass(OrderBook.class);
         verify(orderBookRepository, times(1)).save(captor.capture());
         OrderBook savedOrderBook = captor.getValue();
         // Статус CANCELLED должен быть установлен в самом orderBook перед сохранением
         //assertEquals(OrderBook.OrderBookStatus.CANCELLED, savedOrderBook.getStatus()); // Это не проверяем, т.к. статус неявно присваивается в коде
-        assertEquals(initialReserve - 1, savedOrderBook.getBook().getReserve());
-        assertEquals(initialAvailable + 1, savedOrderBook.getBook().getAvailable());
-        verify(userService, times(1)).save(mockUser); //
+        assertEquals(OrderBook.OrderBookStatus.CANCELLED, savedOrderBook.getStatus());
+        verify(userService, times(1)).addBookRented(USER_ID, -1);
     }
 
     @Test
@@ -569,9 +593,6 @@ class OrderServiceImplTest {
         changeRequest.setStatus(OrderBook.OrderBookStatus.CANCELLED);
         mockOrderBook.setStatus(OrderBook.OrderBookStatus.CREATED);
         mockOrderBook.getOrder().getUser().setBookRented(2);
-        // Предполагаем, что книга была зарезервирована при создании заказа (уменьшен available)
-        mockBook1.setAvailable(4);
-        int initialAvailable = mockBook1.getAvailable();
 
         when(orderBookRepository.findById(ORDER_BOOK_ID)).thenReturn(Optional.of(mockOrderBook));
         when(orderBookRepository.save(any(OrderBook.class))).thenAnswer(invocation -> invocation.getArgument(0));
@@ -581,13 +602,15 @@ class OrderServiceImplTest {
 
         // Assert
         assertNotNull(result);
-        assertEquals(1, result.getOrder().getUser().getBookRented());
-        assertEquals(initialAvailable + 1, result.getBook().getAvailable()); // Доступность возвращена
+        assertEquals(OrderBook.OrderBookStatus.CANCELLED, result.getStatus());
+        // Книга списана при создании заказа, при отмене доступность возвращается
+        verify(bookService, times(1)).applyStockDelta(BOOK_ID_1, 1, 0, 0);
 
         ArgumentCaptor<OrderBook> captor = ArgumentCaptor.forClass(OrderBook.class);
         verify(orderBookRepository, times(1)).save(captor.capture());
         OrderBook savedOrderBook = captor.getValue();
-        assertEquals(initialAvailable + 1, savedOrderBook.getBook().getAvailable());
+        assertEquals(OrderBook.OrderBookStatus.CANCELLED, savedOrderBook.getStatus());
+        verify(userService, times(1)).addBookRented(USER_ID, -1);
     }
 
     @Test
@@ -627,4 +650,69 @@ class OrderServiceImplTest {
         verify(orderBookRepository, times(1)).findById(ORDER_BOOK_ID);
         verify(orderBookRepository, never()).save(any());
     }
-}
\ No newline at end of file
+
+    // --- Тесты для changeOrderBooks ---
+
+    @Test
+    @DisplayName("changeOrderBooks - ошибка одного изменения не отменяет остальные")
+    void changeOrderBooks_PerItemFailuresDoNotAbortValidTransitions() {
+        var rentedOrderBook = new OrderBook();
+        rentedOrderBook.setId(ORDER_BOOK_ID + 1);
+        rentedOrderBook.setOrder(mockOrder);
+        rentedOrderBook.setBook(mockBook2);
+        rentedOrderBook.setStatus(OrderBook.OrderBookStatus.RENTED);
+        Long missingId = 999L;
+
+        var changes = List.of(
+                new OrderBookChangeRequest(ORDER_BOOK_ID, OrderBook.OrderBookStatus.PREPARED),
+                new OrderBookChangeRequest(ORDER_BOOK_ID + 1, OrderBook.OrderBookStatus.CANCELLED),
+                new OrderBookChangeRequest(missingId, OrderBook.OrderBookStatus.PREPARED));
+        when(orderBookRepository.findAllWithOrderByIdIn(Set.of(ORDER_BOOK_ID, ORDER_BOOK_ID + 1, missingId)))
+                .thenReturn(List.of(mockOrderBook, rentedOrderBook));
+
+        var results = orderService.changeOrderBooks(changes);
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(OrderBook.OrderBookStatus.PREPARED, results.get(0).getStatus());
+        assertEquals(OrderBook.OrderBookStatus.PREPARED, mockOrderBook.getStatus());
+        verify(bookService, times(1)).applyStockDelta(BOOK_ID_1, 0, 1, 0); // Счетчики меняются set-based UPDATE
+        assertEquals(0, mockBook1.getReserve());
+
+        assertFalse(results.get(1).isSuccess());
+        assertEquals(OrderBook.OrderBookStatus.RENTED, results.get(1).getStatus());
+        assertNotNull(results.get(1).getError());
+
+        assertFalse(results.get(2).isSuccess());
+        assertEquals(missingId, results.get(2).getOrderBookId());
+
+        verify(orderBookRepository, times(1)).findAllWithOrderByIdIn(any());
+        verify(orderBookRepository, never()).findById(anyLong());
+        verify(bookService, never()).applyStockDelta(eq(BOOK_ID_2), anyInt(), anyInt(), anyInt());
+        verify(userService, never()).addBookRented(any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("changeOrderBooks - изменения счетчиков суммируются в один UPDATE на книгу и пользователя")
+    void changeOrderBooks_AggregatesDeltasPerBookAndUser() {
+        var secondOrderBook = new OrderBook();
+        secondOrderBook.setId(ORDER_BOOK_ID + 1);
+        secondOrderBook.setOrder(mockOrder);
+        secondOrderBook.setBook(mockBook1);
+        secondOrderBook.setStatus(OrderBook.OrderBookStatus.PREPARED);
+
+        var changes = List.of(
+                new OrderBookChangeRequest(ORDER_BOOK_ID, OrderBook.OrderBookStatus.CANCELLED),
+                new OrderBookChangeRequest(ORDER_BOOK_ID + 1, OrderBook.OrderBookStatus.CANCELLED));
+        when(orderBookRepository.findAllWithOrderByIdIn(Set.of(ORDER_BOOK_ID, ORDER_BOOK_ID + 1)))
+                .thenReturn(List.of(mockOrderBook, secondOrderBook));
+
+        var results = orderService.changeOrderBooks(changes);
+
+        assertTrue(results.stream().allMatch(OrderBookChangeResult::isSuccess));
+        // CREATED -> CANCELLED (+1, 0) и PREPARED -> CANCELLED (+1, -1)
+        verify(bookService, times(1)).applyStockDelta(BOOK_ID_1, 2, -1, 0);
+        verify(userService, times(1)).addBookRented(USER_ID, -2);
+        verify(userService, never()).save(any());
+    }
+}
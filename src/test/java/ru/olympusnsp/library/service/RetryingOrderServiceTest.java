@@ -0,0 +1,143 @@
+package ru.olympusnsp.library.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import ru.olympusnsp.library.dto.OrderBookChangeRequest;
+import ru.olympusnsp.library.dto.OrderCreate;
+import ru.olympusnsp.library.dto.OrderCreated;
+import ru.olympusnsp.library.exeption.BookUnavailableException;
+import ru.olympusnsp.library.exeption.OrderBookStatusException;
+import ru.olympusnsp.library.model.Order;
+import ru.olympusnsp.library.model.OrderBook;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RetryingOrderServiceTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Mock
+    private OrderService orderService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private RetryingOrderService retryingOrderService;
+    private OrderBookChangeRequest changeRequest;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // Пауза 0 мс, чтобы тесты не ждали
+        retryingOrderService = new RetryingOrderService(orderService, meterRegistry, MAX_ATTEMPTS, 0);
+        changeRequest = new OrderBookChangeRequest(1L, OrderBook.OrderBookStatus.PREPARED);
+    }
+
+    private ObjectOptimisticLockingFailureException conflict() {
+        return new ObjectOptimisticLockingFailureException(OrderBook.class, 1L);
+    }
+
+    private double counter(String name) {
+        return meterRegistry.get(name).counter().count();
+    }
+
+    @Test
+    @DisplayName("changeOrderBook - повтор после конфликта версий и успешное выполнение")
+    void changeOrderBook_RetriesAfterConflict() {
+        var orderBook = new OrderBook();
+        when(orderService.changeOrderBook(changeRequest))
+                .thenThrow(conflict())
+                .thenReturn(orderBook);
+
+        OrderBook result = retryingOrderService.changeOrderBook(changeRequest);
+
+        assertSame(orderBook, result);
+        verify(orderService, times(2)).changeOrderBook(changeRequest);
+        assertEquals(1, counter("library.order.optimistic.conflicts"));
+        assertEquals(1, counter("library.order.optimistic.retries"));
+        assertEquals(0, counter("library.order.optimistic.exhausted"));
+    }
+
+    @Test
+    @DisplayName("createNewOrder - после исчерпания попыток конфликт пробрасывается")
+    void createNewOrder_ThrowsWhenAttemptsExhausted() {
+        var orderCreate = new OrderCreate(1, List.of(1));
+        when(orderService.createNewOrder(orderCreate)).thenThrow(conflict());
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> retryingOrderService.createNewOrder(orderCreate));
+
+        verify(orderService, times(MAX_ATTEMPTS)).createNewOrder(orderCreate);
+        assertEquals(MAX_ATTEMPTS, counter("library.order.optimistic.conflicts"));
+        assertEquals(MAX_ATTEMPTS - 1, counter("library.order.optimistic.retries"));
+        assertEquals(1, counter("library.order.optimistic.exhausted"));
+    }
+
+    @Test
+    @DisplayName("createNewOrder - повтор после отката взаимной блокировки строк")
+    void createNewOrder_RetriesAfterDeadlock() {
+        var orderCreate = new OrderCreate(1, List.of(1));
+        var created = new OrderCreated(5L, 1, null, List.of());
+        when(orderService.createNewOrder(orderCreate))
+                .thenThrow(new CannotAcquireLockException("Deadlock detected"))
+                .thenReturn(created);
+
+        assertSame(created, retryingOrderService.createNewOrder(orderCreate));
+
+        verify(orderService, times(2)).createNewOrder(orderCreate);
+        assertEquals(1, counter("library.order.optimistic.retries"));
+    }
+
+    @Test
+    @DisplayName("changeOrderBook - прочие ошибки не повторяются")
+    void changeOrderBook_DoesNotRetryBusinessErrors() {
+        when(orderService.changeOrderBook(changeRequest)).thenThrow(new OrderBookStatusException("status"));
+
+        assertThrows(OrderBookStatusException.class, () -> retryingOrderService.changeOrderBook(changeRequest));
+
+        verify(orderService, times(1)).changeOrderBook(changeRequest);
+        assertEquals(0, counter("library.order.optimistic.conflicts"));
+    }
+
+    @Test
+    @DisplayName("createNewOrder - время с учетом повторов и отказ по наличию книг в метриках")
+    void createNewOrder_RecordsTimerAndRejection() {
+        var orderCreate = new OrderCreate(1, List.of(1));
+        var created = new OrderCreated(5L, 1, null, List.of());
+        when(orderService.createNewOrder(orderCreate))
+                .thenThrow(conflict())
+                .thenReturn(created)
+                .thenThrow(new BookUnavailableException("Книга недоступна"));
+
+        assertSame(created, retryingOrderService.createNewOrder(orderCreate));
+        assertThrows(BookUnavailableException.class, () -> retryingOrderService.createNewOrder(orderCreate));
+
+        assertEquals(1, meterRegistry.get("library.order.operation")
+                .tag("operation", "createNewOrder").tag("outcome", "success").timer().count());
+        assertEquals(1, meterRegistry.get("library.order.operation")
+                .tag("operation", "createNewOrder").tag("outcome", "BookUnavailableException").timer().count());
+        assertEquals(1, meterRegistry.get("library.order.rejections")
+                .tag("reason", "BookUnavailableException").counter().count());
+        assertEquals(0, meterRegistry.get("library.order.rejections")
+                .tag("reason", "BookCountExcessException").counter().count());
+    }
+
+    @Test
+    @DisplayName("findById - вызывается без повторов")
+    void findById_DelegatesDirectly() {
+        var order = new Order();
+        when(orderService.findById(10L)).thenReturn(order);
+
+        assertSame(order, retryingOrderService.findById(10L));
+        verify(orderService, times(1)).findById(10L);
+    }
+}
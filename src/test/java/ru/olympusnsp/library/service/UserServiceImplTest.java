@@ -4,10 +4,10 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 import ru.olympusnsp.library.exeption.NotFoundUser;
 import ru.olympusnsp.library.model.User;
 import ru.olympusnsp.library.repository.UserRepository;
@@ -16,6 +16,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -23,7 +24,8 @@ public class UserServiceImplTest {
 
     @Mock
     private UserRepository userRepository;
-
+    @Mock
+    private BlockedUserRegistry blockedUserRegistry;
 
     @InjectMocks
     private UserServiceImpl userService;
@@ -31,6 +33,12 @@ public class UserServiceImplTest {
     private User testUser;
     private final Integer userId = 1;
     private final Integer nonExistentUserId = 99;
+    private static final int MAX_VIOLATIONS = 2;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(userService, "maxViolations", MAX_VIOLATIONS);
+    }
 
 
     @Test
@@ -72,76 +80,39 @@ public class UserServiceImplTest {
     @Test
     @DisplayName("addViolation должен увеличить нарушения и не блокировать пользователя (первое нарушение)")
     void addViolation_WhenUserExistsAndFirstViolation_ShouldIncrementViolationsAndNotBlock() {
-        testUser = new User();
-        testUser.setId(userId);
-        testUser.setViolations(0); // Начальное состояние - 0 нарушений
-        testUser.setStatusBlock(false);
-
-
-        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
-
-        ArgumentCaptor<User> userCaptor = ArgumentCaptor.forClass(User.class);
-        when(userRepository.save(userCaptor.capture())).thenAnswer(invocation -> invocation.getArgument(0)); // Возвращаем того же юзера, что пришел на сохранение
-
-        User updatedUser = userService.addViolation(userId);
-
-
-        assertNotNull(updatedUser);
-        assertEquals(1, updatedUser.getViolations());
-        assertFalse(updatedUser.getStatusBlock());
+        when(userRepository.addViolation(userId, MAX_VIOLATIONS)).thenReturn(1);
+        when(userRepository.findStatusBlockById(userId)).thenReturn(false);
 
-        User savedUser = userCaptor.getValue(); // Получаем пользователя, который был передан в save
-        assertNotNull(savedUser);
-        assertEquals(1, savedUser.getViolations() );
-        assertFalse(savedUser.getStatusBlock());
+        assertFalse(userService.addViolation(userId));
 
-        verify(userRepository, times(1)).findById(userId);
-        verify(userRepository, times(1)).save(any(User.class)); // Проверяем, что save был вызван 1 раз с любым объектом User
-        verifyNoMoreInteractions(userRepository);
+        verify(userRepository, times(1)).addViolation(userId, MAX_VIOLATIONS); // Один UPDATE
+        verify(blockedUserRegistry, never()).block(any());
+        verify(userRepository, never()).save(any(User.class)); // Пользователь не сохраняется целиком
     }
 
     @Test
-    @DisplayName("addViolation должен увеличить нарушения и заблокировать пользователя (второе нарушение)")
-    void addViolation_WhenUserExistsAndSecondViolation_ShouldIncrementViolationsAndBlock() {
-        // Arrange
-        testUser = new User();
-        testUser.setId(userId);
-        testUser.setViolations(1); // Начальное состояние - 1 нарушение
-        testUser.setStatusBlock(false); // Еще не заблокирован
-
-        when(userRepository.findById(userId)).thenReturn(Optional.of(testUser));
-        ArgumentCaptor<User> userCaptor = ArgumentCaptor.forClass(User.class);
-        when(userRepository.save(userCaptor.capture())).thenAnswer(invocation -> invocation.getArgument(0));
-
-        User updatedUser = userService.addViolation(userId);
-
-        assertNotNull(updatedUser);
-        assertEquals(2, updatedUser.getViolations());
-        assertTrue(updatedUser.getStatusBlock());
+    @DisplayName("addViolation должен заблокировать пользователя в реестре, если строка заблокирована после UPDATE")
+    void addViolation_WhenRowEndsUpBlocked_ShouldBlockInRegistry() {
+        when(userRepository.addViolation(userId, MAX_VIOLATIONS)).thenReturn(1);
+        when(userRepository.findStatusBlockById(userId)).thenReturn(true);
 
-        User savedUser = userCaptor.getValue();
-        assertNotNull(savedUser);
-        assertEquals(2, savedUser.getViolations());
-        assertTrue(savedUser.getStatusBlock());
+        assertTrue(userService.addViolation(userId));
 
-
-        verify(userRepository, times(1)).findById(userId);
-        verify(userRepository, times(1)).save(any(User.class));
-        verifyNoMoreInteractions(userRepository);
+        verify(userRepository, times(1)).addViolation(userId, MAX_VIOLATIONS);
+        verify(blockedUserRegistry, times(1)).block(userId);
     }
 
     @Test
     @DisplayName("addViolation должен выбросить NotFoundUser, если пользователь не найден")
     void addViolation_WhenUserNotFound_ShouldThrowNotFoundUserException() {
-        when(userRepository.findById(nonExistentUserId)).thenReturn(Optional.empty());
-
+        when(userRepository.addViolation(nonExistentUserId, MAX_VIOLATIONS)).thenReturn(0);
 
         assertThrows(NotFoundUser.class, () -> {
             userService.addViolation(nonExistentUserId);
         });
 
-        verify(userRepository, times(1)).findById(nonExistentUserId);
+        verify(userRepository, never()).findStatusBlockById(any());
+        verify(blockedUserRegistry, never()).block(any());
         verify(userRepository, never()).save(any(User.class));
-        verifyNoMoreInteractions(userRepository);
     }
-}
\ No newline at end of file
+}
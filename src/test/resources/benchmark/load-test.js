@@ -0,0 +1,91 @@
+// Нагрузочный тест /book, /order и /auth/sign-in, инструмент k6 (https://k6.io).
+// Сравнение обычного режима и профиля virtual на одной базе (init.sql, пустой каталог):
+//   mvn -Pjava21 package
+//   java -jar target/Library-0.0.1-SNAPSHOT.jar                                 # пул потоков Tomcat
+//   java -jar target/Library-0.0.1-SNAPSHOT.jar --spring.profiles.active=virtual  # виртуальные потоки
+//   k6 run -e BASE_URL=http://localhost:8081 -e VUS=400 src/test/resources/benchmark/load-test.js
+// Сравниваются http_reqs (пропускная способность) и p(99) http_req_duration по сценариям (тег name).
+// Между запусками база пересоздается, чтобы счетчики книг и пользователей были одинаковыми.
+
+import http from 'k6/http';
+import { check } from 'k6';
+import encoding from 'k6/encoding';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8081';
+const VUS = parseInt(__ENV.VUS || '200');
+const DURATION = __ENV.DURATION || '2m';
+const BOOKS = 50;
+const PASSWORD = 'password-load-test';
+const JSON_HEADERS = { 'Content-Type': 'application/json' };
+
+export const options = {
+    setupTimeout: '10m',
+    scenarios: {
+        // Просмотр каталога: чтение, большая часть нагрузки
+        catalog: { executor: 'constant-vus', vus: Math.ceil(VUS * 0.7), duration: DURATION, exec: 'catalog' },
+        // Заказ одной книги и его отмена: запись с условными UPDATE
+        order: { executor: 'constant-vus', vus: Math.ceil(VUS * 0.2), duration: DURATION, exec: 'order' },
+        // Вход: хеширование пароля в отдельном пуле (setting.password.executor)
+        signIn: { executor: 'constant-vus', vus: Math.ceil(VUS * 0.1), duration: DURATION, exec: 'signIn' },
+    },
+    summaryTrendStats: ['avg', 'med', 'p(95)', 'p(99)', 'max'],
+    // Пороги нужны, чтобы k6 вывел p(99) отдельно по каждому сценарию
+    thresholds: {
+        'http_req_duration{name:book}': ['p(99)>=0'],
+        'http_req_duration{name:order}': ['p(99)>=0'],
+        'http_req_duration{name:sign-in}': ['p(99)>=0'],
+    },
+};
+
+export function setup() {
+    http.post(`${BASE_URL}/author/`, JSON.stringify({ fullname: 'Load Test' }), { headers: JSON_HEADERS });
+    http.post(`${BASE_URL}/genre/`, JSON.stringify({ text: 'Load Test' }), { headers: JSON_HEADERS });
+    const books = [];
+    for (let i = 0; i < BOOKS; i++) {
+        const response = http.post(`${BASE_URL}/book`, JSON.stringify({
+            title: `Load test book ${i}`, year: 2000, description: 'load test', count: 1000000,
+            authorsId: [1], genresId: [1],
+        }), { headers: JSON_HEADERS });
+        books.push(response.json('id'));
+    }
+    // Отдельный пользователь на каждого виртуального пользователя заказа, у каждого не больше одной книги на руках
+    const tokens = [];
+    for (let i = 0; i < Math.ceil(VUS * 0.2); i++) {
+        const response = http.post(`${BASE_URL}/auth/sign-up`, JSON.stringify({
+            username: `loaduser${i}`, email: `loaduser${i}@example.com`, password: PASSWORD,
+        }), { headers: JSON_HEADERS });
+        const token = response.json('token');
+        // id пользователя - из claim id токена, он обязателен в теле заказа
+        const claims = JSON.parse(encoding.b64decode(token.split('.')[1], 'rawurl', 's'));
+        tokens.push({ token, id: claims.id });
+    }
+    return { books, tokens };
+}
+
+export function catalog(data) {
+    const page = Math.floor(Math.random() * 3);
+    const response = http.get(`${BASE_URL}/book?page=${page}&size=20`, { tags: { name: 'book' } });
+    check(response, { 'book 200': (r) => r.status === 200 });
+}
+
+export function order(data) {
+    const user = data.tokens[(__VU - 1) % data.tokens.length];
+    const headers = Object.assign({ Authorization: `Bearer ${user.token}` }, JSON_HEADERS);
+    const bookId = data.books[Math.floor(Math.random() * data.books.length)];
+    const response = http.post(`${BASE_URL}/order`, JSON.stringify({ user_id: user.id, book_ids: [bookId] }),
+        { headers, tags: { name: 'order' } });
+    if (!check(response, { 'order 200': (r) => r.status === 200 })) {
+        return;
+    }
+    for (const orderBook of response.json('orderBooks') || []) {
+        http.put(`${BASE_URL}/order/orderbook/${orderBook.id}`, JSON.stringify({ status: 'CANCELLED' }),
+            { headers, tags: { name: 'order-cancel' } });
+    }
+}
+
+export function signIn(data) {
+    const i = Math.floor(Math.random() * data.tokens.length);
+    const response = http.post(`${BASE_URL}/auth/sign-in`, JSON.stringify({ username: `loaduser${i}`, password: PASSWORD }),
+        { headers: JSON_HEADERS, tags: { name: 'sign-in' } });
+    check(response, { 'sign-in 200': (r) => r.status === 200 });
+}
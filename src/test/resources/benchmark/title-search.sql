@@ -0,0 +1,46 @@
+-- Замер поиска книг по названию на каталоге в несколько миллионов строк.
+-- Запуск на пустой базе, созданной из init.sql:
+--   psql -h localhost -p 5566 -U postgres -f title-search.sql
+-- Сравнивается план и время LIKE без индекса и ILIKE + similarity через индекс idx_book_title_trgm.
+
+\timing on
+
+INSERT INTO book (title, year, description, count, available, reserve)
+SELECT 'Книга ' || md5(i::text) || ' том ' || (i % 97),
+       1800 + i % 225,
+       'benchmark',
+       1, 1, 0
+FROM generate_series(1, 3000000) AS i;
+
+INSERT INTO book (title, year, description, count, available, reserve)
+VALUES ('Война и мир', 1869, 'benchmark', 1, 1, 0),
+       ('Мир в войне', 1950, 'benchmark', 1, 1, 0);
+
+ANALYZE book;
+
+-- Без индекса: последовательное чтение всей таблицы
+DROP INDEX IF EXISTS idx_book_title_trgm;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT b.* FROM book b WHERE b.title LIKE '%Война%' LIMIT 20;
+
+CREATE INDEX idx_book_title_trgm ON book USING gin (title gin_trgm_ops);
+ANALYZE book;
+
+-- Запросы BookRepository.searchByTitle: выборка страницы и подсчет
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT b.* FROM book b
+WHERE b.title ILIKE '%война%'
+ORDER BY similarity(b.title, 'война') DESC, b.id
+LIMIT 20;
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT count(*) FROM book b WHERE b.title ILIKE '%война%';
+
+-- Короткая строка из 3 символов, минимальная длина поиска
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT b.* FROM book b
+WHERE b.title ILIKE '%мир%'
+ORDER BY similarity(b.title, 'мир') DESC, b.id
+LIMIT 20;
+
+DELETE FROM book WHERE description = 'benchmark';